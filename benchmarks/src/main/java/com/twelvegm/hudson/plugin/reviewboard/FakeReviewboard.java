@@ -0,0 +1,309 @@
+/*
+ *
+ * Copyright (c) 2026, the Reviewboard plugin contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), the rights
+ * to use, copy, modify, merge, publish, distribute, and to permit persons to
+ * whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.twelvegm.hudson.plugin.reviewboard;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * In-process stand-in for Reviewboard, serving the API endpoints {@link ReviewboardHttpAPI}
+ * uses, so the API can be exercised and measured without a live Reviewboard:
+ *
+ *  - /api/json/users/ and /api/json/groups/, queried by name prefix
+ *  - /api/users/ and /api/groups/, paged with start and max-results
+ *  - /api/json/reviewrequests/{id}/draft/set/{field}/ and /api/json/reviewrequests/{id}/publish/
+ *  - /api/review-requests/, /api/review-requests/{id}/diffs/ and /api/review-requests/{id}/draft/
+ *
+ * Every response is delayed by a configurable latency, and a configurable share of requests
+ * fails with 503 Service Unavailable.  GET responses carry an ETag, and are answered with
+ * 304 Not Modified when revalidated.  Credentials are not checked.
+ */
+public class FakeReviewboard {
+
+	private static final Pattern REVIEW_REQUEST_PATH = Pattern.compile("/api/(?:json/reviewrequests|review-requests)/(\\d+)/(.*)");
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+
+	private final int users;
+	private final int groups;
+	private final long latency;
+	private final long latencyJitter;
+	private final double errorRate;
+
+	private final Random random = new Random();
+	private final AtomicLong nextReviewRequestID = new AtomicLong(1);
+	private final Set<Long> reviewRequests = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+	private final ConcurrentMap<String, AtomicLong> requests = new ConcurrentHashMap<String, AtomicLong>();
+	private final AtomicLong injectedErrors = new AtomicLong();
+
+	/**
+	 * @param users number of users in Reviewboard
+	 * @param groups number of groups in Reviewboard
+	 * @param latency time, in milliseconds, every response is delayed by
+	 * @param latencyJitter maximum time, in milliseconds, added at random to the latency
+	 * @param errorRate share of requests, from 0 to 1, that fail with 503 Service Unavailable
+	 * @param threads number of threads serving requests
+	 * @throws IOException if the server couldn't be started
+	 */
+	public FakeReviewboard(final int users, final int groups, final long latency, final long latencyJitter, final double errorRate, final int threads) throws IOException {
+		this.users = users;
+		this.groups = groups;
+		this.latency = latency;
+		this.latencyJitter = latencyJitter;
+		this.errorRate = errorRate;
+
+		this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		this.executor = Executors.newFixedThreadPool(threads);
+		this.server.setExecutor(executor);
+		this.server.createContext("/", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				try{
+					FakeReviewboard.this.handle(exchange);
+				}finally{
+					exchange.close();
+				}
+			}
+		});
+		this.server.start();
+	}
+
+	/**
+	 * @return base URL of the server, to pass to {@link ReviewboardHttpAPI}
+	 */
+	public String getUrl() {
+		return "http://127.0.0.1:" + server.getAddress().getPort();
+	}
+
+	/**
+	 * @return number of requests served, by method and endpoint
+	 */
+	public Map<String, Long> getRequestCounts() {
+		Map<String, Long> counts = new HashMap<String, Long>();
+		for(Map.Entry<String, AtomicLong> entry: requests.entrySet())
+			counts.put(entry.getKey(), entry.getValue().get());
+		return counts;
+	}
+
+	/**
+	 * @return number of requests failed on purpose
+	 */
+	public long getInjectedErrors() {
+		return injectedErrors.get();
+	}
+
+	public void stop() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	private void handle(final HttpExchange exchange) throws IOException {
+
+		String method = exchange.getRequestMethod();
+		String path = exchange.getRequestURI().getPath();
+		Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+		byte[] body = readFully(exchange.getRequestBody());
+		if(!"GET".equals(method) && !isMultipart(exchange))
+			params.putAll(parseQuery(new String(body, "UTF-8")));
+
+		count(method + " " + REVIEW_REQUEST_PATH.matcher(path).replaceAll("/api/review-requests/{id}/$2"));
+
+		try{
+			long delay = latency + ((latencyJitter > 0) ? (long)(random.nextDouble() * latencyJitter) : 0L);
+			if(delay > 0)
+				TimeUnit.MILLISECONDS.sleep(delay);
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			return;
+		}
+
+		if(errorRate > 0 && random.nextDouble() < errorRate){
+			injectedErrors.incrementAndGet();
+			respond(exchange, 503, "{\"stat\": \"fail\", \"err\": {\"code\": 1, \"msg\": \"Service unavailable\"}}");
+			return;
+		}
+
+		if("GET".equals(method)){
+			if(path.equals("/api/json/users/"))
+				respondToGet(exchange, query(params, "users", "username", "user", users));
+			else if(path.equals("/api/json/groups/"))
+				respondToGet(exchange, query(params, "groups", "name", "group", groups));
+			else if(path.equals("/api/users/"))
+				respondToGet(exchange, page(params, path, "users", "username", "user", users));
+			else if(path.equals("/api/groups/"))
+				respondToGet(exchange, page(params, path, "groups", "name", "group", groups));
+			else
+				respondNotFound(exchange);
+			return;
+		}
+
+		if("POST".equals(method) && path.equals("/api/review-requests/")){
+			long id = nextReviewRequestID.getAndIncrement();
+			reviewRequests.add(id);
+			respond(exchange, 201, "{\"stat\": \"ok\", \"review_request\": {\"id\": " + id + ", \"changenum\": " + params.get("changenum") + "}}");
+			return;
+		}
+
+		Matcher matcher = REVIEW_REQUEST_PATH.matcher(path);
+		if(matcher.matches() && ("POST".equals(method) || "PUT".equals(method))){
+			long id = Long.parseLong(matcher.group(1));
+			if(!reviewRequests.contains(id))
+				respondNotFound(exchange);
+			else
+				respond(exchange, 200, "{\"stat\": \"ok\"}");
+			return;
+		}
+
+		respond(exchange, 405, "{\"stat\": \"fail\", \"err\": {\"code\": 0, \"msg\": \"Method not allowed\"}}");
+	}
+
+	/**
+	 * Answers a legacy query: the first names starting with the query, up to the limit.
+	 */
+	private static String query(final Map<String, String> params, final String listKey, final String fieldKey, final String prefix, final int count) {
+
+		String q = params.containsKey("q") ? params.get("q") : "";
+		int limit = params.containsKey("limit") ? Integer.parseInt(params.get("limit")) : count;
+
+		StringBuilder json = new StringBuilder("{\"stat\": \"ok\", \"").append(listKey).append("\": [");
+		int found = 0;
+		for(int i = 0; i < count && found < limit; i++){
+			String name = prefix + i;
+			if(!name.startsWith(q))
+				continue;
+			if(found++ > 0)
+				json.append(", ");
+			appendItem(json, fieldKey, name, i);
+		}
+		return json.append("]}").toString();
+	}
+
+	/**
+	 * Answers a paged list request.
+	 */
+	private String page(final Map<String, String> params, final String path, final String listKey, final String fieldKey, final String prefix, final int count) {
+
+		int start = params.containsKey("start") ? Integer.parseInt(params.get("start")) : 0;
+		int maxResults = params.containsKey("max-results") ? Math.min(200, Integer.parseInt(params.get("max-results"))) : 25;
+		int end = Math.min(count, start + maxResults);
+
+		StringBuilder json = new StringBuilder("{\"stat\": \"ok\", \"total_results\": ").append(count).append(", \"").append(listKey).append("\": [");
+		for(int i = start; i < end; i++){
+			if(i > start)
+				json.append(", ");
+			appendItem(json, fieldKey, prefix + i, i);
+		}
+		json.append("], \"links\": {\"self\": {\"href\": \"").append(getUrl()).append(path).append("?start=").append(start).append("&max-results=").append(maxResults).append("\", \"method\": \"GET\"}");
+		if(end < count)
+			json.append(", \"next\": {\"href\": \"").append(getUrl()).append(path).append("?start=").append(end).append("&max-results=").append(maxResults).append("\", \"method\": \"GET\"}");
+		return json.append("}}").toString();
+	}
+
+	private static void appendItem(final StringBuilder json, final String fieldKey, final String name, final int i) {
+		json.append("{\"").append(fieldKey).append("\": \"").append(name).append("\", ")
+			.append("\"display_name\": \"Display ").append(name).append("\", ")
+			.append("\"email\": \"").append(name).append("@example.com\", ")
+			.append("\"id\": ").append(i + 1).append("}");
+	}
+
+	private void respondToGet(final HttpExchange exchange, final String body) throws IOException {
+
+		// The data never changes, so the ETag only depends on the body
+		String etag = "\"" + Integer.toHexString(body.hashCode()) + "\"";
+		exchange.getResponseHeaders().set("ETag", etag);
+		if(etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))){
+			exchange.sendResponseHeaders(304, -1);
+			return;
+		}
+
+		respond(exchange, 200, body);
+	}
+
+	private static void respondNotFound(final HttpExchange exchange) throws IOException {
+		respond(exchange, 404, "{\"stat\": \"fail\", \"err\": {\"code\": 100, \"msg\": \"Object does not exist\"}}");
+	}
+
+	private static void respond(final HttpExchange exchange, final int status, final String body) throws IOException {
+		byte[] bytes = body.getBytes("UTF-8");
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		OutputStream out = exchange.getResponseBody();
+		out.write(bytes);
+		out.close();
+	}
+
+	private void count(final String endpoint) {
+		AtomicLong count = requests.get(endpoint);
+		if(count == null){
+			requests.putIfAbsent(endpoint, new AtomicLong());
+			count = requests.get(endpoint);
+		}
+		count.incrementAndGet();
+	}
+
+	private static boolean isMultipart(final HttpExchange exchange) {
+		String type = exchange.getRequestHeaders().getFirst("Content-Type");
+		return type != null && type.startsWith("multipart/");
+	}
+
+	private static Map<String, String> parseQuery(final String query) throws UnsupportedEncodingException {
+		Map<String, String> params = new HashMap<String, String>();
+		if(query == null || query.isEmpty())
+			return params;
+		for(String pair: query.split("&")){
+			int eq = pair.indexOf('=');
+			if(eq > 0)
+				params.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"), URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+		}
+		return params;
+	}
+
+	private static byte[] readFully(final InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		while((read = in.read(buffer)) != -1)
+			out.write(buffer, 0, read);
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ *
+ * Copyright (c) 2026, the Reviewboard plugin contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), the rights
+ * to use, copy, modify, merge, publish, distribute, and to permit persons to
+ * whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.twelvegm.hudson.plugin.reviewboard;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the handling of Reviewboard's JSON responses by {@link ReviewboardHttpAPI}
+ * for user lists of 10 to 10,000 users: streaming the user names out of the response
+ * with {@link ListResponseParser}, as user and group lists are read, and parsing the
+ * whole response into a tree with json-lib, as every other response is.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListResponseParserBenchmark {
+
+	/**
+	 * Number of users in the response.
+	 */
+	@Param({ "10", "100", "1000", "10000" })
+	public int users;
+
+	private final ListResponseParser parser = new ListResponseParser("users", "username");
+
+	private byte[] body;
+	private String bodyString;
+
+	@Setup
+	public void setUp() throws IOException {
+		bodyString = userList(users);
+		body = bodyString.getBytes("UTF-8");
+	}
+
+	/**
+	 * Builds a user list response in the format of Reviewboard 1.5.
+	 */
+	static String userList(final int users) {
+
+		StringBuilder json = new StringBuilder(users * 300);
+		json.append("{\"stat\": \"ok\", \"total_results\": ").append(users).append(", \"users\": [");
+		for(int i = 0; i < users; i++){
+			if(i > 0)
+				json.append(", ");
+			json.append("{\"username\": \"user").append(i).append("\", ")
+				.append("\"first_name\": \"First").append(i).append("\", ")
+				.append("\"last_name\": \"Last").append(i).append("\", ")
+				.append("\"fullname\": \"First").append(i).append(" Last").append(i).append("\", ")
+				.append("\"email\": \"user").append(i).append("@example.com\", ")
+				.append("\"id\": ").append(i + 1).append(", ")
+				.append("\"links\": {\"self\": {\"href\": \"http://reviewboard.example.com/api/users/user").append(i).append("/\", \"method\": \"GET\"}}}");
+		}
+		json.append("], \"links\": {\"self\": {\"href\": \"http://reviewboard.example.com/api/users/\", \"method\": \"GET\"}}}");
+		return json.toString();
+	}
+
+	@Benchmark
+	public Set<String> streaming() throws IOException {
+		Set<String> names = new HashSet<String>();
+		parser.parse(new ByteArrayInputStream(body), names);
+		return names;
+	}
+
+	@Benchmark
+	public Set<String> tree() {
+		Set<String> names = new HashSet<String>();
+		JSONArray list = JSONObject.fromObject(bodyString).getJSONArray("users");
+		for(int i = 0; i < list.size(); i++)
+			names.add(list.getJSONObject(i).getString("username"));
+		return names;
+	}
+}
@@ -0,0 +1,270 @@
+/*
+ *
+ * Copyright (c) 2026, the Reviewboard plugin contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), the rights
+ * to use, copy, modify, merge, publish, distribute, and to permit persons to
+ * whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.twelvegm.hudson.plugin.reviewboard;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load driver running simulated builds against a {@link FakeReviewboard}, all at once, and
+ * reporting throughput and latency.  Each build submits its changes the way the publisher
+ * does when submitting natively: a change creates a review request for its external ID,
+ * or updates the one created earlier, uploads its diff, then updates and publishes the
+ * draft in a single call.  Changes sharing an external ID are submitted one at a time,
+ * across builds.  Every build also loads the complete user list, as the directory does.
+ *
+ * Options, all optional, are given as --name=value:
+ *
+ *  builds (8), changes per build (20), externalIDs shared by the builds (50),
+ *  users (2000), groups (100), latency and jitter of Reviewboard in milliseconds (20, 10),
+ *  errorRate from 0 to 1 (0), serverThreads (16),
+ *  maxP99 in milliseconds and maxFailureRate from 0 to 1: regression gates, unset by default
+ *
+ * The exit code is 1 if a regression gate is exceeded, so the driver can fail a build.
+ *
+ * Ex: java -cp target/benchmarks.jar com.twelvegm.hudson.plugin.reviewboard.LoadTest --builds=32 --errorRate=0.01 --maxP99=500
+ */
+public class LoadTest {
+
+	private static final String REPOSITORY = "depot";
+
+	private static final byte[] DIFF = (
+			"--- //depot/project/src/Main.java\t//depot/project/src/Main.java#1\n" +
+			"+++ //depot/project/src/Main.java\t//depot/project/src/Main.java#2\n" +
+			"@@ -1,3 +1,3 @@\n" +
+			" class Main {\n" +
+			"-\tint x = 1;\n" +
+			"+\tint x = 2;\n" +
+			" }\n").getBytes();
+
+	private final ReviewboardHttpAPI api;
+	private final int changes;
+	private final int externalIDs;
+
+	// Review request of each external ID, and the lock its changes are submitted under
+	private final ConcurrentMap<String, Long> reviewRequests = new ConcurrentHashMap<String, Long>();
+	private final ConcurrentMap<String, Object> locks = new ConcurrentHashMap<String, Object>();
+
+	private final List<Long> latencies = Collections.synchronizedList(new ArrayList<Long>());
+	private final AtomicLong failures = new AtomicLong();
+	private final AtomicLong directoryFailures = new AtomicLong();
+
+	private LoadTest(final ReviewboardHttpAPI api, final int changes, final int externalIDs) {
+		this.api = api;
+		this.changes = changes;
+		this.externalIDs = externalIDs;
+	}
+
+	public static void main(String[] args) throws Exception {
+
+		Map<String, String> options = parseOptions(args);
+		int builds = intOption(options, "builds", 8);
+		int changes = intOption(options, "changes", 20);
+		int externalIDs = intOption(options, "externalIDs", 50);
+		int users = intOption(options, "users", 2000);
+		int groups = intOption(options, "groups", 100);
+		long latency = intOption(options, "latency", 20);
+		long jitter = intOption(options, "jitter", 10);
+		double errorRate = Double.parseDouble(option(options, "errorRate", "0"));
+		int serverThreads = intOption(options, "serverThreads", 16);
+		String maxP99 = options.get("maxP99");
+		String maxFailureRate = options.get("maxFailureRate");
+
+		FakeReviewboard reviewboard = new FakeReviewboard(users, groups, latency, jitter, errorRate, serverThreads);
+		ConnectionSettings settings = new ConnectionSettings();
+		settings.setMaxTotalConnections(Math.max(settings.getMaxTotalConnections(), builds));
+		settings.setMaxConnectionsPerHost(Math.max(settings.getMaxConnectionsPerHost(), builds));
+		ReviewboardHttpAPI api = new ReviewboardHttpAPI("jenkins", "secret", reviewboard.getUrl(), settings);
+
+		LoadTest test = new LoadTest(api, changes, externalIDs);
+		long elapsed;
+		try{
+			elapsed = test.run(builds);
+		}finally{
+			api.shutdown();
+			reviewboard.stop();
+		}
+
+		boolean passed = test.report(builds, elapsed, reviewboard,
+				(maxP99 != null) ? Long.parseLong(maxP99) : -1L,
+				(maxFailureRate != null) ? Double.parseDouble(maxFailureRate) : -1.0);
+		System.exit(passed ? 0 : 1);
+	}
+
+	/**
+	 * Runs every build at once, and waits for them to complete.
+	 *
+	 * @return time, in milliseconds, the builds took
+	 */
+	private long run(final int builds) throws InterruptedException {
+
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(builds);
+		for(int b = 0; b < builds; b++){
+			final int build = b;
+			Thread t = new Thread("Simulated build #" + build) {
+				@Override
+				public void run() {
+					try{
+						start.await();
+						runBuild(build);
+					}catch(InterruptedException e){
+						Thread.currentThread().interrupt();
+					}finally{
+						done.countDown();
+					}
+				}
+			};
+			t.setDaemon(true);
+			t.start();
+		}
+
+		long begin = System.nanoTime();
+		start.countDown();
+		done.await();
+		return (System.nanoTime() - begin) / 1000000L;
+	}
+
+	private void runBuild(final int build) {
+
+		try{
+			api.getAllReviewers(200, 1);
+		}catch(IOException e){
+			directoryFailures.incrementAndGet();
+		}
+
+		for(int c = 0; c < changes; c++){
+			long changeNum = (long)build * changes + c + 1;
+			String externalID = "PRJ-" + ((build * 31 + c) % externalIDs);
+
+			long begin = System.nanoTime();
+			boolean submitted = submit(externalID, changeNum);
+			latencies.add((System.nanoTime() - begin) / 1000000L);
+			if(!submitted)
+				failures.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Submits a change, creating or updating the review request of its external ID.
+	 *
+	 * @return true if the change was submitted and published
+	 */
+	private boolean submit(final String externalID, final long changeNum) {
+
+		locks.putIfAbsent(externalID, new Object());
+		synchronized(locks.get(externalID)){
+			Long existing = reviewRequests.get(externalID);
+			ReviewboardHttpAPI.Submission submission = api.submitReview(REPOSITORY, changeNum, "author" + (changeNum % 10), existing, DIFF);
+			if(submission == null)
+				return false;
+			Long id = submission.getReviewBoardID();
+			reviewRequests.put(externalID, id);
+			if(!submission.isDiffUploaded())
+				return false;
+
+			DraftUpdate update = new DraftUpdate();
+			if(existing == null)
+				update.setReviewers("user1,user2").setBugs(externalID).setGroups("group1");
+			else
+				update.setChangeDescription("Changelist ID: " + changeNum);
+			update.setPublish(true);
+
+			return api.updateDraft(new ReviewRequest(changeNum, id, "author", null), update);
+		}
+	}
+
+	/**
+	 * Prints the results, and checks them against the regression gates.
+	 *
+	 * @return true if no gate was exceeded
+	 */
+	private boolean report(final int builds, final long elapsed, final FakeReviewboard reviewboard, final long maxP99, final double maxFailureRate) {
+
+		long[] sorted = new long[latencies.size()];
+		synchronized(latencies){
+			for(int i = 0; i < sorted.length; i++)
+				sorted[i] = latencies.get(i);
+		}
+		Arrays.sort(sorted);
+
+		long total = sorted.length;
+		double failureRate = (total > 0) ? (double)failures.get() / total : 0.0;
+		long p99 = percentile(sorted, 99);
+
+		System.out.println("Builds:             " + builds + " x " + changes + " changes");
+		System.out.println("Elapsed:            " + elapsed + " ms");
+		System.out.println("Throughput:         " + String.format("%.1f", (elapsed > 0) ? total * 1000.0 / elapsed : 0.0) + " changes/s");
+		System.out.println("Latency (ms):       p50=" + percentile(sorted, 50) + " p90=" + percentile(sorted, 90) + " p99=" + p99 + " max=" + ((total > 0) ? sorted[sorted.length - 1] : 0));
+		System.out.println("Failed changes:     " + failures.get() + " (" + String.format("%.2f", failureRate * 100) + "%)");
+		System.out.println("Failed directories: " + directoryFailures.get());
+		System.out.println("Injected errors:    " + reviewboard.getInjectedErrors());
+		System.out.println("Requests:");
+		for(Map.Entry<String, Long> entry: new TreeMap<String, Long>(reviewboard.getRequestCounts()).entrySet())
+			System.out.println("  " + entry.getKey() + ": " + entry.getValue());
+
+		boolean passed = true;
+		if(maxP99 >= 0 && p99 > maxP99){
+			System.out.println("FAILED: p99 latency of " + p99 + " ms exceeds " + maxP99 + " ms");
+			passed = false;
+		}
+		if(maxFailureRate >= 0 && failureRate > maxFailureRate){
+			System.out.println("FAILED: failure rate of " + String.format("%.4f", failureRate) + " exceeds " + maxFailureRate);
+			passed = false;
+		}
+		return passed;
+	}
+
+	private static long percentile(final long[] sorted, final int percentile) {
+		if(sorted.length == 0)
+			return 0L;
+		int index = (int)Math.ceil(percentile / 100.0 * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+	}
+
+	private static Map<String, String> parseOptions(final String[] args) {
+		Map<String, String> options = new HashMap<String, String>();
+		for(String arg: args){
+			if(!arg.startsWith("--") || arg.indexOf('=') < 0)
+				throw new IllegalArgumentException("Options must be given as --name=value: " + arg);
+			options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+		}
+		return options;
+	}
+
+	private static String option(final Map<String, String> options, final String name, final String defaultValue) {
+		return options.containsKey(name) ? options.get(name) : defaultValue;
+	}
+
+	private static int intOption(final Map<String, String> options, final String name, final int defaultValue) {
+		return Integer.parseInt(option(options, name, String.valueOf(defaultValue)));
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ *
+ * Copyright (c) 2026, the Reviewboard plugin contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), the rights
+ * to use, copy, modify, merge, publish, distribute, and to permit persons to
+ * whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package hudson.plugins.reviewboard;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the scanning of change descriptions done by
+ * <code>ReviewboardPublisher.getExternalKeyFromChangeDescr</code> (finding the key) and
+ * <code>parseDescriptionForOverride</code> (finding override flags), both of which delegate
+ * to {@link DescriptionScanner}, against descriptions from a line to several megabytes.
+ *
+ * <code>upperCaseContains</code> measures the way flags used to be found, upper-casing the
+ * description and searching it once per flag, as a baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DescriptionScannerBenchmark {
+
+	private static final String[] FLAGS = { "RB_SKIP", "RB_NEW", "RB_UPDATE", "RB_NONE" };
+
+	/**
+	 * Length of the description, in characters.
+	 */
+	@Param({ "100", "10000", "1000000", "5000000" })
+	public int length;
+
+	/**
+	 * Where the override flag is in the description: nowhere, at its start or at its end.
+	 */
+	@Param({ "none", "start", "end" })
+	public String flag;
+
+	private DescriptionScanner scanner;
+	private String description;
+
+	@Setup
+	public void setUp() {
+
+		scanner = new DescriptionScanner(Pattern.compile("(JENKINS-[0-9]+)"), FLAGS);
+
+		// Release-note like text, with words that almost match the flags
+		StringBuilder text = new StringBuilder(length + 64);
+		text.append("JENKINS-1234 ");
+		if("start".equals(flag))
+			text.append("RB_UPDATE ");
+
+		Random random = new Random(42);
+		String[] words = { "Fixed", "rb_", "RB", "build", "release", "notes", "RB_NEXT", "update", "module", "\n" };
+		while(text.length() < length)
+			text.append(words[random.nextInt(words.length)]).append(' ');
+
+		if("end".equals(flag))
+			text.append(" RB_NEW");
+		description = text.toString();
+	}
+
+	@Benchmark
+	public String findKey() {
+		return scanner.findKey(description);
+	}
+
+	@Benchmark
+	public int scan() {
+		return scanner.scan(description).getFirstKeyword();
+	}
+
+	@Benchmark
+	public int upperCaseContains() {
+		String upper = description.toUpperCase();
+		for(int i = 0; i < FLAGS.length; i++){
+			if(upper.contains(FLAGS[i]))
+				return i;
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ *
+ * Copyright (c) 2026, the Reviewboard plugin contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), the rights
+ * to use, copy, modify, merge, publish, distribute, and to permit persons to
+ * whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package hudson.plugins.reviewboard;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link PostReviewOutputParser}, which replaced
+ * <code>ReviewboardPublisher.matchStringToPattern</code>, over the output of typical
+ * post-review runs: a successful one, one failing with an HTTP error, and a long one
+ * with warnings and diff progress ahead of the result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PostReviewOutputParserBenchmark {
+
+	/**
+	 * Output to parse.
+	 */
+	@Param({ "posted", "httpError", "verbose" })
+	public String output;
+
+	private List<String> lines;
+
+	@Setup
+	public void setUp() {
+
+		lines = new ArrayList<String>();
+		if("posted".equals(output)){
+			lines.add("Review request #4213 posted.");
+			lines.add("");
+			lines.add("http://reviewboard.example.com/r/4213/");
+		}else if("httpError".equals(output)){
+			lines.add("Error getting review request 4213: HTTP Error 404");
+			lines.add("Your review request still exists, but the diff is not attached.");
+		}else{
+			lines.add("Warning: Could not determine the base path of the repository");
+			for(int i = 0; i < 1000; i++)
+				lines.add("Processing //depot/project/main/src/module" + i + "/File" + i + ".java#" + (i % 17 + 1));
+			lines.add("WARNING: 3 binary files were skipped");
+			lines.add("Review request #4213 posted.");
+			lines.add("");
+			lines.add("http://reviewboard.example.com/r/4213/");
+		}
+	}
+
+	@Benchmark
+	public long parse() {
+		PostReviewOutputParser parser = new PostReviewOutputParser();
+		for(String line: lines)
+			parser.parseLine(line);
+		return parser.getPostedReviewID() + parser.getFailedReviewID();
+	}
+}
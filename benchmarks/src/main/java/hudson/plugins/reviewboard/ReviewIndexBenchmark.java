@@ -0,0 +1,199 @@
+/*
+ *
+ * Copyright (c) 2026, the Reviewboard plugin contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), the rights
+ * to use, copy, modify, merge, publish, distribute, and to permit persons to
+ * whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package hudson.plugins.reviewboard;
+
+import hudson.model.Job;
+import hudson.model.Run;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks <code>ReviewboardPublisher.searchForPreviouslyCreatedReviewByExternalID</code>
+ * over synthetic build histories.  Real builds need a running Jenkins, so the history belongs
+ * to a stub job, whose builds are stub runs holding the {@link ReviewInfoAction}s they recorded.
+ *
+ * <code>lookup</code> measures the {@link ReviewIndex} lookup the search does now, and
+ * <code>rebuild</code> what it costs to rebuild the index from history and save it, which
+ * happens once per job or when an indexed build is deleted.  <code>historyWalk</code> measures
+ * the walk back through every build the search used to do, as a baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReviewIndexBenchmark {
+
+	/**
+	 * Number of builds in the history.
+	 */
+	@Param({ "1000", "10000", "100000" })
+	public int builds;
+
+	/**
+	 * Where the build recording the external ID looked up is: among the newest builds,
+	 * among the oldest, or nowhere.
+	 */
+	@Param({ "newest", "oldest", "missing" })
+	public String position;
+
+	private StubJob job;
+	private String externalID;
+
+	/**
+	 * Job whose builds are kept in memory, newest first, like a job's RunMap.
+	 */
+	static final class StubJob extends Job<StubJob, StubRun> {
+
+		private final File rootDir;
+		private final SortedMap<Integer, StubRun> runs = new TreeMap<Integer, StubRun>(Collections.reverseOrder());
+
+		StubJob(final File rootDir) {
+			super(null, "benchmark");
+			this.rootDir = rootDir;
+		}
+
+		@Override
+		public File getRootDir() {
+			return rootDir;
+		}
+
+		@Override
+		public boolean isBuildable() {
+			return false;
+		}
+
+		@Override
+		protected SortedMap<Integer, ? extends StubRun> _getRuns() {
+			return runs;
+		}
+
+		@Override
+		protected void removeRun(final StubRun run) {
+			runs.remove(run.getNumber());
+		}
+
+		/**
+		 * Adds the next build, after the last one.
+		 */
+		StubRun newBuild() {
+			StubRun run = new StubRun(this, runs.isEmpty() ? null : runs.get(runs.firstKey()));
+			runs.put(run.getNumber(), run);
+			return run;
+		}
+	}
+
+	/**
+	 * Build of a {@link StubJob}.
+	 */
+	static final class StubRun extends Run<StubJob, StubRun> {
+
+		StubRun(final StubJob job, final StubRun previous) {
+			super(job, new GregorianCalendar());
+			this.number = (previous != null) ? previous.getNumber() + 1 : 1;
+			this.previousBuild = previous;
+		}
+	}
+
+	@Setup
+	public void setUp() throws IOException {
+
+		File rootDir = File.createTempFile("review-index", "");
+		rootDir.delete();
+		rootDir.mkdirs();
+		job = new StubJob(rootDir);
+
+		// One build in five records review requests, against a pool of external IDs that grows with the history.
+		// The external ID looked up is recorded only by the newest or the oldest build.
+		Random random = new Random(42);
+		int ids = Math.max(10, builds / 20);
+		String id = "LOOKUP-1";
+		for(int number = 1; number <= builds; number++){
+			StubRun run = job.newBuild();
+			if("oldest".equals(position) && number == 1)
+				run.addAction(new ReviewInfoAction(id, 1L, 1L, "builder", "Oldest"));
+			else if("newest".equals(position) && number == builds)
+				run.addAction(new ReviewInfoAction(id, 1L, 1L, "builder", "Newest"));
+			else if(random.nextInt(5) == 0){
+				for(int i = 1 + random.nextInt(3); i > 0; i--)
+					run.addAction(new ReviewInfoAction("PRJ-" + random.nextInt(ids), (long)number * 10 + i, (long)number, "builder", "Change " + number));
+			}
+		}
+		externalID = id.toLowerCase();
+
+		ReviewIndex.evict(job);
+		ReviewIndex.forJob(job);
+	}
+
+	@TearDown
+	public void tearDown() {
+		ReviewIndex.evict(job);
+		for(File file: job.getRootDir().listFiles())
+			file.delete();
+		job.getRootDir().delete();
+	}
+
+	@Benchmark
+	public Long historyWalk() {
+		for(Run<?,?> run = job.getLastBuild(); run != null; run = run.getPreviousBuild()){
+			for(ReviewInfoAction action: run.getActions(ReviewInfoAction.class)){
+				if(action.equalsExternalID(externalID))
+					return action.getReviewRequest().getReviewBoardID();
+			}
+		}
+		return null;
+	}
+
+	@Benchmark
+	public Long lookup() {
+		ReviewIndex.IndexEntry entry = ReviewIndex.forJob(job).lookup(job, externalID);
+		return (entry != null) ? entry.getReviewBoardID() : null;
+	}
+
+	@Benchmark
+	public ReviewIndex rebuild() {
+		ReviewIndex index = ReviewIndex.forJob(job);
+		index.rebuild(job);
+		return index;
+	}
+}
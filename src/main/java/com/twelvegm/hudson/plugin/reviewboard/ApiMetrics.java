@@ -0,0 +1,244 @@
+/*
+ *
+ * Copyright (c) 2026, the Reviewboard plugin contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), the rights
+ * to use, copy, modify, merge, publish, distribute, and to permit persons to
+ * whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.twelvegm.hudson.plugin.reviewboard;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics of the calls made to Reviewboard, per endpoint.  An endpoint is the HTTP method and
+ * the path of the resource, relative to the base URL, with review request IDs replaced by
+ * {id}, such as "PUT /api/review-requests/{id}/draft/".
+ *
+ * For every endpoint this keeps the number of requests, a histogram of their latencies, how
+ * many got each HTTP status, how many got no response at all, how many were refused by the
+ * circuit breaker, the "stat" of the responses, and the bytes sent and received.  Every
+ * attempt at a call is a request, so retried calls count once per attempt.
+ *
+ * Metrics can be shared by several instances of the API, such as the instances replacing
+ * each other when the plugin is reconfigured.
+ */
+public final class ApiMetrics {
+
+	// Status recorded for requests that got no response
+	static final int NO_RESPONSE = 0;
+
+	// Stats Reviewboard responds with, and the stat recorded for responses without either of them
+	static final String OK_STAT = "ok";
+	static final String FAIL_STAT = "fail";
+	static final String INVALID_STAT = "invalid";
+
+	// Bounds, in microseconds, latencies are counted against exactly: the buckets they are exported in
+	private static final long[] LATENCY_BOUNDS = { 5000L, 10000L, 25000L, 50000L, 100000L, 250000L, 500000L, 1000000L, 2500000L, 5000000L, 10000000L, 30000000L };
+
+	private final ConcurrentMap<String, Endpoint> endpoints = new ConcurrentHashMap<String, Endpoint>();
+
+	/**
+	 * Metrics of a single endpoint.
+	 */
+	public static final class Endpoint {
+
+		private final String name;
+		private final LatencyHistogram latency = new LatencyHistogram(LATENCY_BOUNDS);
+		private final AtomicLong requests = new AtomicLong();
+		private final AtomicLong noResponse = new AtomicLong();
+		private final AtomicLong rejected = new AtomicLong();
+		private final AtomicLong bytesSent = new AtomicLong();
+		private final AtomicLong bytesReceived = new AtomicLong();
+		private final ConcurrentMap<Integer, AtomicLong> statuses = new ConcurrentHashMap<Integer, AtomicLong>();
+		private final ConcurrentMap<String, AtomicLong> stats = new ConcurrentHashMap<String, AtomicLong>();
+
+		private Endpoint(final String name) {
+			this.name = name;
+		}
+
+		/**
+		 * @return HTTP method and path of the endpoint
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return latencies of the requests that got a response, or failed without one
+		 */
+		public LatencyHistogram getLatency() {
+			return latency;
+		}
+
+		/**
+		 * @return number of requests sent, whether or not they got a response
+		 */
+		public long getRequests() {
+			return requests.get();
+		}
+
+		/**
+		 * @return number of requests that got no response, because Reviewboard couldn't be reached or timed out
+		 */
+		public long getNoResponse() {
+			return noResponse.get();
+		}
+
+		/**
+		 * @return number of calls refused by the circuit breaker without sending a request
+		 */
+		public long getRejected() {
+			return rejected.get();
+		}
+
+		/**
+		 * @return bytes sent in request bodies
+		 */
+		public long getBytesSent() {
+			return bytesSent.get();
+		}
+
+		/**
+		 * @return bytes received in response bodies, as reported by their Content-Length
+		 */
+		public long getBytesReceived() {
+			return bytesReceived.get();
+		}
+
+		/**
+		 * @return number of responses by HTTP status, sorted by status
+		 */
+		public Map<Integer, Long> getStatuses() {
+			return snapshot(statuses);
+		}
+
+		/**
+		 * @return number of responses by the "stat" in their body, sorted by stat
+		 */
+		public Map<String, Long> getStats() {
+			return snapshot(stats);
+		}
+
+		/**
+		 * @return number of responses whose status is in a class, such as 5 for 5xx
+		 */
+		public long getStatusClassCount(final int statusClass) {
+			long n = 0L;
+			for(Map.Entry<Integer, AtomicLong> entry: statuses.entrySet()){
+				if(entry.getKey() / 100 == statusClass)
+					n += entry.getValue().get();
+			}
+			return n;
+		}
+
+		private static <K> Map<K, Long> snapshot(final Map<K, AtomicLong> counters) {
+			Map<K, Long> snapshot = new TreeMap<K, Long>();
+			for(Map.Entry<K, AtomicLong> entry: counters.entrySet())
+				snapshot.put(entry.getKey(), entry.getValue().get());
+			return snapshot;
+		}
+
+		private static <K> void increment(final ConcurrentMap<K, AtomicLong> counters, final K key) {
+			AtomicLong counter = counters.get(key);
+			if(counter == null){
+				AtomicLong created = new AtomicLong();
+				counter = counters.putIfAbsent(key, created);
+				if(counter == null)
+					counter = created;
+			}
+			counter.incrementAndGet();
+		}
+	}
+
+	/**
+	 * @return metrics of every endpoint called so far, sorted by name
+	 */
+	public List<Endpoint> getEndpoints() {
+		List<Endpoint> list = new ArrayList<Endpoint>(new TreeMap<String, Endpoint>(endpoints).values());
+		return Collections.unmodifiableList(list);
+	}
+
+	/**
+	 * Clears the metrics of every endpoint.
+	 */
+	public void reset() {
+		endpoints.clear();
+	}
+
+	/**
+	 * Records a request.
+	 *
+	 * @param endpoint endpoint called
+	 * @param nanos time, in nanoseconds, from sending the request to receiving the response headers, or failing
+	 * @param statusCode HTTP status of the response, or {@link #NO_RESPONSE}
+	 * @param sent bytes sent in the request body, or -1 if unknown
+	 * @param received bytes in the response body, or -1 if unknown
+	 */
+	void recordRequest(final String endpoint, final long nanos, final int statusCode, final long sent, final long received) {
+
+		Endpoint metrics = get(endpoint);
+		metrics.requests.incrementAndGet();
+		metrics.latency.record(nanos / 1000L);
+		if(statusCode == NO_RESPONSE)
+			metrics.noResponse.incrementAndGet();
+		else
+			Endpoint.increment(metrics.statuses, statusCode);
+		if(sent > 0)
+			metrics.bytesSent.addAndGet(sent);
+		if(received > 0)
+			metrics.bytesReceived.addAndGet(received);
+	}
+
+	/**
+	 * Records a call refused by the circuit breaker.
+	 *
+	 * @param endpoint endpoint that would have been called
+	 */
+	void recordRejected(final String endpoint) {
+		get(endpoint).rejected.incrementAndGet();
+	}
+
+	/**
+	 * Records the "stat" of a response.
+	 *
+	 * @param endpoint endpoint called
+	 * @param stat stat in the body of the response, or null if it had none or wasn't JSON
+	 */
+	void recordStat(final String endpoint, final String stat) {
+		String key = (stat != null) ? stat.trim().toLowerCase() : null;
+		if(!OK_STAT.equals(key) && !FAIL_STAT.equals(key))
+			key = INVALID_STAT;
+		Endpoint.increment(get(endpoint).stats, key);
+	}
+
+	private Endpoint get(final String endpoint) {
+		Endpoint metrics = endpoints.get(endpoint);
+		if(metrics == null){
+			Endpoint created = new Endpoint(endpoint);
+			metrics = endpoints.putIfAbsent(endpoint, created);
+			if(metrics == null)
+				metrics = created;
+		}
+		return metrics;
+	}
+}
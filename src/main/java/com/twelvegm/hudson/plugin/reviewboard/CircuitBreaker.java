@@ -0,0 +1,122 @@
+/*
+ *
+ * Copyright (c) 2026, the Reviewboard plugin contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), the rights
+ * to use, copy, modify, merge, publish, distribute, and to permit persons to
+ * whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.twelvegm.hudson.plugin.reviewboard;
+
+import java.io.IOException;
+
+/**
+ * Stops calls to Reviewboard while it appears to be down, so callers fail immediately
+ * instead of each waiting for their own connection or read to time out.
+ *
+ * The breaker opens after a number of consecutive failed calls.  While open, every call
+ * is refused until the open interval has passed; then a single call is let through to
+ * probe Reviewboard.  If the probe succeeds the breaker closes, otherwise it opens again.
+ */
+final class CircuitBreaker {
+
+	/**
+	 * State of the breaker.
+	 */
+	enum State {
+		// Calls go through
+		CLOSED,
+
+		// Calls are refused
+		OPEN,
+
+		// A single probe call has been let through and calls are refused until it completes
+		HALF_OPEN
+	}
+
+	/**
+	 * Thrown instead of calling Reviewboard while the breaker is open.
+	 */
+	static final class OpenException extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		OpenException(final String message) {
+			super(message);
+		}
+	}
+
+	private final int failureThreshold;
+	private final long openInterval;
+
+	private State state = State.CLOSED;
+	private int failures = 0;
+	private long openedAt = 0L;
+
+	/**
+	 * @param failureThreshold number of consecutive failures that open the breaker
+	 * @param openInterval time, in milliseconds, the breaker stays open before a probe is let through
+	 */
+	CircuitBreaker(final int failureThreshold, final long openInterval) {
+		this.failureThreshold = failureThreshold;
+		this.openInterval = openInterval;
+	}
+
+	/**
+	 * Asks whether a call may go through.  Every call allowed must be followed by
+	 * {@link #recordSuccess()} or {@link #recordFailure()}.
+	 *
+	 * @throws OpenException if the breaker is open
+	 */
+	synchronized void acquire() throws OpenException {
+
+		if(state == State.CLOSED)
+			return;
+
+		long now = System.currentTimeMillis();
+		if(state == State.OPEN && now - openedAt >= openInterval){
+			state = State.HALF_OPEN;
+			return;
+		}
+
+		long retryIn = Math.max(0L, openedAt + openInterval - now);
+		throw new OpenException("Reviewboard appears to be down after " + failures + " consecutive failures; not calling it for another " + (retryIn / 1000) + " seconds.");
+	}
+
+	/**
+	 * Records a call that reached Reviewboard and got a response it could handle.
+	 */
+	synchronized void recordSuccess() {
+		failures = 0;
+		state = State.CLOSED;
+	}
+
+	/**
+	 * Records a call that failed because Reviewboard couldn't be reached or was unavailable.
+	 */
+	synchronized void recordFailure() {
+		failures++;
+		if(state == State.HALF_OPEN || failures >= failureThreshold){
+			state = State.OPEN;
+			openedAt = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * @return current state of the breaker
+	 */
+	synchronized State getState() {
+		return state;
+	}
+}
@@ -0,0 +1,193 @@
+/*
+ *
+ * Copyright (c) 2026, the Reviewboard plugin contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), the rights
+ * to use, copy, modify, merge, publish, distribute, and to permit persons to
+ * whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.twelvegm.hudson.plugin.reviewboard;
+
+/**
+ * Settings for the pool of HTTP connections a {@link ReviewboardHttpAPI} shares
+ * between all of its callers, for the cache of its responses, and for how it retries
+ * failed calls.  Values that are zero or negative fall back to the defaults, except
+ * for the response cache size and the number of retries, where zero disables the
+ * cache or retries.
+ */
+public class ConnectionSettings {
+
+	public static final int DEFAULT_MAX_TOTAL_CONNECTIONS = 20;
+	public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 10;
+	public static final int DEFAULT_IDLE_CONNECTION_TIMEOUT = 60000; // 1 minute
+	public static final int DEFAULT_CONNECTION_TIMEOUT = 30000; // 30 seconds
+	public static final int DEFAULT_SO_TIMEOUT = 300000; // 5 minutes
+	public static final int DEFAULT_RESPONSE_CACHE_SIZE = 100;
+	public static final int DEFAULT_MAX_RETRIES = 2;
+	public static final int DEFAULT_CIRCUIT_BREAKER_THRESHOLD = 5;
+	public static final int DEFAULT_CIRCUIT_BREAKER_INTERVAL = 30000; // 30 seconds
+
+	private int maxTotalConnections = DEFAULT_MAX_TOTAL_CONNECTIONS;
+	private int maxConnectionsPerHost = DEFAULT_MAX_CONNECTIONS_PER_HOST;
+	private int idleConnectionTimeout = DEFAULT_IDLE_CONNECTION_TIMEOUT;
+	private int connectionTimeout = DEFAULT_CONNECTION_TIMEOUT;
+	private int soTimeout = DEFAULT_SO_TIMEOUT;
+	private boolean preemptiveAuthentication = true;
+	private int responseCacheSize = DEFAULT_RESPONSE_CACHE_SIZE;
+	private int maxRetries = DEFAULT_MAX_RETRIES;
+	private int circuitBreakerThreshold = DEFAULT_CIRCUIT_BREAKER_THRESHOLD;
+	private int circuitBreakerInterval = DEFAULT_CIRCUIT_BREAKER_INTERVAL;
+
+	/**
+	 * Creates settings with default values.
+	 */
+	public ConnectionSettings() {
+	}
+
+	/**
+	 * Maximum number of connections kept open to Reviewboard across all callers.
+	 *
+	 * @return maximum number of pooled connections
+	 */
+	public int getMaxTotalConnections() {
+		return maxTotalConnections;
+	}
+
+	public void setMaxTotalConnections(int maxTotalConnections) {
+		this.maxTotalConnections = (maxTotalConnections > 0) ? maxTotalConnections : DEFAULT_MAX_TOTAL_CONNECTIONS;
+	}
+
+	/**
+	 * Maximum number of connections kept open to a single Reviewboard host.
+	 *
+	 * @return maximum number of pooled connections per host
+	 */
+	public int getMaxConnectionsPerHost() {
+		return maxConnectionsPerHost;
+	}
+
+	public void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+		this.maxConnectionsPerHost = (maxConnectionsPerHost > 0) ? maxConnectionsPerHost : DEFAULT_MAX_CONNECTIONS_PER_HOST;
+	}
+
+	/**
+	 * Time, in milliseconds, a pooled connection may sit idle before it is closed.
+	 *
+	 * @return idle timeout in milliseconds
+	 */
+	public int getIdleConnectionTimeout() {
+		return idleConnectionTimeout;
+	}
+
+	public void setIdleConnectionTimeout(int idleConnectionTimeout) {
+		this.idleConnectionTimeout = (idleConnectionTimeout > 0) ? idleConnectionTimeout : DEFAULT_IDLE_CONNECTION_TIMEOUT;
+	}
+
+	/**
+	 * Time, in milliseconds, to wait for a connection to Reviewboard to be established.
+	 *
+	 * @return connection timeout in milliseconds
+	 */
+	public int getConnectionTimeout() {
+		return connectionTimeout;
+	}
+
+	public void setConnectionTimeout(int connectionTimeout) {
+		this.connectionTimeout = (connectionTimeout > 0) ? connectionTimeout : DEFAULT_CONNECTION_TIMEOUT;
+	}
+
+	/**
+	 * Time, in milliseconds, to wait for data from Reviewboard once connected.
+	 *
+	 * @return socket read timeout in milliseconds
+	 */
+	public int getSoTimeout() {
+		return soTimeout;
+	}
+
+	public void setSoTimeout(int soTimeout) {
+		this.soTimeout = (soTimeout > 0) ? soTimeout : DEFAULT_SO_TIMEOUT;
+	}
+
+	/**
+	 * If true, Basic Authentication credentials are sent with every request instead
+	 * of waiting for Reviewboard to challenge for them.
+	 *
+	 * @return true if authentication is preemptive
+	 */
+	public boolean isPreemptiveAuthentication() {
+		return preemptiveAuthentication;
+	}
+
+	public void setPreemptiveAuthentication(boolean preemptiveAuthentication) {
+		this.preemptiveAuthentication = preemptiveAuthentication;
+	}
+
+	/**
+	 * Maximum number of responses to GET requests cached and revalidated with Reviewboard
+	 * before reuse.  0 if responses aren't cached.
+	 *
+	 * @return maximum number of cached responses
+	 */
+	public int getResponseCacheSize() {
+		return responseCacheSize;
+	}
+
+	public void setResponseCacheSize(int responseCacheSize) {
+		this.responseCacheSize = (responseCacheSize >= 0) ? responseCacheSize : DEFAULT_RESPONSE_CACHE_SIZE;
+	}
+
+	/**
+	 * Number of times a failed call is retried.  Calls that may have changed something in
+	 * Reviewboard before failing are never retried.
+	 *
+	 * @return maximum number of retries per call
+	 */
+	public int getMaxRetries() {
+		return maxRetries;
+	}
+
+	public void setMaxRetries(int maxRetries) {
+		this.maxRetries = (maxRetries >= 0) ? maxRetries : DEFAULT_MAX_RETRIES;
+	}
+
+	/**
+	 * Number of consecutive failed calls after which Reviewboard is considered down and
+	 * further calls fail immediately.
+	 *
+	 * @return consecutive failures that open the circuit breaker
+	 */
+	public int getCircuitBreakerThreshold() {
+		return circuitBreakerThreshold;
+	}
+
+	public void setCircuitBreakerThreshold(int circuitBreakerThreshold) {
+		this.circuitBreakerThreshold = (circuitBreakerThreshold > 0) ? circuitBreakerThreshold : DEFAULT_CIRCUIT_BREAKER_THRESHOLD;
+	}
+
+	/**
+	 * Time, in milliseconds, calls fail immediately once Reviewboard is considered down,
+	 * before a single call is let through to check whether it is back.
+	 *
+	 * @return circuit breaker open interval in milliseconds
+	 */
+	public int getCircuitBreakerInterval() {
+		return circuitBreakerInterval;
+	}
+
+	public void setCircuitBreakerInterval(int circuitBreakerInterval) {
+		this.circuitBreakerInterval = (circuitBreakerInterval > 0) ? circuitBreakerInterval : DEFAULT_CIRCUIT_BREAKER_INTERVAL;
+	}
+}
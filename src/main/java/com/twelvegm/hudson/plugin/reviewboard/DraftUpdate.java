@@ -0,0 +1,125 @@
+/*
+ *
+ * Copyright (c) 2026, the Reviewboard plugin contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), the rights
+ * to use, copy, modify, merge, publish, distribute, and to permit persons to
+ * whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.twelvegm.hudson.plugin.reviewboard;
+
+/**
+ * A set of changes to apply to the draft of a review request in a single call to
+ * {@link ReviewboardHttpAPI#updateDraft(ReviewRequest, DraftUpdate)}.  Fields left
+ * null are not sent, and leave the draft's current value untouched.
+ */
+public class DraftUpdate {
+
+	private String reviewers;
+	private String groups;
+	private String bugs;
+	private String changeDescription;
+	private boolean publish = false;
+
+	/**
+	 * @return comma-separated Reviewboard users to set as reviewers, or null to leave unchanged
+	 */
+	public String getReviewers() {
+		return reviewers;
+	}
+
+	/**
+	 * Sets the reviewers of the review request.  See {@link ReviewboardHttpAPI#setReviewers(ReviewRequest, String)}.
+	 *
+	 * @param reviewers comma-separated Reviewboard users
+	 * @return this update
+	 */
+	public DraftUpdate setReviewers(String reviewers) {
+		this.reviewers = reviewers;
+		return this;
+	}
+
+	/**
+	 * @return comma-separated Reviewboard groups to set as review groups, or null to leave unchanged
+	 */
+	public String getGroups() {
+		return groups;
+	}
+
+	/**
+	 * Sets the review groups of the review request.  See {@link ReviewboardHttpAPI#setGroups(ReviewRequest, String)}.
+	 *
+	 * @param groups comma-separated Reviewboard groups
+	 * @return this update
+	 */
+	public DraftUpdate setGroups(String groups) {
+		this.groups = groups;
+		return this;
+	}
+
+	/**
+	 * @return comma-separated bug IDs, or null to leave unchanged
+	 */
+	public String getBugs() {
+		return bugs;
+	}
+
+	/**
+	 * Sets the related bugs of the review request.  See {@link ReviewboardHttpAPI#setBugs(ReviewRequest, String)}.
+	 *
+	 * @param bugs comma-separated bug IDs
+	 * @return this update
+	 */
+	public DraftUpdate setBugs(String bugs) {
+		this.bugs = bugs;
+		return this;
+	}
+
+	/**
+	 * @return description of the pending diff, or null to leave unchanged
+	 */
+	public String getChangeDescription() {
+		return changeDescription;
+	}
+
+	/**
+	 * Sets the description of the pending diff.  See {@link ReviewboardHttpAPI#setChangeDescription(ReviewRequest, String)}.
+	 *
+	 * @param changeDescription description of the pending diff
+	 * @return this update
+	 */
+	public DraftUpdate setChangeDescription(String changeDescription) {
+		this.changeDescription = changeDescription;
+		return this;
+	}
+
+	/**
+	 * @return true if the draft is published once the changes are applied
+	 */
+	public boolean isPublish() {
+		return publish;
+	}
+
+	/**
+	 * Publishes the draft once the changes are applied.  See {@link ReviewboardHttpAPI#publishReview(ReviewRequest)}.
+	 *
+	 * @param publish true to publish the draft
+	 * @return this update
+	 */
+	public DraftUpdate setPublish(boolean publish) {
+		this.publish = publish;
+		return this;
+	}
+}
@@ -0,0 +1,227 @@
+/*
+ *
+ * Copyright (c) 2026, the Reviewboard plugin contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), the rights
+ * to use, copy, modify, merge, publish, distribute, and to permit persons to
+ * whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.twelvegm.hudson.plugin.reviewboard;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies, in microseconds, with a bounded relative error, in the manner of
+ * HdrHistogram.  Values below {@link #SUB_BUCKETS} each have their own bucket; above that,
+ * every power of two is split into {@link #SUB_BUCKETS} equal buckets, so a bucket is never
+ * wider than 1/8th of the values in it and percentiles are within 12.5% of the true value.
+ * Values beyond the last bucket, over a day, are counted in the last bucket.
+ *
+ * Latencies can also be counted against a few fixed bounds, such as the buckets of an
+ * exported histogram, so the number of latencies at or below each of them is exact.
+ *
+ * Recording is lock-free and never allocates, so it can be done on every call to Reviewboard.
+ * Reads are not atomic with respect to concurrent recording, which may skew a percentile
+ * read at the same time by the values being recorded.
+ */
+public final class LatencyHistogram {
+
+	// Buckets each power of two is split into.  Must be a power of two.
+	private static final int SUB_BUCKETS = 8;
+	private static final int SUB_BUCKET_BITS = Integer.numberOfTrailingZeros(SUB_BUCKETS);
+
+	// Largest power of two covered, in microseconds: 2^37us is about 38 hours
+	private static final int MAX_EXPONENT = 37;
+
+	private static final int BUCKETS = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	// Bounds latencies are counted against exactly, and the latencies above the previous bound
+	// and at or below each of them.
+	private final long[] bounds;
+	private final AtomicLongArray boundCounts;
+
+	/**
+	 * @param bounds bounds, in microseconds and in ascending order, {@link #getCountAtOrBelow(long)} is exact at
+	 */
+	public LatencyHistogram(final long... bounds) {
+		this.bounds = bounds.clone();
+		this.boundCounts = new AtomicLongArray(bounds.length);
+	}
+
+	/**
+	 * Records a latency.
+	 *
+	 * @param micros latency in microseconds; negative values are recorded as 0
+	 */
+	public void record(final long micros) {
+
+		long value = Math.max(0L, micros);
+		counts.incrementAndGet(bucketOf(value));
+		int bound = Arrays.binarySearch(bounds, value);
+		if(bound < 0)
+			bound = -bound - 1;
+		if(bound < bounds.length)
+			boundCounts.incrementAndGet(bound);
+		count.incrementAndGet();
+		sum.addAndGet(value);
+
+		long current;
+		while(value > (current = max.get()) && !max.compareAndSet(current, value))
+			;
+	}
+
+	/**
+	 * @return number of latencies recorded
+	 */
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * @return sum of the latencies recorded, in microseconds
+	 */
+	public long getSum() {
+		return sum.get();
+	}
+
+	/**
+	 * @return largest latency recorded, in microseconds, or 0 if none was
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * @return mean of the latencies recorded, in microseconds, or 0 if none was
+	 */
+	public long getMean() {
+		long n = count.get();
+		return (n > 0) ? sum.get() / n : 0L;
+	}
+
+	/**
+	 * Returns the latency at a percentile: the upper bound of the bucket holding it, never
+	 * more than the largest latency recorded.
+	 *
+	 * @param percentile percentile, from 0 to 100
+	 * @return latency in microseconds, or 0 if none was recorded
+	 */
+	public long getPercentile(final double percentile) {
+
+		long n = 0L;
+		long[] snapshot = new long[BUCKETS];
+		for(int i = 0; i < BUCKETS; i++){
+			snapshot[i] = counts.get(i);
+			n += snapshot[i];
+		}
+		if(n == 0)
+			return 0L;
+
+		long rank = Math.max(1L, (long)Math.ceil(Math.min(100.0, Math.max(0.0, percentile)) / 100.0 * n));
+		long seen = 0L;
+		for(int i = 0; i < BUCKETS; i++){
+			seen += snapshot[i];
+			if(seen >= rank)
+				return Math.min(upperBoundOf(i), max.get());
+		}
+		return max.get();
+	}
+
+	/**
+	 * @return bounds, in microseconds, the histogram counts latencies against exactly
+	 */
+	public long[] getBounds() {
+		return bounds.clone();
+	}
+
+	/**
+	 * Returns the number of latencies recorded at or below a bound.  The count is exact for
+	 * the bounds the histogram was created with.  Otherwise latencies are only known to the
+	 * precision of their bucket, so the bound is rounded down to the upper bound of the
+	 * bucket holding it.
+	 *
+	 * @param micros bound, in microseconds
+	 * @return number of latencies at or below the bound
+	 */
+	public long getCountAtOrBelow(final long micros) {
+
+		if(micros < 0)
+			return 0L;
+
+		int bound = Arrays.binarySearch(bounds, micros);
+		if(bound >= 0){
+			long n = 0L;
+			for(int i = 0; i <= bound; i++)
+				n += boundCounts.get(i);
+			return n;
+		}
+
+		int last = bucketOf(micros);
+		if(upperBoundOf(last) > micros)
+			last--;
+
+		long n = 0L;
+		for(int i = 0; i <= last; i++)
+			n += counts.get(i);
+		return n;
+	}
+
+	/**
+	 * Clears every latency recorded.
+	 */
+	public void reset() {
+		for(int i = 0; i < BUCKETS; i++)
+			counts.set(i, 0L);
+		for(int i = 0; i < bounds.length; i++)
+			boundCounts.set(i, 0L);
+		count.set(0L);
+		sum.set(0L);
+		max.set(0L);
+	}
+
+	private static int bucketOf(final long value) {
+
+		if(value < SUB_BUCKETS)
+			return (int)value;
+
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		if(exponent > MAX_EXPONENT)
+			return BUCKETS - 1;
+
+		int sub = (int)(value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * @return largest value held by a bucket
+	 */
+	private static long upperBoundOf(final int bucket) {
+
+		if(bucket < SUB_BUCKETS)
+			return bucket;
+
+		int exponent = (bucket - SUB_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS;
+		int sub = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+		long width = 1L << (exponent - SUB_BUCKET_BITS);
+		return (1L << exponent) + (sub + 1) * width - 1;
+	}
+}
@@ -0,0 +1,195 @@
+/*
+ *
+ * Copyright (c) 2026, the Reviewboard plugin contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), the rights
+ * to use, copy, modify, merge, publish, distribute, and to permit persons to
+ * whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.twelvegm.hudson.plugin.reviewboard;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+
+/**
+ * Pulls one field out of every item of a list returned by Reviewboard, such as the
+ * name of every group in a group query, straight from the response stream.  Only the
+ * status, the paging information and the requested field are kept; everything else in
+ * the response is skipped as it is read, so a large list is never held in memory as a whole.
+ *
+ * Responses that need more than one field should be parsed into a JSONObject instead.
+ */
+final class ListResponseParser {
+
+	// Parsers created by the factory are not thread-safe, but the factory itself is.
+	// The response stream belongs to the HTTP method, which releases it, so parsers leave it open.
+	private static final JsonFactory FACTORY = new JsonFactory();
+	static {
+		FACTORY.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+	}
+
+	private final String listKey;
+	private final String fieldKey;
+
+	/**
+	 * @param listKey key of the list in the response.  Ex: groups
+	 * @param fieldKey key of the field to extract from each item in the list.  Ex: name
+	 */
+	ListResponseParser(final String listKey, final String fieldKey) {
+		this.listKey = listKey;
+		this.fieldKey = fieldKey;
+	}
+
+	/**
+	 * The parts of a list response other than the list itself.
+	 */
+	static final class Page {
+
+		private String stat;
+		private int totalResults = -1;
+		private String next;
+		private int statusCode;
+
+		/**
+		 * @return value of the response's "stat" field, or null if it has none
+		 */
+		String getStat() {
+			return stat;
+		}
+
+		/**
+		 * @return true if Reviewboard reported the request as successful
+		 */
+		boolean isOk() {
+			return stat != null && "ok".equalsIgnoreCase(stat.trim());
+		}
+
+		/**
+		 * @return total number of items across every page, or -1 if Reviewboard didn't say (pre-1.5)
+		 */
+		int getTotalResults() {
+			return totalResults;
+		}
+
+		/**
+		 * @return URL of the next page, or null if this is the last page or Reviewboard didn't say (pre-1.5)
+		 */
+		String getNext() {
+			return next;
+		}
+
+		/**
+		 * @return HTTP status code of the response
+		 */
+		int getStatusCode() {
+			return statusCode;
+		}
+
+		void setStatusCode(final int statusCode) {
+			this.statusCode = statusCode;
+		}
+	}
+
+	/**
+	 * Reads a response, adding the field of every item in the list to the values
+	 * collection.  The stream is not closed.
+	 *
+	 * @param in response body
+	 * @param values collection extracted values are added to
+	 * @return status, total size and next page link of the response
+	 * @throws IOException if the stream can't be read or doesn't contain a JSON object
+	 */
+	Page parse(final InputStream in, final Collection<String> values) throws IOException {
+
+		Page page = new Page();
+		JsonParser parser = FACTORY.createJsonParser(in);
+		try{
+			if(parser.nextToken() != JsonToken.START_OBJECT)
+				throw new IOException("Reviewboard response is not a JSON object.");
+
+			while(parser.nextToken() == JsonToken.FIELD_NAME){
+				String name = parser.getCurrentName();
+				JsonToken token = parser.nextToken();
+
+				if("stat".equals(name) && token == JsonToken.VALUE_STRING)
+					page.stat = parser.getText();
+				else if("total_results".equals(name) && token == JsonToken.VALUE_NUMBER_INT)
+					page.totalResults = parser.getIntValue();
+				else if("links".equals(name) && token == JsonToken.START_OBJECT)
+					page.next = this.parseNextLink(parser);
+				else if(listKey.equals(name) && token == JsonToken.START_ARRAY)
+					this.parseList(parser, values);
+				else
+					parser.skipChildren();
+			}
+		}finally{
+			parser.close();
+		}
+
+		return page;
+	}
+
+	// Reads the href of links.next, if there is one.  Ex: "links": {"next": {"href": "...", "method": "GET"}}
+	private String parseNextLink(final JsonParser parser) throws IOException {
+
+		String href = null;
+		while(parser.nextToken() == JsonToken.FIELD_NAME){
+			String name = parser.getCurrentName();
+			JsonToken token = parser.nextToken();
+
+			if(!"next".equals(name) || token != JsonToken.START_OBJECT){
+				parser.skipChildren();
+				continue;
+			}
+
+			while(parser.nextToken() == JsonToken.FIELD_NAME){
+				String linkName = parser.getCurrentName();
+				token = parser.nextToken();
+				if("href".equals(linkName) && token == JsonToken.VALUE_STRING)
+					href = parser.getText();
+				else
+					parser.skipChildren();
+			}
+		}
+
+		return href;
+	}
+
+	private void parseList(final JsonParser parser, final Collection<String> values) throws IOException {
+
+		JsonToken token;
+		while((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null){
+			if(token != JsonToken.START_OBJECT){
+				parser.skipChildren();
+				continue;
+			}
+
+			while(parser.nextToken() == JsonToken.FIELD_NAME){
+				String name = parser.getCurrentName();
+				token = parser.nextToken();
+
+				if(fieldKey.equals(name) && token.isScalarValue() && token != JsonToken.VALUE_NULL)
+					values.add(parser.getText());
+				else
+					parser.skipChildren();
+			}
+		}
+	}
+}
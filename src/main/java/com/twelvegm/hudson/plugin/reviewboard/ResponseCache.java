@@ -0,0 +1,166 @@
+/*
+ *
+ * Copyright (c) 2026, the Reviewboard plugin contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), the rights
+ * to use, copy, modify, merge, publish, distribute, and to permit persons to
+ * whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.twelvegm.hudson.plugin.reviewboard;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.httpclient.Header;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.httpclient.URIException;
+import org.apache.commons.httpclient.methods.GetMethod;
+
+/**
+ * Cache of responses to GET requests, revalidated with Reviewboard on every use.
+ * Cached responses are never served without asking Reviewboard first; instead the
+ * request is made conditional on the cached response's ETag and Last-Modified headers,
+ * and Reviewboard answers 304 Not Modified without a body if it hasn't changed.
+ *
+ * The cache holds a bounded number of responses, evicting the least recently used one
+ * when full.  Responses without an ETag or Last-Modified header, or larger than
+ * {@link #MAX_ENTRY_SIZE}, can't be revalidated cheaply and are not cached.
+ */
+final class ResponseCache {
+
+	// Largest response body that is cached, in bytes.
+	static final int MAX_ENTRY_SIZE = 1024 * 1024;
+
+	private final Map<String, Entry> entries;
+
+	/**
+	 * A cached response.
+	 */
+	static final class Entry {
+
+		private final String etag;
+		private final String lastModified;
+		private final byte[] body;
+
+		private Entry(final String etag, final String lastModified, final byte[] body) {
+			this.etag = etag;
+			this.lastModified = lastModified;
+			this.body = body;
+		}
+	}
+
+	/**
+	 * @param maxEntries maximum number of responses held
+	 */
+	ResponseCache(final int maxEntries) {
+		this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, ResponseCache.Entry> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Makes a GET request conditional on the response cached for its URL, if any.
+	 * Must be called before the request is executed.
+	 *
+	 * @param get request to make conditional
+	 * @return cached response, or null if there is none
+	 * @throws URIException
+	 */
+	Entry prepare(final GetMethod get) throws URIException {
+
+		Entry cached;
+		synchronized(entries){
+			cached = entries.get(key(get));
+		}
+
+		if(cached != null){
+			if(cached.etag != null)
+				get.setRequestHeader("If-None-Match", cached.etag);
+			if(cached.lastModified != null)
+				get.setRequestHeader("If-Modified-Since", cached.lastModified);
+		}
+
+		return cached;
+	}
+
+	/**
+	 * @param get executed request
+	 * @param cached cached response returned by {@link #prepare(GetMethod)}
+	 * @return true if Reviewboard confirmed the cached response is still current
+	 */
+	static boolean isNotModified(final GetMethod get, final Entry cached) {
+		return cached != null && get.getStatusCode() == HttpStatus.SC_NOT_MODIFIED;
+	}
+
+	/**
+	 * Returns the body of the response to an executed GET request: the cached body if
+	 * Reviewboard reports it unchanged, otherwise the new body, which is cached if it can be.
+	 *
+	 * @param get executed request
+	 * @param cached cached response returned by {@link #prepare(GetMethod)}
+	 * @return response body, or null if there is none
+	 * @throws IOException
+	 */
+	InputStream body(final GetMethod get, final Entry cached) throws IOException {
+
+		if(isNotModified(get, cached))
+			return new ByteArrayInputStream(cached.body);
+
+		InputStream in = get.getResponseBodyAsStream();
+		Header etag = get.getResponseHeader("ETag");
+		Header lastModified = get.getResponseHeader("Last-Modified");
+		if(in == null || get.getStatusCode() != HttpStatus.SC_OK || (etag == null && lastModified == null))
+			return in;
+
+		long length = get.getResponseContentLength();
+		if(length > MAX_ENTRY_SIZE)
+			return in;
+
+		// Read up to the size limit; anything larger is handed back without being cached
+		ByteArrayOutputStream out = new ByteArrayOutputStream((length > 0) ? (int)length : 8192);
+		byte[] buffer = new byte[8192];
+		int read;
+		while((read = in.read(buffer)) != -1){
+			out.write(buffer, 0, read);
+			if(out.size() > MAX_ENTRY_SIZE)
+				return new SequenceInputStream(new ByteArrayInputStream(out.toByteArray()), in);
+		}
+
+		byte[] body = out.toByteArray();
+		Entry entry = new Entry(
+				(etag != null) ? etag.getValue() : null,
+				(lastModified != null) ? lastModified.getValue() : null,
+				body);
+		synchronized(entries){
+			entries.put(key(get), entry);
+		}
+
+		return new ByteArrayInputStream(body);
+	}
+
+	private static String key(final GetMethod get) throws URIException {
+		return get.getURI().toString();
+	}
+}
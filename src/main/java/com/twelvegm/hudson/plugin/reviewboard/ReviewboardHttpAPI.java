@@ -21,26 +21,53 @@
 
 package com.twelvegm.hudson.plugin.reviewboard;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import net.sf.json.JSONException;
 import net.sf.json.JSONObject;
 
+import org.apache.commons.httpclient.DefaultHttpMethodRetryHandler;
 import org.apache.commons.httpclient.HttpClient;
 import org.apache.commons.httpclient.HttpMethod;
+import org.apache.commons.httpclient.HttpMethodBase;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
 import org.apache.commons.httpclient.NameValuePair;
 import org.apache.commons.httpclient.URI;
 import org.apache.commons.httpclient.URIException;
 import org.apache.commons.httpclient.UsernamePasswordCredentials;
 import org.apache.commons.httpclient.auth.AuthScope;
+import org.apache.commons.httpclient.methods.EntityEnclosingMethod;
 import org.apache.commons.httpclient.methods.GetMethod;
 import org.apache.commons.httpclient.methods.PostMethod;
+import org.apache.commons.httpclient.methods.PutMethod;
+import org.apache.commons.httpclient.methods.StringRequestEntity;
+import org.apache.commons.httpclient.methods.multipart.ByteArrayPartSource;
+import org.apache.commons.httpclient.methods.multipart.FilePart;
+import org.apache.commons.httpclient.methods.multipart.MultipartRequestEntity;
+import org.apache.commons.httpclient.methods.multipart.Part;
+import org.apache.commons.httpclient.methods.multipart.StringPart;
 import org.apache.commons.httpclient.params.HttpClientParams;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
 import org.apache.commons.httpclient.params.HttpMethodParams;
+import org.apache.commons.httpclient.util.EncodingUtil;
+import org.apache.commons.httpclient.util.IdleConnectionTimeoutThread;
 
 /**
  * Creates an instance of the Reviewboard API.  Calls are currently executed against
@@ -64,10 +91,15 @@ import org.apache.commons.httpclient.params.HttpMethodParams;
  *  7) Get reviewboard users matching a query.
  *  8) Get reviewboard groups matching a query.
  *  9) Supports Perforce SCM
+ * 10) Update every field of a draft, and publish it, in a single call (1.5+, falls back on older versions).
+ *  
+ * 11) Create a new review request and upload a diff to it without post-review (1.5+).
+ * 12) Get every reviewboard user and group, a page at a time (1.5+).
+ * 13) Retry failed calls where it's safe to, and stop calling Reviewboard for a while when it's down.
+ * 14) Record the latency, status and size of every call, per endpoint (see {@link ApiMetrics}).
  *  
  * What this DOESN'T currently do:
- *  1) Create a new review request. This API currently assumes a review request already exists,
- *     having been created through the web interface or post-review (for pre/post-commits).
+ *  1) Generate diffs.  Callers of {@link #submitReview} must supply the diff themselves.
  *  2) Set the branch field of a review request (haven't had a need for it yet).
  *  3) Get a complete review request.
  *  4) Password encryption/decryption.  It's currently clear-text.
@@ -127,6 +159,7 @@ public class ReviewboardHttpAPI {
 	private static final String RB_GET_GROUP_LIMIT_PARAM = "limit";
 	private static final String RB_GET_GROUP_TIMESTAMP_PARAM = "timestamp";
 	private static final String RB_GET_GROUP_DISPLAYNAME_PARAM = "displayname";
+	private static final ListResponseParser GROUP_LIST_PARSER = new ListResponseParser("groups", "name");
 	
 	// API URL for setting the change description of a pending unpublished review request. Appended to base URL.
 	// Param names used for setting the change description.
@@ -140,6 +173,43 @@ public class ReviewboardHttpAPI {
 	private static final String RB_GET_REVIEWERS_LIMIT_PARAM = "limit";
 	private static final String RB_GET_REVIEWERS_TIMESTAMP_PARAM = "timestamp";
 	private static final String RB_GET_REVIEWERS_FULLNAME_PARAM = "fullname";
+	private static final ListResponseParser USER_LIST_PARSER = new ListResponseParser("users", "username");
+	
+	// API URLs (Reviewboard 1.5+) of the user and group list resources. Appended to base URL.
+	// Param names used for paging through list resources.
+	private static final String RB_USERS_RESOURCE_PATH = "/api/users/";
+	private static final String RB_GROUPS_RESOURCE_PATH = "/api/groups/";
+	private static final String RB_LIST_START_PARAM = "start";
+	private static final String RB_LIST_MAX_RESULTS_PARAM = "max-results";
+	
+	// API URL (Reviewboard 1.5+) of the root resource.  Appended to base URL.  Older versions don't have it.
+	private static final String RB_ROOT_RESOURCE_PATH = "/api/";
+	
+	// API URL (Reviewboard 1.5+) of the draft resource of a review request. Appended to base URL.
+	// All draft fields, and publishing, can be set with a single PUT to this resource.
+	// Param names used for updating the draft.
+	private static final String RB_DRAFT_RESOURCE_PATH = "/api/review-requests/%REVIEW_ID%/draft/";
+	private static final String RB_DRAFT_REVIEWERS_PARAM = "target_people";
+	private static final String RB_DRAFT_GROUPS_PARAM = "target_groups";
+	private static final String RB_DRAFT_BUGS_PARAM = "bugs_closed";
+	private static final String RB_DRAFT_CHANGE_DESCR_PARAM = "changedescription";
+	private static final String RB_DRAFT_PUBLIC_PARAM = "public";
+	
+	// API URL (Reviewboard 1.5+) of the review request list resource. Appended to base URL.
+	// Param names used for creating a new review request, and the keys of the response.
+	private static final String RB_REVIEW_REQUESTS_RESOURCE_PATH = "/api/review-requests/";
+	private static final String RB_REVIEW_REQUESTS_REPOSITORY_PARAM = "repository";
+	private static final String RB_REVIEW_REQUESTS_CHANGENUM_PARAM = "changenum";
+	private static final String RB_REVIEW_REQUESTS_SUBMIT_AS_PARAM = "submit_as";
+	private static final String RB_REVIEW_REQUEST_JSON_KEY = "review_request";
+	private static final String RB_REVIEW_REQUEST_ID_JSON_KEY = "id";
+	
+	// API URL (Reviewboard 1.5+) of the diff list resource of a review request. Appended to base URL.
+	// Param names used for uploading a new diff.
+	private static final String RB_DIFFS_RESOURCE_PATH = "/api/review-requests/%REVIEW_ID%/diffs/";
+	private static final String RB_DIFFS_PATH_PARAM = "path";
+	private static final String RB_DIFFS_BASEDIR_PARAM = "basedir";
+	private static final String RB_DIFFS_FILE_NAME = "changelist.diff";
 	
 	// String that maps to the key in a Reviewboard JSON response to obtain the status of the request.
 	private static final String RB_JSON_STATUS_KEY = "stat";
@@ -148,6 +218,39 @@ public class ReviewboardHttpAPI {
 	// the API.  Another instance of the API may have different authentication credentials, so it can't
 	// be static.
 	private final HttpClient client;
+	
+	// Pool of keep-alive connections shared by every thread using this instance of the API, and the
+	// thread that closes connections in it that have been idle for too long.
+	private final MultiThreadedHttpConnectionManager connectionManager;
+	private final IdleConnectionTimeoutThread idleConnectionEvictor;
+	
+	// Cleared the first time Reviewboard reports that the draft resource isn't supported (pre-1.5),
+	// after which draft updates go straight to the older per-field endpoints.
+	private volatile boolean draftResourceAvailable = true;
+	
+	// Whether Reviewboard has the root resource of the 1.5+ API, or null until it has been probed.
+	private volatile Boolean rootResourceAvailable = null;
+	
+	// Cleared the first time Reviewboard reports that the user and group list resources don't exist
+	// (pre-1.5), after which complete listings come from the older query endpoints.
+	private volatile boolean listResourcesAvailable = true;
+	
+	// Responses to GET requests, revalidated with Reviewboard before reuse.  Null if caching is disabled.
+	private final ResponseCache responseCache;
+	
+	// Fails calls immediately while Reviewboard appears to be down.  Shared by every thread using
+	// this instance of the API, and the number of times a failed call is retried.
+	private final CircuitBreaker circuitBreaker;
+	private final int maxRetries;
+	
+	// Latency, status and size of every call, per endpoint, and the path of the base URL, which
+	// is stripped from the path of every call to name its endpoint.
+	private final ApiMetrics metrics;
+	private final String basePath;
+	
+	// Bounds of the random wait between retries, in milliseconds.  See backoff(int).
+	private static final long RETRY_BASE_DELAY = 500L;
+	private static final long RETRY_MAX_DELAY = 10000L;
 
 	// Status codes returned from Reviewboard in the JSON response body in the "stat" field.
 	private static enum ReviewboardStatusCode{
@@ -158,6 +261,7 @@ public class ReviewboardHttpAPI {
 	/**
 	 * Creates a new ReviewboardHttpAPI object used to connect to Reviewboard and 
 	 * execute commands.  Tested with v1.5 beta 2.  All parameters are required.
+	 * Connections are pooled using the default {@link ConnectionSettings}.
 	 * 
 	 * User must have the following permissions in Reviewboard:
 	 * Can add default reviewer
@@ -174,17 +278,82 @@ public class ReviewboardHttpAPI {
 	 * @throws URIException 
 	 */
 	public ReviewboardHttpAPI(final String username, final String password, final String baseUrl) throws URIException, NullPointerException {
+		this(username, password, baseUrl, new ConnectionSettings());
+	}
+	
+	/**
+	 * Creates a new ReviewboardHttpAPI object used to connect to Reviewboard and 
+	 * execute commands.  Connections are kept alive in a pool sized by the supplied
+	 * settings, so a single instance can be shared by every executor.  Call
+	 * {@link #shutdown()} once the instance is no longer used to close its connections.
+	 * 
+	 * @param username Username of account that has access rights to Reviewboard
+	 * @param password Password of Username
+	 * @param baseUrl Base URL at which Reviewboard is running
+	 * @param settings Connection pool settings
+	 * @throws NullPointerException 
+	 * @throws URIException 
+	 */
+	public ReviewboardHttpAPI(final String username, final String password, final String baseUrl, final ConnectionSettings settings) throws URIException, NullPointerException {
+		this(username, password, baseUrl, settings, new ApiMetrics());
+	}
+	
+	/**
+	 * Creates a new ReviewboardHttpAPI object used to connect to Reviewboard and 
+	 * execute commands, recording its calls in the supplied metrics.  Metrics can be
+	 * shared with other instances, so they survive replacing an instance with a newly
+	 * configured one.
+	 * 
+	 * @param username Username of account that has access rights to Reviewboard
+	 * @param password Password of Username
+	 * @param baseUrl Base URL at which Reviewboard is running
+	 * @param settings Connection pool settings
+	 * @param metrics Metrics the calls made by this instance are recorded in
+	 * @throws NullPointerException 
+	 * @throws URIException 
+	 */
+	public ReviewboardHttpAPI(final String username, final String password, final String baseUrl, final ConnectionSettings settings, final ApiMetrics metrics) throws URIException, NullPointerException {
 		this.username = username;
 		this.password = password;
 		this.baseUrl = baseUrl;
 		
 		this.baseUri = new URI(baseUrl, false);
 		
-		this.client = new HttpClient();
+		HttpConnectionManagerParams managerParams = new HttpConnectionManagerParams();
+		managerParams.setMaxTotalConnections(settings.getMaxTotalConnections());
+		managerParams.setDefaultMaxConnectionsPerHost(settings.getMaxConnectionsPerHost());
+		managerParams.setConnectionTimeout(settings.getConnectionTimeout());
+		managerParams.setSoTimeout(settings.getSoTimeout());
+		managerParams.setStaleCheckingEnabled(true);
+		
+		this.connectionManager = new MultiThreadedHttpConnectionManager();
+		this.connectionManager.setParams(managerParams);
+		
+		// Closes pooled connections that have sat unused longer than the idle timeout
+		this.idleConnectionEvictor = new IdleConnectionTimeoutThread();
+		this.idleConnectionEvictor.setName("Reviewboard idle connection evictor");
+		this.idleConnectionEvictor.setConnectionTimeout(settings.getIdleConnectionTimeout());
+		this.idleConnectionEvictor.setTimeoutInterval(Math.max(1000, settings.getIdleConnectionTimeout() / 2));
+		this.idleConnectionEvictor.addConnectionManager(this.connectionManager);
+		this.idleConnectionEvictor.start();
 		
 		HttpClientParams clientParams = new HttpClientParams();
-		clientParams.setSoTimeout(300000); // 5 minutes
-		this.client.setParams(clientParams);
+		clientParams.setSoTimeout(settings.getSoTimeout());
+		clientParams.setConnectionManagerTimeout(settings.getConnectionTimeout());
+		clientParams.setAuthenticationPreemptive(settings.isPreemptiveAuthentication());
+		
+		// Retries are handled by executeMethod, which knows which calls are safe to retry
+		clientParams.setParameter(HttpMethodParams.RETRY_HANDLER, new DefaultHttpMethodRetryHandler(0, false));
+		
+		this.client = new HttpClient(clientParams, this.connectionManager);
+		
+		this.responseCache = (settings.getResponseCacheSize() > 0) ? new ResponseCache(settings.getResponseCacheSize()) : null;
+		this.circuitBreaker = new CircuitBreaker(settings.getCircuitBreakerThreshold(), settings.getCircuitBreakerInterval());
+		this.maxRetries = settings.getMaxRetries();
+		
+		this.metrics = metrics;
+		String path = this.baseUri.getPath();
+		this.basePath = (path == null) ? "" : trimUrl(path);
 		
 		this.client.getState().setCredentials(
 				new AuthScope(baseUri.getHost(), baseUri.getPort(), RB_AUTH_REALM), 
@@ -192,6 +361,24 @@ public class ReviewboardHttpAPI {
 			);
 	}
 	
+	/**
+	 * Closes all pooled connections and stops the idle connection evictor.  The
+	 * instance must not be used after it has been shut down.
+	 */
+	public void shutdown(){
+		this.idleConnectionEvictor.shutdown();
+		this.connectionManager.shutdown();
+	}
+	
+	/**
+	 * Returns the metrics the calls made by this instance are recorded in.
+	 * 
+	 * @return metrics of the calls to Reviewboard
+	 */
+	public ApiMetrics getMetrics(){
+		return this.metrics;
+	}
+	
 	/**
 	 * Trims off a trailing "/" from a URL String
 	 * 
@@ -263,36 +450,175 @@ public class ReviewboardHttpAPI {
 	}
 	
 	/**
-	 * Executes a GET method against Reviewboard.  This method is used for anything
-	 * that queries information from Reviewboard.
+	 * Executes a PUT method against Reviewboard.  The params are sent form-encoded
+	 * in the body of the request.  This method is used for anything that changes a
+	 * resource of the Reviewboard 1.5+ API.  The status code of the response can be
+	 * read from the method once this returns.
 	 * 
-	 * @param uri URI to execute the GET against
-	 * @param params Params to pass in the querystring
-	 * @return JSONObject containing the parsed response body of a valid response, null otherwise.
-	 * @throws URIException
+	 * @param put PUT method, already configured with the URI, to execute
+	 * @param params Params to send in the body
+	 * @return true if successful, false if otherwise
 	 */
-	private JSONObject executeGetApiCall(final URI uri, final NameValuePair[] params) throws URIException{
+	private boolean executePutApiCall(final PutMethod put, final NameValuePair[] params){
 		
-		JSONObject response = null;
-		GetMethod get = new GetMethod(uri.getURI());
-
-		HttpMethodParams methodParams = new HttpMethodParams();
-		get.setQueryString(params);
-		get.setParams(methodParams);
+		try {
+			put.setRequestEntity(new StringRequestEntity(EncodingUtil.formUrlEncode(params, "UTF-8"), "application/x-www-form-urlencoded", "UTF-8"));
+		} catch (UnsupportedEncodingException e) {
+			e.printStackTrace();
+			return false;
+		}
 		
-		response = executeApiCall(JSONObject.class, get);
-		if(response != null){
+		Boolean status = executeApiCall(Boolean.class, put);
+		
+		return (status != null && status.booleanValue());
+	}
+	
+	/**
+	 * Executes an HTTP method, retrying it if it fails and it's safe to do so.  All calls to
+	 * Reviewboard go through here.
+	 * 
+	 * A call is retried if Reviewboard couldn't be reached or answered 502, 503 or 504, up to
+	 * the configured number of retries, waiting a random time between retries that grows
+	 * exponentially with each one.  POSTs create things in Reviewboard, so they're only retried
+	 * if the request never left; GETs and PUTs can be repeated without changing the outcome.
+	 * 
+	 * Every attempt is recorded in the metrics, and by the circuit breaker: as a failure if
+	 * Reviewboard couldn't be reached or answered 502, 503 or 504, as a success otherwise.
+	 * While the breaker is open, this fails immediately without calling Reviewboard.
+	 * 
+	 * @param method HTTP method to execute
+	 * @return HTTP status code of the response
+	 * @throws IOException if Reviewboard couldn't be reached, or the circuit breaker is open
+	 */
+	private int executeMethod(final HttpMethod method) throws IOException{
+		
+		boolean idempotent = !(method instanceof PostMethod);
+		String endpoint = this.endpointOf(method);
+		
+		for(int attempt = 0; ; attempt++){
+			try{
+				circuitBreaker.acquire();
+			}catch(CircuitBreaker.OpenException e){
+				metrics.recordRejected(endpoint);
+				throw e;
+			}
 			
-			ReviewboardStatusCode status = null;
-			status = resolveResponseStatus(response);
+			int statusCode = ApiMetrics.NO_RESPONSE;
+			IOException failure = null;
+			boolean unavailable = true;
+			long start = System.nanoTime();
+			try{
+				statusCode = client.executeMethod(method);
+				unavailable = statusCode == HttpStatus.SC_BAD_GATEWAY || statusCode == HttpStatus.SC_SERVICE_UNAVAILABLE || statusCode == HttpStatus.SC_GATEWAY_TIMEOUT;
+			}catch(IOException e){
+				failure = e;
+			}finally{
+				// Recorded whatever went wrong, or a failed probe would leave the breaker half-open for good
+				if(unavailable)
+					circuitBreaker.recordFailure();
+				else
+					circuitBreaker.recordSuccess();
+			}
 			
-			if(response == null || !ReviewboardStatusCode.OK.equals(status)){
-				response = null;
+			if(failure != null){
+				metrics.recordRequest(endpoint, System.nanoTime() - start, ApiMetrics.NO_RESPONSE, requestContentLength(method), -1L);
+				boolean safe = idempotent || !method.isRequestSent();
+				if(attempt >= maxRetries || !safe)
+					throw failure;
+			}else{
+				metrics.recordRequest(endpoint, System.nanoTime() - start, statusCode, requestContentLength(method), responseContentLength(method));
+				if(!unavailable || attempt >= maxRetries || !idempotent)
+					return statusCode;
 			}
+			
+			method.releaseConnection();
+			backoff(attempt);
 		}
+	}
+	
+	/**
+	 * Names the endpoint a method calls, for the metrics: the HTTP method and the path of the
+	 * call relative to the base URL, with every numeric path segment, such as a review request
+	 * ID, replaced by {id}.
+	 * 
+	 * @param method HTTP method
+	 * @return name of the endpoint, such as "PUT /api/review-requests/{id}/draft/"
+	 */
+	private String endpointOf(final HttpMethod method){
 		
-		return response;
-	}	
+		String path = method.getPath();
+		if(path == null)
+			path = "/";
+		if(!basePath.isEmpty() && path.startsWith(basePath))
+			path = path.substring(basePath.length());
+		
+		StringBuilder endpoint = new StringBuilder(method.getName().length() + path.length() + 1);
+		endpoint.append(method.getName()).append(' ');
+		int start = 0;
+		while(start < path.length()){
+			int end = path.indexOf('/', start);
+			if(end < 0)
+				end = path.length();
+			
+			boolean numeric = end > start;
+			for(int i = start; i < end && numeric; i++)
+				numeric = Character.isDigit(path.charAt(i));
+			
+			endpoint.append(numeric ? "{id}" : path.substring(start, end));
+			if(end < path.length())
+				endpoint.append('/');
+			start = end + 1;
+		}
+		
+		return endpoint.toString();
+	}
+	
+	/**
+	 * @return length of the body of a request, or -1 if it has none or its length isn't known
+	 */
+	private static long requestContentLength(final HttpMethod method){
+		if(method instanceof EntityEnclosingMethod && ((EntityEnclosingMethod)method).getRequestEntity() != null)
+			return ((EntityEnclosingMethod)method).getRequestEntity().getContentLength();
+		return -1L;
+	}
+	
+	/**
+	 * @return length of the body of a response, as reported by its Content-Length, or -1 if it isn't known
+	 */
+	private static long responseContentLength(final HttpMethod method){
+		if(method instanceof HttpMethodBase)
+			return ((HttpMethodBase)method).getResponseContentLength();
+		return -1L;
+	}
+	
+	/**
+	 * Records the "stat" of a response in the metrics.
+	 * 
+	 * @param method HTTP method the response is to
+	 * @param response parsed response body, or null if it wasn't JSON
+	 */
+	private void recordStat(final HttpMethod method, final JSONObject response){
+		metrics.recordStat(this.endpointOf(method), (response != null) ? response.optString(RB_JSON_STATUS_KEY, null) : null);
+	}
+	
+	/**
+	 * Waits before retrying a call: a random time of up to {@link #RETRY_BASE_DELAY} doubled
+	 * for every previous retry, capped at {@link #RETRY_MAX_DELAY}.  The randomness keeps
+	 * callers that failed together from retrying together.
+	 * 
+	 * @param attempt number of the attempt that failed, starting at 0
+	 * @throws InterruptedIOException if interrupted while waiting
+	 */
+	private static void backoff(final int attempt) throws InterruptedIOException{
+		
+		long delay = Math.min(RETRY_MAX_DELAY, RETRY_BASE_DELAY << Math.min(attempt, 16));
+		try{
+			Thread.sleep((long)(Math.random() * delay));
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting to retry a call to Reviewboard.");
+		}
+	}
 	
 	/**
 	 * Executes an arbitrary HTTP method.  HTTP Method should be pre-configured with
@@ -315,10 +641,12 @@ public class ReviewboardHttpAPI {
 
 			method.setDoAuthentication( true );
 
-			int statusCode = client.executeMethod(method);
+			int statusCode = this.executeMethod(method);
 
 			if(statusCode >= 200 && statusCode < 400){
-				JSONObject jsonResponse = parseStringToJSONObject(method.getResponseBodyAsString());
+				String body = method.getResponseBodyAsString();
+				JSONObject jsonResponse = parseStringToJSONObject(body);
+				this.recordStat(method, jsonResponse);
 				
 				ReviewboardStatusCode status = null;
 				if(jsonResponse != null)
@@ -326,7 +654,7 @@ public class ReviewboardHttpAPI {
 				
 				if(jsonResponse != null && ReviewboardStatusCode.OK.equals(status)){
 					if(returnType == String.class)
-						returnValue = (T)method.getResponseBodyAsString();
+						returnValue = (T)body;
 					else if(returnType == Boolean.class)
 						returnValue = (T)Boolean.TRUE;
 					else if(returnType == JSONObject.class)
@@ -342,6 +670,149 @@ public class ReviewboardHttpAPI {
 		return returnValue;
 	}
 	
+	/**
+	 * Executes a GET method against Reviewboard that returns a list, and extracts a
+	 * single field from every item in the list as the response is read.  The response
+	 * is never held in memory as a whole, which matters for large listings such as every
+	 * user.  Every query of Reviewboard goes through here, and through the response cache,
+	 * if it is enabled.
+	 * 
+	 * @param url URL to execute the GET against
+	 * @param params Params to pass in the querystring, or null if they're already part of the URL
+	 * @param parser parser extracting the field from the list in the response
+	 * @param values collection the extracted values are added to, only if the response's status is OK
+	 * @return status, paging information and HTTP status code of the response, or null if it couldn't be read
+	 */
+	private ListResponseParser.Page executeStreamingGetApiCall(final String url, final NameValuePair[] params, final ListResponseParser parser, final Collection<String> values){
+		
+		ListResponseParser.Page page = null;
+		GetMethod get = new GetMethod(url);
+		if(params != null)
+			get.setQueryString(params);
+		
+		try {
+			get.setDoAuthentication( true );
+			
+			ResponseCache.Entry cached = (responseCache != null) ? responseCache.prepare(get) : null;
+			int statusCode = this.executeMethod(get);
+			
+			if(statusCode >= 200 && statusCode < 400){
+				InputStream body = (responseCache != null) ? responseCache.body(get, cached) : get.getResponseBodyAsStream();
+				
+				// Values are collected separately so nothing from a failed response ends up in values
+				List<String> extracted = new ArrayList<String>();
+				if(body != null){
+					page = parser.parse(body, extracted);
+					if(page.isOk())
+						values.addAll(extracted);
+				}
+				metrics.recordStat(this.endpointOf(get), (page != null) ? page.getStat() : null);
+			}
+			
+			if(page == null)
+				page = new ListResponseParser.Page();
+			page.setStatusCode(statusCode);
+		} catch (Exception e) { 
+			e.printStackTrace();
+		} finally {
+			get.releaseConnection();
+		}
+		
+		return page;
+	}
+	
+	/**
+	 * Retrieves every item of a Reviewboard 1.5+ list resource, one page at a time.  The
+	 * first page is read alone, to learn how many items there are.  The remaining pages are
+	 * then either read one after another by following each page's link to the next, or, if
+	 * more than one thread is allowed, requested by offset in parallel.
+	 * 
+	 * @param path path of the list resource.  Appended to base URL.
+	 * @param parser parser extracting the field from each page
+	 * @param pageSize number of items requested per page
+	 * @param threads maximum number of pages requested at the same time
+	 * @return values extracted from every page, or null if the resource doesn't exist (pre-1.5)
+	 * @throws IOException if any page couldn't be read
+	 */
+	private Set<String> getAllFromListResource(final String path, final ListResponseParser parser, final int pageSize, final int threads) throws IOException{
+		
+		final String url = this.createUri(path, null, null).getURI();
+		final int size = Math.max(1, pageSize);
+		
+		Set<String> values = new HashSet<String>();
+		ListResponseParser.Page page = this.executeStreamingGetApiCall(url, listPageParams(0, size), parser, values);
+		
+		if(page != null && (page.getStatusCode() == 404 || page.getStatusCode() == 405 || page.getStatusCode() == 501))
+			return null;
+		checkPage(url, page);
+		
+		if(page.getNext() == null)
+			return values;
+		
+		int total = page.getTotalResults();
+		if(threads <= 1 || total <= size){
+			while(page.getNext() != null){
+				String next = page.getNext();
+				page = this.executeStreamingGetApiCall(next, null, parser, values);
+				checkPage(next, page);
+			}
+			return values;
+		}
+		
+		// Request the remaining pages by offset, since following next links can only be done one page at a time
+		int pages = (total + size - 1) / size;
+		ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, pages - 1), new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "Reviewboard page fetcher #" + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		
+		try{
+			List<Future<Collection<String>>> results = new ArrayList<Future<Collection<String>>>(pages - 1);
+			for(int p = 1; p < pages; p++){
+				final int start = p * size;
+				results.add(pool.submit(new Callable<Collection<String>>() {
+					public Collection<String> call() throws IOException {
+						List<String> pageValues = new ArrayList<String>(size);
+						checkPage(url, executeStreamingGetApiCall(url, listPageParams(start, size), parser, pageValues));
+						return pageValues;
+					}
+				}));
+			}
+			
+			for(Future<Collection<String>> result: results)
+				values.addAll(result.get());
+		}catch(ExecutionException e){
+			if(e.getCause() instanceof IOException)
+				throw (IOException)e.getCause();
+			throw new IOException("Unable to read " + url + " from Reviewboard: " + e.getCause());
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while reading " + url + " from Reviewboard.");
+		}finally{
+			pool.shutdownNow();
+		}
+		
+		return values;
+	}
+	
+	private static NameValuePair[] listPageParams(final int start, final int size){
+		return new NameValuePair[]{
+				new NameValuePair(RB_LIST_START_PARAM, String.valueOf(start)),
+				new NameValuePair(RB_LIST_MAX_RESULTS_PARAM, String.valueOf(size))
+		};
+	}
+	
+	private static void checkPage(final String url, final ListResponseParser.Page page) throws IOException{
+		if(page == null)
+			throw new IOException("Unable to read " + url + " from Reviewboard.");
+		if(!page.isOk())
+			throw new IOException("Error response from Reviewboard for " + url + " (HTTP " + page.getStatusCode() + ", stat " + page.getStat() + ").");
+	}
+	
 	/**
 	 * Converts a JSON string into a JSONObject.
 	 * 
@@ -400,24 +871,21 @@ public class ReviewboardHttpAPI {
 		
 		URI uri = this.createUri(RB_GET_GROUP_PATH, null, null);
 		
-		NameValuePair[] params = new NameValuePair[]{
-				new NameValuePair(RB_GET_GROUP_QUERY_PARAM, query),
-				new NameValuePair(RB_GET_GROUP_LIMIT_PARAM, "150"),
-				new NameValuePair(RB_GET_GROUP_TIMESTAMP_PARAM, String.valueOf((new Date()).getTime())),
-				new NameValuePair(RB_GET_GROUP_DISPLAYNAME_PARAM, "0")
-		};
+		List<NameValuePair> paramList = new ArrayList<NameValuePair>();
+		paramList.add(new NameValuePair(RB_GET_GROUP_QUERY_PARAM, query));
+		paramList.add(new NameValuePair(RB_GET_GROUP_LIMIT_PARAM, "150"));
+		paramList.add(new NameValuePair(RB_GET_GROUP_DISPLAYNAME_PARAM, "0"));
+		
+		// Defeats caching of the response, unless it's cached here and revalidated with Reviewboard
+		if(responseCache == null)
+			paramList.add(new NameValuePair(RB_GET_GROUP_TIMESTAMP_PARAM, String.valueOf((new Date()).getTime())));
+		
+		NameValuePair[] params = paramList.toArray(new NameValuePair[paramList.size()]);
 		
 		try {
-			JSONObject response = this.executeGetApiCall(uri, params);
-			if(response != null){
-				List<Object> jsonGrps = response.getJSONArray("groups");
-				for(Object jsonGrp : jsonGrps){
-					if(jsonGrp instanceof JSONObject)
-						groups.add( ((JSONObject)jsonGrp).getString("name") );
-				}
-			}else{
-				System.out.println("Error response from Reviewboard Group query: " + response);
-			}
+			ListResponseParser.Page page = this.executeStreamingGetApiCall(uri.getURI(), params, GROUP_LIST_PARSER, groups);
+			if(page == null || !page.isOk())
+				System.out.println("Error response from Reviewboard Group query: " + query);
 		} catch (URIException e) {
 			e.printStackTrace();
 		}
@@ -437,24 +905,21 @@ public class ReviewboardHttpAPI {
 		
 		URI uri = this.createUri(RB_GET_REVIEWERS_PATH, null, null);
 		
-		NameValuePair[] params = new NameValuePair[]{
-				new NameValuePair(RB_GET_REVIEWERS_QUERY_PARAM, query),
-				new NameValuePair(RB_GET_REVIEWERS_LIMIT_PARAM, "150"),
-				new NameValuePair(RB_GET_REVIEWERS_TIMESTAMP_PARAM, String.valueOf((new Date()).getTime())),
-				new NameValuePair(RB_GET_REVIEWERS_FULLNAME_PARAM, "0")
-		};
+		List<NameValuePair> paramList = new ArrayList<NameValuePair>();
+		paramList.add(new NameValuePair(RB_GET_REVIEWERS_QUERY_PARAM, query));
+		paramList.add(new NameValuePair(RB_GET_REVIEWERS_LIMIT_PARAM, "150"));
+		paramList.add(new NameValuePair(RB_GET_REVIEWERS_FULLNAME_PARAM, "0"));
+		
+		// Defeats caching of the response, unless it's cached here and revalidated with Reviewboard
+		if(responseCache == null)
+			paramList.add(new NameValuePair(RB_GET_REVIEWERS_TIMESTAMP_PARAM, String.valueOf((new Date()).getTime())));
+		
+		NameValuePair[] params = paramList.toArray(new NameValuePair[paramList.size()]);
 		
 		try {
-			JSONObject response = this.executeGetApiCall(uri, params);
-			if(response != null){
-				List<Object> jsonUsers = response.getJSONArray("users");
-				for(Object jsonUser : jsonUsers){
-					if(jsonUser instanceof JSONObject)
-						users.add( ((JSONObject)jsonUser).getString("username") );
-				}
-			}else{
-				System.out.println("Error response from Reviewboard User query: " + response);
-			}
+			ListResponseParser.Page page = this.executeStreamingGetApiCall(uri.getURI(), params, USER_LIST_PARSER, users);
+			if(page == null || !page.isOk())
+				System.out.println("Error response from Reviewboard User query: " + query);
 		} catch (URIException e) {
 			e.printStackTrace();
 		}
@@ -462,6 +927,50 @@ public class ReviewboardHttpAPI {
 		return users;
 	}
 	
+	/**
+	 * Retrieves every group in Reviewboard.  Reviewboard 1.5+ returns groups a page at a time,
+	 * and every page is read; older versions only support {@link #getGroups(String)}, which
+	 * is used instead.
+	 * 
+	 * @param pageSize number of groups requested per page.  Reviewboard caps this at 200.
+	 * @param threads maximum number of pages requested at the same time
+	 * @return Set of every group. Group names are case-sensitive.
+	 * @throws IOException if any page couldn't be read
+	 */
+	public Set<String> getAllGroups(final int pageSize, final int threads) throws IOException{
+		
+		if(listResourcesAvailable){
+			Set<String> groups = this.getAllFromListResource(RB_GROUPS_RESOURCE_PATH, GROUP_LIST_PARSER, pageSize, threads);
+			if(groups != null)
+				return groups;
+			listResourcesAvailable = false;
+		}
+		
+		return this.getGroups("");
+	}
+	
+	/**
+	 * Retrieves every user in Reviewboard.  Reviewboard 1.5+ returns users a page at a time,
+	 * and every page is read; older versions only support {@link #getReviewers(String)}, which
+	 * is used instead.
+	 * 
+	 * @param pageSize number of users requested per page.  Reviewboard caps this at 200.
+	 * @param threads maximum number of pages requested at the same time
+	 * @return Set of every username. Usernames are case-sensitive.
+	 * @throws IOException if any page couldn't be read
+	 */
+	public Set<String> getAllReviewers(final int pageSize, final int threads) throws IOException{
+		
+		if(listResourcesAvailable){
+			Set<String> users = this.getAllFromListResource(RB_USERS_RESOURCE_PATH, USER_LIST_PARSER, pageSize, threads);
+			if(users != null)
+				return users;
+			listResourcesAvailable = false;
+		}
+		
+		return this.getReviewers("");
+	}
+	
 	/**
 	 * Sets one or more groups as default review groups on a review request.  The groups
 	 * argument should be a comma-delimited string of valid Reviewboard groups.  Use
@@ -601,4 +1110,237 @@ public class ReviewboardHttpAPI {
 		
 		return status;
 	}	
+	
+	/**
+	 * Applies every change in the supplied update to the draft of a review request,
+	 * publishing it afterwards if requested.  Against Reviewboard 1.5+ this is a single
+	 * PUT to the draft resource.  Older servers don't have that resource, so the changes
+	 * are applied one field at a time through {@link #setReviewers(ReviewRequest, String)},
+	 * {@link #setBugs(ReviewRequest, String)}, {@link #setGroups(ReviewRequest, String)},
+	 * {@link #setChangeDescription(ReviewRequest, String)} and {@link #publishReview(ReviewRequest)}.
+	 * 
+	 * @param review Review whose draft is updated
+	 * @param update Changes to apply to the draft
+	 * @return true if successful, false otherwise
+	 */
+	public boolean updateDraft(final ReviewRequest review, final DraftUpdate update){
+		
+		if(draftResourceAvailable){
+			
+			List<NameValuePair> params = new ArrayList<NameValuePair>();
+			if(update.getReviewers() != null)
+				params.add(new NameValuePair(RB_DRAFT_REVIEWERS_PARAM, update.getReviewers()));
+			if(update.getGroups() != null)
+				params.add(new NameValuePair(RB_DRAFT_GROUPS_PARAM, update.getGroups()));
+			if(update.getBugs() != null)
+				params.add(new NameValuePair(RB_DRAFT_BUGS_PARAM, update.getBugs()));
+			if(update.getChangeDescription() != null)
+				params.add(new NameValuePair(RB_DRAFT_CHANGE_DESCR_PARAM, update.getChangeDescription()));
+			if(update.isPublish())
+				params.add(new NameValuePair(RB_DRAFT_PUBLIC_PARAM, "1"));
+			
+			URI uri = this.createUri(RB_DRAFT_RESOURCE_PATH, "%REVIEW_ID%", review.getReviewBoardID().toString());
+			
+			try {
+				PutMethod put = new PutMethod(uri.getURI());
+				if(this.executePutApiCall(put, params.toArray(new NameValuePair[params.size()])))
+					return true;
+				
+				// A 404 usually means only this review request is gone or hidden, so it's only taken
+				// to mean the draft resource doesn't exist if the whole 1.5+ API doesn't either.
+				int statusCode = put.getStatusCode();
+				if(statusCode == 405 || statusCode == 501 || (statusCode == 404 && !this.isRootResourceAvailable()))
+					draftResourceAvailable = false;
+				else
+					return false;
+			} catch (URIException e) {
+				e.printStackTrace();
+				return false;
+			}
+		}
+		
+		boolean status = true;
+		if(update.getReviewers() != null)
+			status &= this.setReviewers(review, update.getReviewers());
+		if(update.getBugs() != null)
+			status &= this.setBugs(review, update.getBugs());
+		if(update.getGroups() != null)
+			status &= this.setGroups(review, update.getGroups());
+		if(update.getChangeDescription() != null)
+			status &= this.setChangeDescription(review, update.getChangeDescription());
+		if(update.isPublish())
+			status &= this.publishReview(review);
+		
+		return status;
+	}
+	
+	/**
+	 * Tells whether Reviewboard has the root resource of the 1.5+ API.  It is probed once; if
+	 * the probe fails for any reason other than Reviewboard reporting the resource doesn't
+	 * exist, it is assumed to, and probed again next time.
+	 * 
+	 * @return false if Reviewboard reported the root resource doesn't exist (pre-1.5), true otherwise
+	 */
+	private boolean isRootResourceAvailable(){
+		
+		Boolean available = rootResourceAvailable;
+		if(available != null)
+			return available.booleanValue();
+		
+		GetMethod get = null;
+		try {
+			get = new GetMethod(this.createUri(RB_ROOT_RESOURCE_PATH, null, null).getURI());
+			get.setDoAuthentication( true );
+			
+			int statusCode = this.executeMethod(get);
+			if(statusCode >= 200 && statusCode < 300)
+				available = Boolean.TRUE;
+			else if(statusCode == 404 || statusCode == 405 || statusCode == 501)
+				available = Boolean.FALSE;
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			if(get != null)
+				get.releaseConnection();
+		}
+		
+		if(available == null)
+			return true;
+		
+		rootResourceAvailable = available;
+		return available.booleanValue();
+	}
+	
+	/**
+	 * Creates a new review request, in draft, for a changelist.  For Perforce, Reviewboard
+	 * fills in the summary and description of the review request from the changelist.
+	 * 
+	 * @param repository Name, path or ID of the Reviewboard repository the changelist belongs to
+	 * @param changeNum ID of the changelist in the SCM
+	 * @param submitAs Reviewboard user the review request is created on behalf of
+	 * @return ID of the new review request, or null if it could not be created
+	 */
+	public Long createReviewRequest(final String repository, final Long changeNum, final String submitAs){
+		
+		URI uri = this.createUri(RB_REVIEW_REQUESTS_RESOURCE_PATH, null, null);
+		
+		List<NameValuePair> params = new ArrayList<NameValuePair>();
+		params.add(new NameValuePair(RB_REVIEW_REQUESTS_REPOSITORY_PARAM, repository));
+		if(changeNum != null)
+			params.add(new NameValuePair(RB_REVIEW_REQUESTS_CHANGENUM_PARAM, changeNum.toString()));
+		if(submitAs != null && !submitAs.isEmpty())
+			params.add(new NameValuePair(RB_REVIEW_REQUESTS_SUBMIT_AS_PARAM, submitAs));
+		
+		try {
+			PostMethod post = new PostMethod(uri.getURI());
+			post.addParameters(params.toArray(new NameValuePair[params.size()]));
+			
+			JSONObject response = executeApiCall(JSONObject.class, post);
+			if(response != null && response.has(RB_REVIEW_REQUEST_JSON_KEY))
+				return response.getJSONObject(RB_REVIEW_REQUEST_JSON_KEY).getLong(RB_REVIEW_REQUEST_ID_JSON_KEY);
+		} catch (URIException e) {
+			e.printStackTrace();
+		} catch (JSONException e) {
+			e.printStackTrace();
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Uploads a diff to the draft of a review request.  The diff replaces any diff
+	 * already in the draft, and becomes a new diff revision once the draft is published.
+	 * 
+	 * @param review Review to upload the diff to
+	 * @param diff Contents of the diff, in the format Reviewboard expects for the review request's repository
+	 * @param basedir Base directory the paths in the diff are relative to, or null if they are absolute (such as Perforce depot paths)
+	 * @return true if successful, false otherwise
+	 */
+	public boolean uploadDiff(final ReviewRequest review, final byte[] diff, final String basedir){
+		
+		URI uri = this.createUri(RB_DIFFS_RESOURCE_PATH, "%REVIEW_ID%", review.getReviewBoardID().toString());
+		
+		List<Part> parts = new ArrayList<Part>();
+		parts.add(new FilePart(RB_DIFFS_PATH_PARAM, new ByteArrayPartSource(RB_DIFFS_FILE_NAME, diff), "text/x-patch", null));
+		if(basedir != null)
+			parts.add(new StringPart(RB_DIFFS_BASEDIR_PARAM, basedir, "UTF-8"));
+		
+		try {
+			PostMethod post = new PostMethod(uri.getURI());
+			post.setRequestEntity(new MultipartRequestEntity(parts.toArray(new Part[parts.size()]), post.getParams()));
+			
+			Boolean status = executeApiCall(Boolean.class, post);
+			return (status != null && status.booleanValue());
+		} catch (URIException e) {
+			e.printStackTrace();
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Submits a changelist to Reviewboard without post-review: creates a new review request
+	 * for the changelist if no existing review request is supplied, then uploads the diff
+	 * to its draft.  The draft is left unpublished; use {@link #updateDraft(ReviewRequest, DraftUpdate)}
+	 * to set its fields and publish it.
+	 * 
+	 * A review request created here is returned even if the diff can't be uploaded to it, since
+	 * it holds the changelist from then on: the caller has to update it rather than create another.
+	 * 
+	 * @param repository Name, path or ID of the Reviewboard repository the changelist belongs to
+	 * @param changeNum ID of the changelist in the SCM
+	 * @param submitAs Reviewboard user new review requests are created on behalf of
+	 * @param reviewBoardID ID of an existing review request to update, or null to create a new one
+	 * @param diff Contents of the diff for the changelist
+	 * @return the created or updated review request and whether the diff was uploaded to it, or null if no review request could be created
+	 */
+	public Submission submitReview(final String repository, final Long changeNum, final String submitAs, final Long reviewBoardID, final byte[] diff){
+		
+		Long id = reviewBoardID;
+		if(id == null)
+			id = this.createReviewRequest(repository, changeNum, submitAs);
+		
+		if(id == null)
+			return null;
+		
+		ReviewRequest review = new ReviewRequest(changeNum, id, submitAs, null);
+		return new Submission(id, reviewBoardID == null, this.uploadDiff(review, diff, null));
+	}
+	
+	/**
+	 * Outcome of {@link ReviewboardHttpAPI#submitReview(String, Long, String, Long, byte[])}.
+	 */
+	public static final class Submission {
+		
+		private final Long reviewBoardID;
+		private final boolean created;
+		private final boolean diffUploaded;
+		
+		Submission(final Long reviewBoardID, final boolean created, final boolean diffUploaded) {
+			this.reviewBoardID = reviewBoardID;
+			this.created = created;
+			this.diffUploaded = diffUploaded;
+		}
+		
+		/**
+		 * @return ID of the created or updated review request
+		 */
+		public Long getReviewBoardID() {
+			return reviewBoardID;
+		}
+		
+		/**
+		 * @return true if the review request was created by the submission
+		 */
+		public boolean isCreated() {
+			return created;
+		}
+		
+		/**
+		 * @return true if the diff was uploaded to the review request
+		 */
+		public boolean isDiffUploaded() {
+			return diffUploaded;
+		}
+	}
 }
\ No newline at end of file
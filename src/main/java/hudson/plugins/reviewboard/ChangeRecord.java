@@ -0,0 +1,194 @@
+/*
+ *
+ * Copyright (c) 2026, the Reviewboard plugin contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), the rights
+ * to use, copy, modify, merge, publish, distribute, and to permit persons to
+ * whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package hudson.plugins.reviewboard;
+
+import hudson.plugins.perforce.PerforceChangeLogEntry;
+import hudson.scm.ChangeLogSet.Entry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Everything about a change from the SCM needed to submit it to Reviewboard, copied
+ * out of the build's change set so it can be submit after the build has completed,
+ * including after a restart of Jenkins.
+ *
+ * A record may also stand for several changes sharing an external ID, coalesced by
+ * {@link #coalesce(List)} so they can be submit as a single update of their review request.
+ */
+public final class ChangeRecord {
+
+	private final String externalID;
+	private final Long changeListID;
+	private final String author;
+	private final String description;
+	private final List<String> files;
+
+	// IDs of every change coalesced into this record, in order, or null if it holds a single change
+	private final List<Long> coalescedChangeListIDs;
+
+	/**
+	 * @param externalID external ID found in the change description
+	 * @param changeListID ID of the change in the SCM, or 0 if unknown
+	 * @param author author of the change
+	 * @param description description of the change
+	 * @param files files affected by the change
+	 */
+	public ChangeRecord(final String externalID, final Long changeListID, final String author, final String description, final Collection<String> files) {
+		this.externalID = externalID;
+		this.changeListID = changeListID;
+		this.author = author;
+		this.description = description;
+		this.files = (files == null) ? new ArrayList<String>() : new ArrayList<String>(files);
+		this.coalescedChangeListIDs = null;
+	}
+
+	private ChangeRecord(final ChangeRecord first, final Long changeListID, final String description, final Collection<String> files, final List<Long> coalescedChangeListIDs) {
+		this.externalID = first.externalID;
+		this.changeListID = changeListID;
+		this.author = first.author;
+		this.description = description;
+		this.files = new ArrayList<String>(files);
+		this.coalescedChangeListIDs = coalescedChangeListIDs;
+	}
+
+	/**
+	 * Copies a change out of a change set.
+	 *
+	 * @param entry change from the change set
+	 * @param externalID external ID found in the change description
+	 * @return copy of the change
+	 */
+	static ChangeRecord fromEntry(final Entry entry, final String externalID) {
+
+		// If the SCM is Perforce, grab the changelistID.
+		// Right now, only Perforce is supported.
+		Long changeListID = 0L;
+		try{
+			if(entry instanceof PerforceChangeLogEntry){
+				PerforceChangeLogEntry pEntry = (PerforceChangeLogEntry)entry;
+				changeListID = new Long(pEntry.getChange().getChangeNumber());
+			}
+		}catch(Exception e){
+			e.printStackTrace();
+		}
+
+		return new ChangeRecord(externalID, changeListID, entry.getAuthor().getId(), entry.getMsg(), entry.getAffectedPaths());
+	}
+
+	/**
+	 * Coalesces changes sharing an external ID into a single record.  The record takes the
+	 * author of the first change and the ID of the last one, and holds the files of every
+	 * change, without duplicates, and the descriptions of every change, each headed by the
+	 * ID of its change.
+	 *
+	 * @param changes changes to coalesce, in the order they were made
+	 * @return coalesced change, or the only change if there is just one
+	 */
+	static ChangeRecord coalesce(final List<ChangeRecord> changes) {
+
+		if(changes.size() == 1)
+			return changes.get(0);
+
+		Set<String> files = new LinkedHashSet<String>();
+		List<Long> changeListIDs = new ArrayList<Long>(changes.size());
+		StringBuilder description = new StringBuilder();
+		for(ChangeRecord change: changes){
+			files.addAll(change.files);
+			changeListIDs.add(change.changeListID);
+			if(description.length() > 0)
+				description.append("\n\n");
+			description.append("Changelist ").append(change.changeListID).append(": ").append(change.description);
+		}
+
+		return new ChangeRecord(changes.get(0), changes.get(changes.size() - 1).changeListID, description.toString(), files, changeListIDs);
+	}
+
+	/**
+	 * Adds earlier changes to this record, such as changes already sent to a review request
+	 * whose publishing is deferred, so a diff of the record covers them too.  The record keeps
+	 * its own ID, author and description.
+	 *
+	 * @param changeListIDs IDs of the earlier changes, in order
+	 * @param files files affected by the earlier changes
+	 * @return record holding the earlier changes followed by this one's, or this record if there are no others
+	 */
+	ChangeRecord withEarlierChanges(final List<Long> changeListIDs, final Collection<String> files) {
+
+		List<Long> allChangeListIDs = new ArrayList<Long>(changeListIDs);
+		for(Long id: this.getChangeListIDs()){
+			allChangeListIDs.remove(id);
+			allChangeListIDs.add(id);
+		}
+		if(allChangeListIDs.equals(this.getChangeListIDs()))
+			return this;
+
+		Set<String> allFiles = new LinkedHashSet<String>(files);
+		allFiles.addAll(this.files);
+
+		return new ChangeRecord(this, this.changeListID, this.description, allFiles, allChangeListIDs);
+	}
+
+	public String getExternalID() {
+		return externalID;
+	}
+
+	/**
+	 * @return ID of the change, or of the last change if several were coalesced
+	 */
+	public Long getChangeListID() {
+		return changeListID;
+	}
+
+	/**
+	 * @return IDs of every change held by this record, in order. Immutable.
+	 */
+	public List<Long> getChangeListIDs() {
+		return (coalescedChangeListIDs == null) ? Collections.singletonList(changeListID) : Collections.unmodifiableList(coalescedChangeListIDs);
+	}
+
+	/**
+	 * @return true if this record holds several coalesced changes
+	 */
+	public boolean isCoalesced() {
+		return coalescedChangeListIDs != null;
+	}
+
+	public String getAuthor() {
+		return author;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	/**
+	 * @return files affected by the change. Immutable.
+	 */
+	public List<String> getFiles() {
+		return Collections.unmodifiableList(files);
+	}
+}
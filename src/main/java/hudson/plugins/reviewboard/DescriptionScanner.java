@@ -0,0 +1,201 @@
+/*
+ *
+ * Copyright (c) 2026, the Reviewboard plugin contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), the rights
+ * to use, copy, modify, merge, publish, distribute, and to permit persons to
+ * whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package hudson.plugins.reviewboard;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Scans change descriptions for keywords, such as override flags, and for an external key,
+ * without copying the description.  Keywords are matched ignoring case, all of them in a
+ * single pass over the description with an Aho-Corasick automaton; the external key must
+ * start the description, ignoring leading white space, so finding it only reads as much of
+ * the description as the key pattern needs, and only when the key is asked for.
+ *
+ * Scanners are immutable, and can be shared by any number of threads.
+ */
+final class DescriptionScanner {
+
+	// Keywords are ASCII; characters outside it never continue a match
+	private static final int ALPHABET_SIZE = 128;
+
+	private final Pattern keyPattern;
+
+	// Automaton: the state reached from each state on each (upper case) character, and the
+	// keywords, as a bit mask of their indexes, that end at each state.
+	private final int[][] transitions;
+	private final int[] matches;
+
+	/**
+	 * Result of scanning a description.
+	 */
+	final class Result {
+
+		private final int keywords;
+		private final CharSequence text;
+
+		private Result(final int keywords, final CharSequence text) {
+			this.keywords = keywords;
+			this.text = text;
+		}
+
+		/**
+		 * @return index of the first keyword, in the order given to the scanner, found in the description, or -1 if none was
+		 */
+		int getFirstKeyword() {
+			return (keywords == 0) ? -1 : Integer.numberOfTrailingZeros(keywords);
+		}
+
+		/**
+		 * Finds the external key at the start of the description.  The description is only
+		 * matched against the key pattern when this is called, so callers that just need the
+		 * keywords read the description once.
+		 *
+		 * @return external key at the start of the description, or null if there is none
+		 */
+		String getKey() {
+			return findKey(text);
+		}
+	}
+
+	/**
+	 * @param keyPattern pattern of the external key, whose first group is the key (may be null)
+	 * @param keywords keywords to find, in upper case; at most 31
+	 */
+	DescriptionScanner(final Pattern keyPattern, final String... keywords) {
+
+		if(keywords.length > 31)
+			throw new IllegalArgumentException("Can't scan for more than 31 keywords.");
+
+		this.keyPattern = keyPattern;
+
+		// Trie of the keywords
+		List<int[]> states = new ArrayList<int[]>();
+		List<Integer> ends = new ArrayList<Integer>();
+		states.add(newState());
+		ends.add(0);
+		for(int k = 0; k < keywords.length; k++){
+			int state = 0;
+			for(int i = 0; i < keywords[k].length(); i++){
+				char c = keywords[k].charAt(i);
+				if(c >= ALPHABET_SIZE)
+					throw new IllegalArgumentException("Keywords must be ASCII: " + keywords[k]);
+				if(states.get(state)[c] == -1){
+					states.get(state)[c] = states.size();
+					states.add(newState());
+					ends.add(0);
+				}
+				state = states.get(state)[c];
+			}
+			ends.set(state, ends.get(state) | (1 << k));
+		}
+
+		this.transitions = states.toArray(new int[states.size()][]);
+		this.matches = new int[states.size()];
+		for(int s = 0; s < matches.length; s++)
+			matches[s] = ends.get(s);
+
+		// Turn the trie into an automaton, breadth first, so a failed match continues from the
+		// longest suffix of the text read so far that is a prefix of a keyword.
+		int[] failure = new int[transitions.length];
+		LinkedList<Integer> queue = new LinkedList<Integer>();
+		for(int c = 0; c < ALPHABET_SIZE; c++){
+			if(transitions[0][c] == -1){
+				transitions[0][c] = 0;
+			}else{
+				failure[transitions[0][c]] = 0;
+				queue.add(transitions[0][c]);
+			}
+		}
+		while(!queue.isEmpty()){
+			int state = queue.removeFirst();
+			for(int c = 0; c < ALPHABET_SIZE; c++){
+				int next = transitions[state][c];
+				if(next == -1){
+					transitions[state][c] = transitions[failure[state]][c];
+				}else{
+					failure[next] = transitions[failure[state]][c];
+					matches[next] |= matches[failure[next]];
+					queue.add(next);
+				}
+			}
+		}
+	}
+
+	private static int[] newState() {
+		int[] state = new int[ALPHABET_SIZE];
+		Arrays.fill(state, -1);
+		return state;
+	}
+
+	/**
+	 * Finds the keywords in a description, in a single pass.  Stops reading the description
+	 * once the first keyword has been found, since it takes priority.  The external key is
+	 * only looked for if {@link Result#getKey()} is called.
+	 *
+	 * @param text description to scan
+	 * @return keywords found, and the external key on demand
+	 */
+	Result scan(final CharSequence text) {
+
+		if(text == null)
+			return new Result(0, null);
+
+		int found = 0;
+		int state = 0;
+		for(int i = 0, length = text.length(); i < length && (found & 1) == 0; i++){
+			char c = Character.toUpperCase(text.charAt(i));
+			state = (c < ALPHABET_SIZE) ? transitions[state][c] : 0;
+			found |= matches[state];
+		}
+
+		return new Result(found, text);
+	}
+
+	/**
+	 * Finds the external key at the start of a description, ignoring leading and trailing
+	 * white space.
+	 *
+	 * @param text description to scan
+	 * @return external key, or null if the description doesn't start with one
+	 */
+	String findKey(final CharSequence text) {
+
+		if(keyPattern == null || text == null)
+			return null;
+
+		int start = 0;
+		int end = text.length();
+		while(start < end && text.charAt(start) <= ' ')
+			start++;
+		while(end > start && text.charAt(end - 1) <= ' ')
+			end--;
+
+		Matcher matcher = keyPattern.matcher(text);
+		matcher.region(start, end);
+		return matcher.lookingAt() ? matcher.group(1) : null;
+	}
+}
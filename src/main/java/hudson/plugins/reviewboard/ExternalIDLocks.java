@@ -0,0 +1,120 @@
+/*
+ *
+ * Copyright (c) 2026, the Reviewboard plugin contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), the rights
+ * to use, copy, modify, merge, publish, distribute, and to permit persons to
+ * whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package hudson.plugins.reviewboard;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serializes submissions to Reviewboard for the same external ID across every
+ * {@link ReviewboardPublisher}, so that concurrent builds (of one job, or of jobs
+ * sharing a key pattern) can't both decide no review exists and create duplicates.
+ *
+ * Locks are striped: each external ID maps to one of a fixed set of locks, so
+ * unrelated IDs occasionally share a lock, but no per-ID state is ever leaked.
+ * Review requests created while holding a lock are remembered for a while, so a
+ * submitter that waited on the lock can reuse the review request created by the
+ * submitter it waited for.
+ */
+final class ExternalIDLocks {
+
+	// Number of locks external IDs are spread across.  Must be a power of two.
+	private static final int STRIPES = 256;
+
+	// How long a created review request is remembered for submitters that waited on it.
+	private static final long CREATED_RETENTION = 60L * 60L * 1000L; // 1 hour
+
+	private static final Lock[] LOCKS = new Lock[STRIPES];
+	static {
+		for(int i = 0; i < STRIPES; i++)
+			LOCKS[i] = new ReentrantLock(true);
+	}
+
+	// Review requests recently created, keyed by normalized external ID.
+	private static final Map<String, CreatedReview> CREATED = new HashMap<String, CreatedReview>();
+
+	private static final class CreatedReview {
+		private final long reviewBoardID;
+		private final long createdAt;
+
+		private CreatedReview(final long reviewBoardID, final long createdAt) {
+			this.reviewBoardID = reviewBoardID;
+			this.createdAt = createdAt;
+		}
+	}
+
+	private ExternalIDLocks() {
+	}
+
+	/**
+	 * Returns the lock guarding submissions for an external ID.  External IDs
+	 * differing only by case share the same lock.
+	 *
+	 * @param externalID external ID to lock
+	 * @return lock for the external ID
+	 */
+	static Lock lockFor(final String externalID) {
+		int hash = ReviewIndex.normalizeExternalID(externalID).hashCode();
+		hash ^= (hash >>> 16);
+		return LOCKS[hash & (STRIPES - 1)];
+	}
+
+	/**
+	 * Remembers a review request created for an external ID.  Must be called while
+	 * holding the external ID's lock.
+	 *
+	 * @param externalID external ID the review request was created for
+	 * @param reviewBoardID ID of the created review request
+	 */
+	static void created(final String externalID, final long reviewBoardID) {
+
+		long now = System.currentTimeMillis();
+
+		synchronized(CREATED){
+			Iterator<CreatedReview> i = CREATED.values().iterator();
+			while(i.hasNext()){
+				if(i.next().createdAt + CREATED_RETENTION < now)
+					i.remove();
+			}
+
+			CREATED.put(ReviewIndex.normalizeExternalID(externalID), new CreatedReview(reviewBoardID, now));
+		}
+	}
+
+	/**
+	 * Returns the review request created for an external ID at or after the supplied
+	 * time, typically by a submitter holding the lock while this one waited for it.
+	 *
+	 * @param externalID external ID to look up
+	 * @param since time, in milliseconds, the caller started waiting for the lock
+	 * @return ID of the review request, or null if none was created since then
+	 */
+	static Long createdSince(final String externalID, final long since) {
+		synchronized(CREATED){
+			CreatedReview created = CREATED.get(ReviewIndex.normalizeExternalID(externalID));
+			return (created != null && created.createdAt >= since) ? created.reviewBoardID : null;
+		}
+	}
+}
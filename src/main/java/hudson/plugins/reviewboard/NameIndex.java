@@ -0,0 +1,108 @@
+/*
+ *
+ * Copyright (c) 2026, the Reviewboard plugin contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), the rights
+ * to use, copy, modify, merge, publish, distribute, and to permit persons to
+ * whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package hudson.plugins.reviewboard;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable sorted index over a set of Reviewboard user or group names, answering
+ * exact lookups and prefix searches with a binary search.  Exact lookups are
+ * case-sensitive, like Reviewboard itself; prefix searches ignore case, so they can
+ * suggest the right spelling of a name typed with the wrong case.
+ */
+final class NameIndex {
+
+	static final NameIndex EMPTY = new NameIndex(Collections.<String>emptySet());
+
+	// Names sorted as-is, for exact lookups
+	private final String[] names;
+
+	// Names sorted by their lower case form, and those forms in the same order, for prefix searches
+	private final String[] byKey;
+	private final String[] keys;
+
+	/**
+	 * @param names names to index
+	 */
+	NameIndex(final Collection<String> names) {
+
+		this.names = names.toArray(new String[names.size()]);
+		Arrays.sort(this.names);
+
+		this.byKey = this.names.clone();
+		Arrays.sort(this.byKey, new Comparator<String>() {
+			public int compare(String a, String b) {
+				int c = a.toLowerCase().compareTo(b.toLowerCase());
+				return (c != 0) ? c : a.compareTo(b);
+			}
+		});
+
+		this.keys = new String[byKey.length];
+		for(int i = 0; i < byKey.length; i++)
+			this.keys[i] = byKey[i].toLowerCase();
+	}
+
+	/**
+	 * @param name name to look up; case-sensitive
+	 * @return true if the name is in the index
+	 */
+	boolean contains(final String name) {
+		return name != null && Arrays.binarySearch(names, name) >= 0;
+	}
+
+	/**
+	 * Finds names starting with a prefix, ignoring case, in alphabetical order.
+	 *
+	 * @param prefix prefix to match
+	 * @param limit maximum number of names to return
+	 * @return matching names
+	 */
+	List<String> startingWith(final String prefix, final int limit) {
+
+		String key = (prefix == null) ? "" : prefix.toLowerCase();
+		List<String> matches = new ArrayList<String>(Math.min(limit, 16));
+
+		int i = Arrays.binarySearch(keys, key);
+		if(i < 0)
+			i = -i - 1;
+		// Equal keys may be found at any of their positions; back up to the first
+		while(i > 0 && keys[i - 1].equals(key))
+			i--;
+
+		for(; i < keys.length && matches.size() < limit && keys[i].startsWith(key); i++)
+			matches.add(byKey[i]);
+
+		return matches;
+	}
+
+	/**
+	 * @return number of names in the index
+	 */
+	int size() {
+		return names.length;
+	}
+}
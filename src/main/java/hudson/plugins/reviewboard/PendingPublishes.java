@@ -0,0 +1,364 @@
+/*
+ *
+ * Copyright (c) 2026, the Reviewboard plugin contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), the rights
+ * to use, copy, modify, merge, publish, distribute, and to permit persons to
+ * whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package hudson.plugins.reviewboard;
+
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.Hudson;
+import hudson.model.TaskListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.twelvegm.hudson.plugin.reviewboard.DraftUpdate;
+import com.twelvegm.hudson.plugin.reviewboard.ReviewRequest;
+
+/**
+ * Review requests whose publishing is deferred, so several builds updating the same review
+ * request within a short window publish it once, with a single email to reviewers, instead
+ * of once per build.
+ *
+ * The first deferred update of a review request opens its window; updates made before the
+ * window ends are added to it, and their change descriptions are combined on the draft.
+ * Every update uploads a diff replacing the draft's, so the changelists and files of every
+ * update in the window are kept too, for later updates to diff along with their own; see
+ * {@link #withPendingChanges(long, ChangeRecord)}.  {@link Flusher} publishes every review
+ * request whose window has ended, holding the lock of its external ID, so it never publishes
+ * a draft that a build is in the middle of updating.  Pending review
+ * requests are persisted to JENKINS_HOME, keyed by review request ID, so they are still
+ * published after a restart of Jenkins.
+ */
+public final class PendingPublishes {
+
+	private static final Logger LOGGER = Logger.getLogger(PendingPublishes.class.getName());
+
+	// Name of the file, stored in JENKINS_HOME, persisting pending review requests.
+	private static final String FILE_NAME = "reviewboard-pending-publishes.xml";
+
+	// How often the flusher looks for windows that have ended, and how long after its window
+	// ended a review request that can't be published is given up on.
+	private static final long FLUSH_INTERVAL = 60L * 1000L; // 1 minute
+	private static final long MAX_AGE = 24L * 60L * 60L * 1000L; // 1 day
+
+	private static PendingPublishes instance;
+
+	private final XmlFile file;
+
+	private Map<Long, Entry> entries = new HashMap<Long, Entry>();
+
+	/**
+	 * A review request waiting to be published.
+	 */
+	public static final class Entry {
+
+		private final long reviewBoardID;
+		private final long dueAt;
+		private final List<String> changeDescriptions = new ArrayList<String>();
+		private Long changeListID;
+		private String author;
+
+		// External ID the review request was submit for, and the changelists and files sent to it
+		// in the window.
+		private String externalID;
+		private final List<Long> changeListIDs = new ArrayList<Long>();
+		private final Set<String> files = new LinkedHashSet<String>();
+
+		private Entry(final long reviewBoardID, final long dueAt) {
+			this.reviewBoardID = reviewBoardID;
+			this.dueAt = dueAt;
+		}
+
+		/**
+		 * @return ID of the review request in Reviewboard
+		 */
+		public long getReviewBoardID() {
+			return reviewBoardID;
+		}
+
+		/**
+		 * @return time, in milliseconds, the review request is published
+		 */
+		public long getDueAt() {
+			return dueAt;
+		}
+
+		/**
+		 * @return change descriptions of every update in the window, combined
+		 */
+		public String getChangeDescription() {
+			StringBuilder description = new StringBuilder();
+			for(String changeDescription: changeDescriptions){
+				if(description.length() > 0)
+					description.append("\n\n");
+				description.append(changeDescription);
+			}
+			return description.toString();
+		}
+	}
+
+	private PendingPublishes(final File rootDir) {
+		this.file = new XmlFile(Hudson.XSTREAM, new File(rootDir, FILE_NAME));
+		this.load();
+	}
+
+	/**
+	 * Returns the pending review requests, loading them from disk the first time they are requested.
+	 *
+	 * @return pending review requests
+	 */
+	public static synchronized PendingPublishes get() {
+		if(instance == null)
+			instance = new PendingPublishes(Hudson.getInstance().getRootDir());
+		return instance;
+	}
+
+	/**
+	 * Defers publishing an update of a review request to the end of its window, opening a
+	 * window if there isn't one already.
+	 *
+	 * @param reviewInfo review request that was updated
+	 * @param changeDescription description of the update
+	 * @param window time, in milliseconds, a new window stays open
+	 * @return the pending review request, whose combined change description should be set on the draft
+	 */
+	public synchronized Entry defer(final ReviewInfoAction reviewInfo, final String changeDescription, final long window) {
+
+		ReviewRequest review = reviewInfo.getReviewRequest();
+		Entry entry = entries.get(review.getReviewBoardID());
+		if(entry == null){
+			entry = new Entry(review.getReviewBoardID(), System.currentTimeMillis() + window);
+			entries.put(entry.reviewBoardID, entry);
+		}
+
+		entry.changeListID = review.getChangeListID();
+		entry.author = review.getAuthor();
+		entry.externalID = reviewInfo.getExternalID();
+		entry.changeDescriptions.add(changeDescription);
+		save();
+
+		return entry;
+	}
+
+	/**
+	 * Records the changes sent to a pending review request, so later updates in its window
+	 * diff them along with their own.  Does nothing if the review request isn't pending.
+	 *
+	 * @param reviewBoardID ID of the review request in Reviewboard
+	 * @param change changes sent to the review request
+	 */
+	public synchronized void addChanges(final long reviewBoardID, final ChangeRecord change) {
+
+		Entry entry = entries.get(reviewBoardID);
+		if(entry == null)
+			return;
+
+		for(Long id: change.getChangeListIDs()){
+			if(!entry.changeListIDs.contains(id))
+				entry.changeListIDs.add(id);
+		}
+		entry.files.addAll(change.getFiles());
+		save();
+	}
+
+	/**
+	 * Adds the changes already sent to a pending review request to a change about to be sent
+	 * to it, since the diff of the change replaces the draft's.
+	 *
+	 * @param reviewBoardID ID of the review request in Reviewboard
+	 * @param change change about to be sent to the review request
+	 * @return change holding every change of the window, or the change itself if the review request isn't pending
+	 */
+	public synchronized ChangeRecord withPendingChanges(final long reviewBoardID, final ChangeRecord change) {
+
+		Entry entry = entries.get(reviewBoardID);
+		if(entry == null)
+			return change;
+
+		return change.withEarlierChanges(entry.changeListIDs, entry.files);
+	}
+
+	/**
+	 * @return number of review requests waiting to be published
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Finds the review requests whose window has ended.
+	 *
+	 * @param now current time, in milliseconds
+	 * @return review requests whose window has ended
+	 */
+	private synchronized List<Entry> getDue(final long now) {
+
+		List<Entry> due = new ArrayList<Entry>();
+		for(Entry entry: entries.values()){
+			if(entry.dueAt <= now)
+				due.add(entry);
+		}
+
+		return due;
+	}
+
+	/**
+	 * Removes a review request to publish it.
+	 *
+	 * @param reviewBoardID ID of the review request in Reviewboard
+	 * @return the pending review request, or null if it has been removed already
+	 */
+	private synchronized Entry take(final long reviewBoardID) {
+
+		Entry entry = entries.remove(reviewBoardID);
+		if(entry != null)
+			save();
+
+		return entry;
+	}
+
+	/**
+	 * Puts back a review request that couldn't be published, ahead of any update deferred
+	 * since it was taken.
+	 */
+	private synchronized void putBack(final Entry entry) {
+
+		Entry newer = entries.get(entry.reviewBoardID);
+		if(newer != null){
+			entry.changeDescriptions.addAll(newer.changeDescriptions);
+			entry.changeListID = newer.changeListID;
+			entry.author = newer.author;
+			entry.changeListIDs.removeAll(newer.changeListIDs);
+			entry.changeListIDs.addAll(newer.changeListIDs);
+			entry.files.addAll(newer.files);
+		}
+
+		entries.put(entry.reviewBoardID, entry);
+		save();
+	}
+
+	/**
+	 * Publishes every review request whose window has ended, each while holding the lock of
+	 * its external ID.
+	 *
+	 * @throws InterruptedException if interrupted while waiting for a lock
+	 */
+	void flush(final ReviewboardDescriptorImpl descriptor) throws InterruptedException {
+
+		long now = System.currentTimeMillis();
+		for(Entry due: getDue(now)){
+
+			Lock lock = ExternalIDLocks.lockFor(due.externalID);
+			lock.lockInterruptibly();
+			try{
+				Entry entry = take(due.reviewBoardID);
+				if(entry != null)
+					publish(descriptor, entry, now);
+			}finally{
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Publishes a review request, putting it back if that fails, unless it has been failing for too long.
+	 */
+	private void publish(final ReviewboardDescriptorImpl descriptor, final Entry entry, final long now) {
+
+		ReviewRequest review = new ReviewRequest(entry.changeListID, entry.reviewBoardID, entry.author, null);
+		DraftUpdate update = new DraftUpdate()
+			.setChangeDescription(entry.getChangeDescription())
+			.setPublish(true);
+
+		boolean published = false;
+		try{
+			published = descriptor.getReviewboardAPI().updateDraft(review, update);
+		}catch(Exception e){
+			LOGGER.log(Level.WARNING, "Unable to publish review request #" + entry.reviewBoardID, e);
+		}
+
+		if(published)
+			LOGGER.fine("Published review request #" + entry.reviewBoardID + " with " + entry.changeDescriptions.size() + " deferred updates");
+		else if(now - entry.dueAt < MAX_AGE)
+			putBack(entry);
+		else
+			LOGGER.warning("Giving up publishing review request #" + entry.reviewBoardID + ", it has been failing since " + new Date(entry.dueAt));
+	}
+
+	@SuppressWarnings("unchecked")
+	private void load() {
+
+		if(!file.exists())
+			return;
+
+		try {
+			Object o = file.read();
+			if(o instanceof Map)
+				entries = new HashMap<Long, Entry>((Map<Long, Entry>)o);
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Unable to read pending Reviewboard publishes " + file, e);
+		} catch (RuntimeException e) {
+			LOGGER.log(Level.WARNING, "Unable to read pending Reviewboard publishes " + file, e);
+		}
+	}
+
+	private void save() {
+		try {
+			file.write(entries);
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Unable to save pending Reviewboard publishes " + file, e);
+		}
+	}
+
+	/**
+	 * Periodically publishes review requests whose window has ended.
+	 */
+	@Extension
+	public static class Flusher extends AsyncPeriodicWork {
+
+		public Flusher() {
+			super("Reviewboard publisher");
+		}
+
+		@Override
+		public long getRecurrencePeriod() {
+			return FLUSH_INTERVAL;
+		}
+
+		@Override
+		protected void execute(TaskListener listener) throws IOException, InterruptedException {
+			ReviewboardDescriptorImpl descriptor = Hudson.getInstance().getDescriptorByType(ReviewboardDescriptorImpl.class);
+			if(descriptor != null && descriptor.isPluginConfigured())
+				PendingPublishes.get().flush(descriptor);
+		}
+	}
+}
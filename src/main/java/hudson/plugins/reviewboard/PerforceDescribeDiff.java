@@ -0,0 +1,261 @@
+/*
+ *
+ * Copyright (c) 2026, the Reviewboard plugin contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), the rights
+ * to use, copy, modify, merge, publish, distribute, and to permit persons to
+ * whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package hudson.plugins.reviewboard;
+
+import hudson.EnvVars;
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.BuildListener;
+import hudson.plugins.perforce.PerforcePasswordEncryptor;
+import hudson.plugins.perforce.PerforceSCM;
+import hudson.scm.SCM;
+import hudson.util.ArgumentListBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Builds the diff of a submitted Perforce changelist, in the format Reviewboard expects
+ * for Perforce repositories, from the output of <code>p4 describe -du</code>.  This lets
+ * the plugin upload diffs itself instead of starting post-review for every changelist.
+ *
+ * Only changelists that edit or integrate text files can be described this way, since
+ * <code>p4 describe</code> doesn't include the contents of added, deleted or binary files.
+ * For anything else {@link #build(Long)} returns null and post-review has to be used.
+ */
+public class PerforceDescribeDiff {
+
+	// Output of p4 describe is treated as bytes, so the diff reaches Reviewboard unchanged whatever its encoding.
+	private static final String DIFF_ENCODING = "ISO-8859-1";
+
+	// Line listing an affected file.  Ex: ... //depot/project/file.c#3 edit
+	private static final Pattern AFFECTED_FILE_PATTERN = Pattern.compile("^\\.\\.\\. (//[^#]+)#(\\d+) ([\\w/]+)$");
+
+	// Header preceding the differences of a file.  Ex: ==== //depot/project/file.c#3 (text) ====
+	private static final Pattern FILE_HEADER_PATTERN = Pattern.compile("^==== (//[^#]+)#(\\d+) \\(([^)]+)\\) ====$");
+
+	// Environment variable p4 reads the password, or ticket, of the user from.
+	private static final String P4PASSWD_ENV = "P4PASSWD";
+
+	// How long p4 describe may run before it is killed.  It runs while the lock for the external ID
+	// is held, so a hung p4 would hold up every other build submitting changes for it.
+	private static final long DESCRIBE_TIMEOUT = 10L * 60L; // 10 minutes, in seconds
+
+	private final AbstractBuild<?,?> build;
+	private final Launcher launcher;
+	private final BuildListener listener;
+
+	/**
+	 * @param build build whose Perforce configuration is used to run p4
+	 * @param launcher launcher to execute p4 with
+	 * @param listener listener to report p4 errors to
+	 */
+	public PerforceDescribeDiff(final AbstractBuild<?,?> build, final Launcher launcher, final BuildListener listener) {
+		this.build = build;
+		this.launcher = launcher;
+		this.listener = listener;
+	}
+
+	/**
+	 * Builds the diff of a submitted changelist.
+	 *
+	 * @param changeListID ID of the changelist in Perforce
+	 * @return diff of the changelist, or null if it could not be built
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public byte[] build(final Long changeListID) throws IOException, InterruptedException {
+		return build(changeListID, new HashSet<String>());
+	}
+
+	/**
+	 * Builds the diff of a submitted changelist.
+	 *
+	 * @param changeListID ID of the changelist in Perforce
+	 * @param paths set the depot paths of the files in the diff are added to
+	 * @return diff of the changelist, or null if it could not be built
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private byte[] build(final Long changeListID, final Set<String> paths) throws IOException, InterruptedException {
+
+		SCM scm = build.getProject().getScm();
+		if(changeListID == null || changeListID <= 0 || !(scm instanceof PerforceSCM))
+			return null;
+
+		PerforceSCM p4 = (PerforceSCM)scm;
+
+		ArgumentListBuilder args = new ArgumentListBuilder();
+		args.add(p4.getP4Exe());
+		if(p4.getP4Port() != null && !p4.getP4Port().isEmpty())
+			args.add("-p", p4.getP4Port());
+		if(p4.getP4User() != null && !p4.getP4User().isEmpty())
+			args.add("-u", p4.getP4User());
+		if(p4.getP4Client() != null && !p4.getP4Client().isEmpty())
+			args.add("-c", p4.getP4Client());
+		args.add("describe", "-du", changeListID.toString());
+
+		// The password is passed the way the Perforce plugin's own depot connection passes it,
+		// through the environment, so it never shows on the command line.
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		EnvVars env = build.getEnvironment(listener);
+		if(p4.getP4Passwd() != null && !p4.getP4Passwd().isEmpty())
+			env.put(P4PASSWD_ENV, new PerforcePasswordEncryptor().decryptString(p4.getP4Passwd()));
+		int exitCode = launcher.launch().cmds(args).envs(env).stdout(out).stderr(listener.getLogger()).start().joinWithTimeout(DESCRIBE_TIMEOUT, TimeUnit.SECONDS, listener);
+		if(exitCode != 0){
+			listener.getLogger().println("p4 describe of changelist " + changeListID + " failed with exit code " + exitCode);
+			return null;
+		}
+
+		String diff = convert(out.toString(DIFF_ENCODING), paths);
+		return (diff == null) ? null : diff.getBytes(DIFF_ENCODING);
+	}
+
+	/**
+	 * Builds a single diff of several submitted changelists, by joining their diffs.  This is
+	 * only possible if no file is affected by more than one of them.
+	 *
+	 * @param changeListIDs IDs of the changelists in Perforce
+	 * @return diff of the changelists, or null if it could not be built
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public byte[] build(final List<Long> changeListIDs) throws IOException, InterruptedException {
+
+		if(changeListIDs.size() == 1)
+			return build(changeListIDs.get(0));
+
+		Set<String> paths = new HashSet<String>();
+		ByteArrayOutputStream diff = new ByteArrayOutputStream();
+		for(Long changeListID: changeListIDs){
+			Set<String> changeListPaths = new HashSet<String>();
+			byte[] changeListDiff = build(changeListID, changeListPaths);
+			if(changeListDiff == null)
+				return null;
+
+			for(String path: changeListPaths){
+				if(!paths.add(path)){
+					listener.getLogger().println("Changelists " + changeListIDs + " can't be diffed together, more than one of them affects " + path);
+					return null;
+				}
+			}
+			diff.write(changeListDiff);
+		}
+
+		return diff.toByteArray();
+	}
+
+	/**
+	 * Converts the output of <code>p4 describe -du</code> into a diff Reviewboard can parse.
+	 *
+	 * @param describe output of p4 describe
+	 * @return diff, or null if the changelist contains changes that p4 describe can't show
+	 */
+	static String convert(final String describe) {
+		return convert(describe, new HashSet<String>());
+	}
+
+	/**
+	 * Converts the output of <code>p4 describe -du</code> into a diff Reviewboard can parse.
+	 * Files are only recognized by the headers of p4 describe, outside the differences of
+	 * any file, so lines of a file that look like diff headers are never mistaken for them.
+	 *
+	 * @param describe output of p4 describe
+	 * @param paths set the depot paths of the files in the diff are added to
+	 * @return diff, or null if the changelist contains changes that p4 describe can't show
+	 */
+	static String convert(final String describe, final Set<String> paths) {
+
+		Map<String, String> actions = new HashMap<String, String>();
+		StringBuilder diff = new StringBuilder(describe.length());
+
+		boolean inDifferences = false;
+		boolean inFile = false;
+		boolean fileHasHunks = false;
+		int fileStart = 0;
+		String filePath = null;
+		Set<String> filePaths = new HashSet<String>();
+
+		Matcher affected = AFFECTED_FILE_PATTERN.matcher("");
+		Matcher header = FILE_HEADER_PATTERN.matcher("");
+
+		for(String line: describe.split("\r?\n")){
+
+			if(!inDifferences){
+				if(affected.reset(line).matches()){
+					String action = affected.group(3);
+					if(!"edit".equals(action) && !"integrate".equals(action))
+						return null;
+					actions.put(affected.group(1), action);
+				}else if(line.startsWith("Differences ...")){
+					inDifferences = true;
+				}
+				continue;
+			}
+
+			if(header.reset(line).matches()){
+				if(inFile && !fileHasHunks)
+					diff.setLength(fileStart);
+				else if(inFile)
+					filePaths.add(filePath);
+
+				String path = header.group(1);
+				long revision = Long.parseLong(header.group(2));
+				if(header.group(3).contains("binary") || !actions.containsKey(path))
+					return null;
+
+				fileStart = diff.length();
+				diff.append("--- ").append(path).append('\t').append(path).append('#').append(revision - 1).append('\n');
+				diff.append("+++ ").append(path).append('\t').append(path).append('#').append(revision).append('\n');
+				inFile = true;
+				fileHasHunks = false;
+				filePath = path;
+			}else if(inFile && line.length() > 0){
+				char c = line.charAt(0);
+				if(c == '@')
+					fileHasHunks = true;
+				if(c == '@' || c == ' ' || c == '+' || c == '-' || c == '\\')
+					diff.append(line).append('\n');
+			}
+		}
+
+		// Files whose only change is their type have no differences to show
+		if(inFile && !fileHasHunks)
+			diff.setLength(fileStart);
+		else if(inFile)
+			filePaths.add(filePath);
+
+		if(diff.length() == 0)
+			return null;
+
+		paths.addAll(filePaths);
+		return diff.toString();
+	}
+}
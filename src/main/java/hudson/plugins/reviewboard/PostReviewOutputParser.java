@@ -0,0 +1,182 @@
+/*
+ *
+ * Copyright (c) 2026, the Reviewboard plugin contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), the rights
+ * to use, copy, modify, merge, publish, distribute, and to permit persons to
+ * whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package hudson.plugins.reviewboard;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Recognizes the lines of post-review's output that tell how the submission went, as they
+ * are read.  Each parser reuses its own matchers, so it must only be used for the output of
+ * a single post-review run, from a single thread.
+ */
+final class PostReviewOutputParser {
+
+	// Line reporting the ID of the review request that was posted.  Ex: Review request #36 posted.
+	private static final Pattern POSTED_PATTERN = Pattern.compile("[\\w\\s\\.]+#([0-9]+)[\\w\\s\\.]+");
+
+	// Line reporting an HTTP error from Reviewboard for a review request.  Ex: Error getting review request 36: HTTP Error 404
+	private static final Pattern HTTP_ERROR_PATTERN = Pattern.compile("[a-zA-Z\\s]+([\\d]+):[a-zA-Z\\s]+([\\d]+)");
+
+	// Line with a warning.  Ex: Warning: Could not determine the base path
+	private static final Pattern WARNING_PATTERN = Pattern.compile("\\s*warning\\b", Pattern.CASE_INSENSITIVE);
+
+	/**
+	 * Kinds of lines recognized.
+	 */
+	enum EventType {
+		// A review request was posted
+		POSTED,
+
+		// Reviewboard answered with an HTTP error
+		HTTP_ERROR,
+
+		// post-review warned about something
+		WARNING
+	}
+
+	/**
+	 * A recognized line of output.
+	 */
+	static final class Event {
+
+		private final EventType type;
+		private final long reviewBoardID;
+		private final long httpStatus;
+		private final String line;
+
+		private Event(final EventType type, final long reviewBoardID, final long httpStatus, final String line) {
+			this.type = type;
+			this.reviewBoardID = reviewBoardID;
+			this.httpStatus = httpStatus;
+			this.line = line;
+		}
+
+		EventType getType() {
+			return type;
+		}
+
+		/**
+		 * @return ID of the review request posted or in error, or -1 for warnings
+		 */
+		long getReviewBoardID() {
+			return reviewBoardID;
+		}
+
+		/**
+		 * @return HTTP status of an error, or -1 for other events
+		 */
+		long getHttpStatus() {
+			return httpStatus;
+		}
+
+		/**
+		 * @return line of output
+		 */
+		String getLine() {
+			return line;
+		}
+	}
+
+	private final Matcher posted = POSTED_PATTERN.matcher("");
+	private final Matcher httpError = HTTP_ERROR_PATTERN.matcher("");
+	private final Matcher warning = WARNING_PATTERN.matcher("");
+
+	private final List<Event> events = new ArrayList<Event>();
+
+	// First POSTED or HTTP_ERROR event, which decides the outcome of the submission
+	private Event outcome = null;
+
+	/**
+	 * Parses the next line of output.
+	 *
+	 * @param line line of output
+	 */
+	void parseLine(final String line) {
+
+		if(line == null || line.length() == 0)
+			return;
+
+		Event event = null;
+		if(posted.reset(line).lookingAt()){
+			long id = parseLong(line, posted.start(1), posted.end(1));
+			if(id >= 0)
+				event = new Event(EventType.POSTED, id, -1L, line);
+		}
+		if(event == null && httpError.reset(line).lookingAt()){
+			long id = parseLong(line, httpError.start(1), httpError.end(1));
+			if(id >= 0)
+				event = new Event(EventType.HTTP_ERROR, id, parseLong(line, httpError.start(2), httpError.end(2)), line);
+		}
+		if(event == null && warning.reset(line).lookingAt())
+			event = new Event(EventType.WARNING, -1L, -1L, line);
+
+		if(event == null)
+			return;
+
+		events.add(event);
+		if(outcome == null && event.type != EventType.WARNING)
+			outcome = event;
+	}
+
+	/**
+	 * @return every recognized line, in the order they were output. Immutable.
+	 */
+	List<Event> getEvents() {
+		return Collections.unmodifiableList(events);
+	}
+
+	/**
+	 * @return ID of the review request posted, or -1 if none was, or an error was reported first
+	 */
+	long getPostedReviewID() {
+		return (outcome != null && outcome.type == EventType.POSTED) ? outcome.reviewBoardID : -1L;
+	}
+
+	/**
+	 * @return ID of the review request Reviewboard reported an error for, or -1 if none was, or one was posted first
+	 */
+	long getFailedReviewID() {
+		return (outcome != null && outcome.type == EventType.HTTP_ERROR) ? outcome.reviewBoardID : -1L;
+	}
+
+	/**
+	 * Parses a run of digits, without allocating.
+	 *
+	 * @return value of the digits, or -1 if it's too large
+	 */
+	private static long parseLong(final CharSequence s, final int start, final int end) {
+
+		long value = 0L;
+		for(int i = start; i < end; i++){
+			int digit = s.charAt(i) - '0';
+			if(digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10)
+				return -1L;
+			value = value * 10 + digit;
+		}
+
+		return (end > start) ? value : -1L;
+	}
+}
@@ -0,0 +1,302 @@
+/*
+ *
+ * Copyright (c) 2026, the Reviewboard plugin contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), the rights
+ * to use, copy, modify, merge, publish, distribute, and to permit persons to
+ * whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package hudson.plugins.reviewboard;
+
+import hudson.Launcher;
+import hudson.Proc;
+import hudson.model.BuildListener;
+import hudson.plugins.perforce.HudsonPipedOutputStream;
+import hudson.util.ArgumentListBuilder;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs post-review under a watchdog.  post-review can block forever, for example waiting
+ * on stdin for a username and password once the configured credentials stop working, which
+ * would hold the build's executor indefinitely.  The watchdog kills post-review, along with
+ * any processes it started, once it has run longer than the wall-clock timeout or gone longer
+ * than the idle timeout without writing any output.
+ */
+public class PostReviewRunner {
+
+	// How often running processes are checked against their timeouts, in milliseconds.
+	private static final long WATCHDOG_INTERVAL = 1000L;
+
+	// Single thread shared by the watchdogs of every running post-review process.  It only checks
+	// deadlines: killing a process is a remote call when it runs on a slave, so it's left to KILLER.
+	private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "post-review watchdog");
+			t.setDaemon(true);
+			return t;
+		}
+	});
+
+	// Threads killing the processes that ran out of time, so a slave that is slow to answer
+	// doesn't hold up the watchdogs of processes running elsewhere.
+	private static final ExecutorService KILLER = Executors.newCachedThreadPool(new ThreadFactory() {
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "post-review killer");
+			t.setDaemon(true);
+			return t;
+		}
+	});
+
+	private final Launcher launcher;
+	private final BuildListener listener;
+	private final long timeout;
+	private final long idleTimeout;
+
+	/**
+	 * Outcome of a post-review run.
+	 */
+	public static final class Result {
+
+		private final int exitCode;
+		private final long elapsed;
+		private final String timeoutReason;
+		private final List<String> output;
+
+		private Result(final int exitCode, final long elapsed, final String timeoutReason, final List<String> output) {
+			this.exitCode = exitCode;
+			this.elapsed = elapsed;
+			this.timeoutReason = timeoutReason;
+			this.output = Collections.unmodifiableList(output);
+		}
+
+		/**
+		 * @return exit code of post-review; non-zero if it was killed
+		 */
+		public int getExitCode() {
+			return exitCode;
+		}
+
+		/**
+		 * @return time, in milliseconds, post-review ran for
+		 */
+		public long getElapsed() {
+			return elapsed;
+		}
+
+		/**
+		 * @return true if post-review was killed by the watchdog
+		 */
+		public boolean isTimedOut() {
+			return timeoutReason != null;
+		}
+
+		/**
+		 * @return why post-review was killed, or null if it wasn't
+		 */
+		public String getTimeoutReason() {
+			return timeoutReason;
+		}
+
+		/**
+		 * @return lines post-review wrote to stdout, in order
+		 */
+		public List<String> getOutput() {
+			return output;
+		}
+
+		/**
+		 * @return true if post-review completed on its own with an exit code of 0
+		 */
+		public boolean isSuccessful() {
+			return !isTimedOut() && exitCode == 0;
+		}
+
+		@Override
+		public String toString() {
+			if(isTimedOut())
+				return "post-review killed after " + elapsed + "ms: " + timeoutReason;
+			return "post-review exited with code " + exitCode + " after " + elapsed + "ms";
+		}
+	}
+
+	/**
+	 * @param launcher launcher to execute post-review with
+	 * @param listener listener post-review's output is logged to
+	 * @param timeout maximum time, in milliseconds, post-review may run for; 0 = no limit
+	 * @param idleTimeout maximum time, in milliseconds, post-review may go without writing output; 0 = no limit
+	 */
+	public PostReviewRunner(final Launcher launcher, final BuildListener listener, final long timeout, final long idleTimeout) {
+		this.launcher = launcher;
+		this.listener = listener;
+		this.timeout = timeout;
+		this.idleTimeout = idleTimeout;
+	}
+
+	/**
+	 * Runs post-review to completion, or until the watchdog kills it.  Every line of output is
+	 * echoed to the build log as it is read, and the outcome is logged once post-review ends.
+	 *
+	 * @param cmd post-review command line
+	 * @param env environment to run post-review in
+	 * @return outcome of the run
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public Result run(final ArgumentListBuilder cmd, final Map<String, String> env) throws IOException, InterruptedException {
+		return run(cmd, env, null);
+	}
+
+	/**
+	 * Runs post-review like {@link #run(ArgumentListBuilder, Map)}, also handing every line
+	 * of output to a parser as it is read.
+	 *
+	 * @param cmd post-review command line
+	 * @param env environment to run post-review in
+	 * @param parser parser of the output (may be null)
+	 * @return outcome of the run
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	Result run(final ArgumentListBuilder cmd, final Map<String, String> env, final PostReviewOutputParser parser) throws IOException, InterruptedException {
+
+		List<String> output = new ArrayList<String>();
+		final long start = System.currentTimeMillis();
+		final long[] lastOutput = new long[]{ start };
+		final String[] timeoutReason = new String[1];
+		final boolean[] killing = new boolean[1];
+
+		BufferedReader reader = null;
+		BufferedWriter writer = null;
+		ScheduledFuture<?> watchdog = null;
+		try{
+			// Allows us to read the response from the external process
+			// hudsonOut->p4in->reader
+			HudsonPipedOutputStream hudsonOut = new HudsonPipedOutputStream();
+			PipedInputStream p4in = new PipedInputStream(hudsonOut);
+			reader = new BufferedReader(new InputStreamReader(p4in));
+
+			// hudsonIn<-p4Out<-writer
+			PipedInputStream hudsonIn = new PipedInputStream();
+			PipedOutputStream p4out = new PipedOutputStream(hudsonIn);
+			writer = new BufferedWriter(new OutputStreamWriter(p4out));
+
+			final Proc process = launcher.launch().cmds(cmd).envs(env).stdout(hudsonOut).stdin(hudsonIn).start();
+
+			if(timeout > 0 || idleTimeout > 0){
+				watchdog = WATCHDOG.scheduleWithFixedDelay(new Runnable() {
+					public void run() {
+						long now = System.currentTimeMillis();
+						final String reason;
+						synchronized(lastOutput){
+							if(killing[0] || timeoutReason[0] != null)
+								return;
+							if(timeout > 0 && now - start > timeout)
+								reason = "ran longer than " + (timeout / 1000) + " seconds";
+							else if(idleTimeout > 0 && now - lastOutput[0] > idleTimeout)
+								reason = "wrote no output for " + (idleTimeout / 1000) + " seconds";
+							else
+								return;
+							killing[0] = true;
+						}
+						KILLER.execute(new Runnable() {
+							public void run() {
+								try{
+									// The reason is only recorded for a process that is still running, so a process that
+									// ended just before its deadline isn't reported killed.  Neither remote call is made
+									// while holding the lock the output is read under.
+									if(!process.isAlive())
+										return;
+									synchronized(lastOutput){
+										if(timeoutReason[0] != null)
+											return;
+										timeoutReason[0] = reason;
+									}
+									process.kill();
+								}catch(IOException e){
+									e.printStackTrace(listener.getLogger());
+									// Lets the watchdog try again unless the process was already reported killed
+									synchronized(lastOutput){
+										killing[0] = false;
+									}
+								}catch(InterruptedException e){
+									Thread.currentThread().interrupt();
+								}
+							}
+						});
+					}
+				}, WATCHDOG_INTERVAL, WATCHDOG_INTERVAL, TimeUnit.MILLISECONDS);
+			}
+
+			String line;
+			try{
+				while((line = reader.readLine()) != null){
+					synchronized(lastOutput){
+						lastOutput[0] = System.currentTimeMillis();
+					}
+					listener.getLogger().println(">> " + line);
+					output.add(line);
+					if(parser != null)
+						parser.parseLine(line);
+				}
+			}catch(IOException e){
+				// we'll throw an IOE when the sub-process ends and there's nothing more to read.
+			}
+
+			// Wait for the process to complete and get the status code
+			int exitCode = process.join();
+
+			// Close the output stream
+			hudsonOut.closeOnProcess(process);
+
+			String reason;
+			synchronized(lastOutput){
+				reason = timeoutReason[0];
+				// Stops a late watchdog run from reporting a timeout for a process that already ended
+				if(reason == null)
+					timeoutReason[0] = "";
+			}
+
+			Result result = new Result(exitCode, System.currentTimeMillis() - start, reason, output);
+			listener.getLogger().println(result);
+			PublisherMetrics.get().recordPostReview(result);
+			return result;
+		}finally{
+			if(watchdog != null)
+				watchdog.cancel(false);
+			if(reader != null)
+				reader.close();
+			if(writer != null)
+				writer.close();
+		}
+	}
+}
@@ -0,0 +1,218 @@
+/*
+ *
+ * Copyright (c) 2026, the Reviewboard plugin contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), the rights
+ * to use, copy, modify, merge, publish, distribute, and to permit persons to
+ * whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package hudson.plugins.reviewboard;
+
+import hudson.Extension;
+import hudson.model.Hudson;
+import hudson.model.RootAction;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Map;
+
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+import com.twelvegm.hudson.plugin.reviewboard.ApiMetrics;
+import com.twelvegm.hudson.plugin.reviewboard.LatencyHistogram;
+
+/**
+ * Publishes the metrics of the plugin at /reviewboard-prometheus/ in the Prometheus text
+ * exposition format:
+ *
+ *  - changes sent to Reviewboard, by job and outcome
+ *  - durations and exit codes of post-review runs
+ *  - latencies, statuses, stats and traffic of the calls to Reviewboard, by endpoint
+ *  - changesets queued for delivery, and review requests waiting to be published
+ *  - validations of reviewers and groups from the directory, and the directory's hit ratio
+ *
+ * Reading the metrics requires administrator rights unless the global configuration allows
+ * anyone who can read Jenkins to, which includes anonymous scrapers if they have read access.
+ */
+@Extension
+public class PrometheusMetricsAction implements RootAction {
+
+	private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=UTF-8";
+
+	public String getIconFileName() {
+		return null;
+	}
+
+	public String getDisplayName() {
+		return "Reviewboard Prometheus Metrics";
+	}
+
+	public String getUrlName() {
+		return "reviewboard-prometheus";
+	}
+
+	/**
+	 * Writes every metric.
+	 */
+	public void doIndex(final StaplerRequest req, final StaplerResponse rsp) throws IOException {
+
+		ReviewboardDescriptorImpl descriptor = Hudson.getInstance().getDescriptorByType(ReviewboardDescriptorImpl.class);
+		if(descriptor == null || descriptor.getMetricsRequireAdmin())
+			Hudson.getInstance().checkPermission(Hudson.ADMINISTER);
+
+		rsp.setContentType(CONTENT_TYPE);
+		rsp.setHeader("Cache-Control", "no-cache");
+		PrintWriter out = rsp.getWriter();
+		writeMetrics(out, descriptor);
+		out.flush();
+	}
+
+	private void writeMetrics(final PrintWriter out, final ReviewboardDescriptorImpl descriptor) {
+
+		PublisherMetrics publisher = PublisherMetrics.get();
+
+		header(out, "reviewboard_changes_total", "counter", "Changes sent to Reviewboard, by job and outcome.");
+		for(Map.Entry<String, Map<String, Long>> job: publisher.getReviews().entrySet()){
+			for(Map.Entry<String, Long> outcome: job.getValue().entrySet())
+				sample(out, "reviewboard_changes_total", labels("job", job.getKey(), "outcome", outcome.getKey()), outcome.getValue());
+		}
+
+		header(out, "reviewboard_post_review_duration_seconds", "histogram", "Time post-review ran for.");
+		histogram(out, "reviewboard_post_review_duration_seconds", "", publisher.getPostReviewDurations());
+
+		header(out, "reviewboard_post_review_exits_total", "counter", "Runs of post-review, by exit code, or timeout if it was killed.");
+		for(Map.Entry<String, Long> exit: publisher.getPostReviewExits().entrySet())
+			sample(out, "reviewboard_post_review_exits_total", labels("code", exit.getKey()), exit.getValue());
+
+		ApiMetrics api = (descriptor != null) ? descriptor.getApiMetrics() : null;
+		if(api != null){
+			header(out, "reviewboard_api_request_duration_seconds", "histogram", "Time from sending a request to Reviewboard to receiving its response headers, by endpoint.");
+			for(ApiMetrics.Endpoint e: api.getEndpoints())
+				histogram(out, "reviewboard_api_request_duration_seconds", labels("endpoint", e.getName()), e.getLatency());
+
+			header(out, "reviewboard_api_responses_total", "counter", "Responses from Reviewboard, by endpoint and HTTP status.");
+			for(ApiMetrics.Endpoint e: api.getEndpoints()){
+				for(Map.Entry<Integer, Long> status: e.getStatuses().entrySet())
+					sample(out, "reviewboard_api_responses_total", labels("endpoint", e.getName(), "status", String.valueOf(status.getKey())), status.getValue());
+			}
+
+			header(out, "reviewboard_api_stats_total", "counter", "Responses from Reviewboard, by endpoint and the stat in their body.");
+			for(ApiMetrics.Endpoint e: api.getEndpoints()){
+				for(Map.Entry<String, Long> stat: e.getStats().entrySet())
+					sample(out, "reviewboard_api_stats_total", labels("endpoint", e.getName(), "stat", stat.getKey()), stat.getValue());
+			}
+
+			header(out, "reviewboard_api_no_response_total", "counter", "Requests to Reviewboard that got no response, by endpoint.");
+			for(ApiMetrics.Endpoint e: api.getEndpoints())
+				sample(out, "reviewboard_api_no_response_total", labels("endpoint", e.getName()), e.getNoResponse());
+
+			header(out, "reviewboard_api_rejected_total", "counter", "Calls refused while Reviewboard appeared to be down, by endpoint.");
+			for(ApiMetrics.Endpoint e: api.getEndpoints())
+				sample(out, "reviewboard_api_rejected_total", labels("endpoint", e.getName()), e.getRejected());
+
+			header(out, "reviewboard_api_sent_bytes_total", "counter", "Bytes sent in request bodies, by endpoint.");
+			for(ApiMetrics.Endpoint e: api.getEndpoints())
+				sample(out, "reviewboard_api_sent_bytes_total", labels("endpoint", e.getName()), e.getBytesSent());
+
+			header(out, "reviewboard_api_received_bytes_total", "counter", "Bytes received in response bodies, by endpoint.");
+			for(ApiMetrics.Endpoint e: api.getEndpoints())
+				sample(out, "reviewboard_api_received_bytes_total", labels("endpoint", e.getName()), e.getBytesReceived());
+		}
+
+		header(out, "reviewboard_outbox_queued_changesets", "gauge", "Changesets waiting to be delivered to Reviewboard after their build.");
+		sample(out, "reviewboard_outbox_queued_changesets", "", ReviewboardOutbox.getQueueDepth());
+
+		header(out, "reviewboard_pending_publishes", "gauge", "Review requests whose publishing is deferred.");
+		sample(out, "reviewboard_pending_publishes", "", PendingPublishes.get().size());
+
+		Map<String, Long> hits = publisher.getDirectoryHits();
+		Map<String, Long> misses = publisher.getDirectoryMisses();
+		header(out, "reviewboard_directory_lookups_total", "counter", "Validations of reviewer and group names, by directory and whether the name was found in it.");
+		for(String directory: new String[]{ "users", "groups" }){
+			sample(out, "reviewboard_directory_lookups_total", labels("directory", directory, "result", "hit"), count(hits, directory));
+			sample(out, "reviewboard_directory_lookups_total", labels("directory", directory, "result", "miss"), count(misses, directory));
+		}
+
+		header(out, "reviewboard_directory_hit_ratio", "gauge", "Share of reviewer and group names found in the directory without querying Reviewboard.");
+		for(String directory: new String[]{ "users", "groups" }){
+			long total = count(hits, directory) + count(misses, directory);
+			out.print("reviewboard_directory_hit_ratio" + labels("directory", directory) + " ");
+			out.print((total > 0) ? formatDouble((double)count(hits, directory) / total) : "NaN");
+			out.print('\n');
+		}
+	}
+
+	private static void header(final PrintWriter out, final String name, final String type, final String help) {
+		out.print("# HELP " + name + " " + help + "\n");
+		out.print("# TYPE " + name + " " + type + "\n");
+	}
+
+	private static void sample(final PrintWriter out, final String name, final String labels, final long value) {
+		out.print(name + labels + " " + value + "\n");
+	}
+
+	/**
+	 * Writes a histogram of latencies, with a bucket for each bound the histogram counts latencies
+	 * against exactly.  Buckets are cumulative, as Prometheus expects.
+	 *
+	 * @param labels labels of the histogram, formatted by {@link #labels(String...)}, or empty
+	 */
+	private static void histogram(final PrintWriter out, final String name, final String labels, final LatencyHistogram histogram) {
+
+		String prefix = labels.isEmpty() ? "{" : labels.substring(0, labels.length() - 1) + ",";
+		for(long bound: histogram.getBounds()){
+			long count = histogram.getCountAtOrBelow(bound);
+			out.print(name + "_bucket" + prefix + "le=\"" + formatDouble(bound / 1000000.0) + "\"} " + count + "\n");
+		}
+		out.print(name + "_bucket" + prefix + "le=\"+Inf\"} " + histogram.getCount() + "\n");
+		out.print(name + "_sum" + labels + " " + formatDouble(histogram.getSum() / 1000000.0) + "\n");
+		out.print(name + "_count" + labels + " " + histogram.getCount() + "\n");
+	}
+
+	/**
+	 * Formats label names and values as {name="value",...}, escaping the values.
+	 */
+	private static String labels(final String... namesAndValues) {
+		StringBuilder labels = new StringBuilder("{");
+		for(int i = 0; i + 1 < namesAndValues.length; i += 2){
+			if(i > 0)
+				labels.append(',');
+			labels.append(namesAndValues[i]).append("=\"");
+			String value = namesAndValues[i + 1];
+			for(int c = 0; c < value.length(); c++){
+				char ch = value.charAt(c);
+				if(ch == '\\' || ch == '"')
+					labels.append('\\').append(ch);
+				else if(ch == '\n')
+					labels.append("\\n");
+				else
+					labels.append(ch);
+			}
+			labels.append('"');
+		}
+		return labels.append('}').toString();
+	}
+
+	private static long count(final Map<String, Long> counters, final String key) {
+		Long count = counters.get(key);
+		return (count != null) ? count : 0L;
+	}
+
+	private static String formatDouble(final double value) {
+		return (value == Math.rint(value) && !Double.isInfinite(value)) ? String.valueOf((long)value) : String.valueOf(value);
+	}
+}
@@ -0,0 +1,156 @@
+/*
+ *
+ * Copyright (c) 2026, the Reviewboard plugin contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), the rights
+ * to use, copy, modify, merge, publish, distribute, and to permit persons to
+ * whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package hudson.plugins.reviewboard;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.twelvegm.hudson.plugin.reviewboard.LatencyHistogram;
+
+/**
+ * Counters of what the publisher did since Jenkins started: what became of the changes of
+ * every job, how long post-review ran and how it exited, and how often reviewers and groups
+ * were validated from the directory loaded from Reviewboard rather than by querying it.
+ * Metrics of the calls to Reviewboard are kept separately, in
+ * {@link com.twelvegm.hudson.plugin.reviewboard.ApiMetrics}.
+ */
+public final class PublisherMetrics {
+
+	private static final PublisherMetrics INSTANCE = new PublisherMetrics();
+
+	// Exit code recorded for post-review runs killed by the watchdog
+	static final String TIMED_OUT = "timeout";
+
+	// Bounds, in microseconds, post-review durations are counted against exactly: the buckets they are exported in
+	private static final long[] POST_REVIEW_BOUNDS = { 500000L, 1000000L, 2500000L, 5000000L, 10000000L, 30000000L, 60000000L, 120000000L, 300000000L, 600000000L };
+
+	private final ConcurrentMap<String, ConcurrentMap<String, AtomicLong>> reviews = new ConcurrentHashMap<String, ConcurrentMap<String, AtomicLong>>();
+	private final LatencyHistogram postReviewDurations = new LatencyHistogram(POST_REVIEW_BOUNDS);
+	private final ConcurrentMap<String, AtomicLong> postReviewExits = new ConcurrentHashMap<String, AtomicLong>();
+	private final ConcurrentMap<String, AtomicLong> directoryHits = new ConcurrentHashMap<String, AtomicLong>();
+	private final ConcurrentMap<String, AtomicLong> directoryMisses = new ConcurrentHashMap<String, AtomicLong>();
+
+	private PublisherMetrics() {
+	}
+
+	/**
+	 * @return the publisher's metrics
+	 */
+	public static PublisherMetrics get() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Records what became of a change.
+	 *
+	 * @param job full name of the job the change was picked up by
+	 * @param outcome what became of the change, such as "created"
+	 */
+	void recordReview(final String job, final String outcome) {
+		ConcurrentMap<String, AtomicLong> outcomes = reviews.get(job);
+		if(outcomes == null){
+			ConcurrentMap<String, AtomicLong> created = new ConcurrentHashMap<String, AtomicLong>();
+			outcomes = reviews.putIfAbsent(job, created);
+			if(outcomes == null)
+				outcomes = created;
+		}
+		increment(outcomes, outcome);
+	}
+
+	/**
+	 * Records a run of post-review.
+	 */
+	void recordPostReview(final PostReviewRunner.Result result) {
+		postReviewDurations.record(result.getElapsed() * 1000L);
+		increment(postReviewExits, result.isTimedOut() ? TIMED_OUT : String.valueOf(result.getExitCode()));
+	}
+
+	/**
+	 * Records the validation of a reviewer or group name.
+	 *
+	 * @param directory "users" or "groups"
+	 * @param hit true if the name was found in the directory, false if Reviewboard had to be queried
+	 */
+	void recordDirectoryLookup(final String directory, final boolean hit) {
+		increment(hit ? directoryHits : directoryMisses, directory);
+	}
+
+	/**
+	 * @return number of changes by job, then by outcome, sorted
+	 */
+	public Map<String, Map<String, Long>> getReviews() {
+		Map<String, Map<String, Long>> snapshot = new TreeMap<String, Map<String, Long>>();
+		for(Map.Entry<String, ConcurrentMap<String, AtomicLong>> entry: reviews.entrySet())
+			snapshot.put(entry.getKey(), snapshot(entry.getValue()));
+		return snapshot;
+	}
+
+	/**
+	 * @return durations of post-review runs, in microseconds
+	 */
+	public LatencyHistogram getPostReviewDurations() {
+		return postReviewDurations;
+	}
+
+	/**
+	 * @return number of post-review runs by exit code, or {@value #TIMED_OUT} for runs that were killed
+	 */
+	public Map<String, Long> getPostReviewExits() {
+		return snapshot(postReviewExits);
+	}
+
+	/**
+	 * @return number of names found in the directory, by directory
+	 */
+	public Map<String, Long> getDirectoryHits() {
+		return snapshot(directoryHits);
+	}
+
+	/**
+	 * @return number of names not found in the directory, which were queried from Reviewboard, by directory
+	 */
+	public Map<String, Long> getDirectoryMisses() {
+		return snapshot(directoryMisses);
+	}
+
+	private static Map<String, Long> snapshot(final Map<String, AtomicLong> counters) {
+		Map<String, Long> snapshot = new TreeMap<String, Long>();
+		for(Map.Entry<String, AtomicLong> entry: counters.entrySet())
+			snapshot.put(entry.getKey(), entry.getValue().get());
+		return Collections.unmodifiableMap(snapshot);
+	}
+
+	private static void increment(final ConcurrentMap<String, AtomicLong> counters, final String key) {
+		AtomicLong counter = counters.get(key);
+		if(counter == null){
+			AtomicLong created = new AtomicLong();
+			counter = counters.putIfAbsent(key, created);
+			if(counter == null)
+				counter = created;
+		}
+		counter.incrementAndGet();
+	}
+}
@@ -0,0 +1,323 @@
+/*
+ *
+ * Copyright (c) 2026, the Reviewboard plugin contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), the rights
+ * to use, copy, modify, merge, publish, distribute, and to permit persons to
+ * whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package hudson.plugins.reviewboard;
+
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.model.Hudson;
+import hudson.model.Item;
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.model.listeners.ItemListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Per-job index mapping an external ID (such as a JIRA ID) to the most recent
+ * {@link ReviewInfoAction} recorded against it.  Replaces walking back through
+ * every previous build looking for a matching action, so lookups cost the same
+ * no matter how many builds a job retains.
+ *
+ * The index is kept in memory and persisted to the job's root directory.  If the
+ * file is missing or unreadable, or an indexed build has since been deleted, the
+ * index is rebuilt from the job's build history.  Indexes belong to the job object
+ * rather than to a path: the file is located from the job's current root directory,
+ * so it follows a renamed job, and a job deleted and recreated under the same name
+ * starts with its own index.
+ */
+public final class ReviewIndex {
+
+	private static final Logger LOGGER = Logger.getLogger(ReviewIndex.class.getName());
+
+	// Name of the file, stored in the job's root directory, that persists the index.
+	private static final String INDEX_FILE_NAME = "reviewboard-index.xml";
+
+	// Loaded indexes, keyed by the job they belong to.  Weak, so discarded jobs don't keep
+	// their index around.  Indexes must not reference their job, or it would never be.
+	private static final Map<Job<?,?>, ReviewIndex> INDEXES = new WeakHashMap<Job<?,?>, ReviewIndex>();
+
+	// External IDs are matched case-insensitively, so keys are normalized with normalizeExternalID.
+	private Map<String, IndexEntry> entries = new HashMap<String, IndexEntry>();
+
+	// Whether the entries have been loaded from disk or built from history yet.
+	private boolean loaded = false;
+
+	/**
+	 * A single mapping between an external ID and the review request last created
+	 * or updated for it.
+	 */
+	public static final class IndexEntry {
+
+		private final String externalID;
+		private final long reviewBoardID;
+		private final int buildNumber;
+		private final long timestamp;
+
+		public IndexEntry(final String externalID, final long reviewBoardID, final int buildNumber, final long timestamp) {
+			this.externalID = externalID;
+			this.reviewBoardID = reviewBoardID;
+			this.buildNumber = buildNumber;
+			this.timestamp = timestamp;
+		}
+
+		/**
+		 * @return external ID as it was recorded on the build
+		 */
+		public String getExternalID() {
+			return externalID;
+		}
+
+		/**
+		 * @return ID of the review request in Reviewboard
+		 */
+		public long getReviewBoardID() {
+			return reviewBoardID;
+		}
+
+		/**
+		 * @return number of the build that created or updated the review request
+		 */
+		public int getBuildNumber() {
+			return buildNumber;
+		}
+
+		/**
+		 * @return time (in milliseconds) the build that created or updated the review request was started
+		 */
+		public long getTimestamp() {
+			return timestamp;
+		}
+	}
+
+	private ReviewIndex() {
+	}
+
+	/**
+	 * Returns the index for a job, loading it from disk or building it from the
+	 * job's history the first time it is requested.  Only requests for the same job
+	 * wait for it to load; other jobs' indexes stay available meanwhile.
+	 *
+	 * @param job job whose builds are indexed
+	 * @return index for the job
+	 */
+	public static ReviewIndex forJob(final Job<?,?> job) {
+
+		if(job == null)
+			throw new IllegalArgumentException("Job cannot be null.");
+
+		ReviewIndex index;
+		synchronized(INDEXES){
+			index = INDEXES.get(job);
+			if(index == null){
+				index = new ReviewIndex();
+				INDEXES.put(job, index);
+			}
+		}
+
+		index.ensureLoaded(job);
+		return index;
+	}
+
+	/**
+	 * Loads the index from disk, or builds it from the job's history, unless that has been done already.
+	 *
+	 * @param job job whose builds are indexed
+	 */
+	private synchronized void ensureLoaded(final Job<?,?> job) {
+
+		if(loaded)
+			return;
+
+		if(!load(job))
+			rebuild(job);
+		loaded = true;
+	}
+
+	/**
+	 * Discards the loaded index of a job, so it is loaded again the next time it is requested.
+	 *
+	 * @param job job whose index to discard
+	 */
+	static void evict(final Job<?,?> job) {
+		synchronized(INDEXES){
+			INDEXES.remove(job);
+		}
+	}
+
+	private static XmlFile getFile(final Job<?,?> job) {
+		return new XmlFile(Hudson.XSTREAM, new File(job.getRootDir(), INDEX_FILE_NAME));
+	}
+
+	/**
+	 * Normalizes an external ID so that IDs differing only by case map to the same entry,
+	 * matching {@link ReviewInfoAction#equalsExternalID(String)}.
+	 *
+	 * @param externalID external ID to normalize
+	 * @return normalized external ID
+	 */
+	static String normalizeExternalID(final String externalID) {
+		return externalID.trim().toUpperCase();
+	}
+
+	/**
+	 * Looks up the latest review request recorded against an external ID.  If the build that
+	 * recorded it has since been removed, the index is rebuilt from history first, so mappings
+	 * disappear along with the builds that contain them.
+	 *
+	 * @param job job the index belongs to
+	 * @param externalID external ID to look up
+	 * @return latest entry for the external ID, or null if none exists
+	 */
+	public synchronized IndexEntry lookup(final Job<?,?> job, final String externalID) {
+
+		if(externalID == null || externalID.trim().isEmpty())
+			return null;
+
+		String key = normalizeExternalID(externalID);
+		IndexEntry entry = entries.get(key);
+
+		if(entry != null && job != null && job.getBuildByNumber(entry.getBuildNumber()) == null){
+			rebuild(job);
+			entry = entries.get(key);
+		}
+
+		return entry;
+	}
+
+	/**
+	 * Records a review request that was created or updated by a build.  Entries from
+	 * older builds never replace entries from newer ones.
+	 *
+	 * @param reviewInfo action that was added to the build
+	 * @param run build the action was added to
+	 */
+	public synchronized void record(final ReviewInfoAction reviewInfo, final Run<?,?> run) {
+
+		if(reviewInfo == null || run == null)
+			return;
+
+		if(put(reviewInfo, run))
+			save(run.getParent());
+	}
+
+	/**
+	 * Discards the index and rebuilds it by walking the job's build history from the newest
+	 * build to the oldest.  This walk is iterative, so deep histories can't overflow the stack.
+	 *
+	 * @param job job whose builds are indexed
+	 */
+	public synchronized void rebuild(final Job<?,?> job) {
+
+		entries = new HashMap<String, IndexEntry>();
+
+		for(Run<?,?> run = job.getLastBuild(); run != null; run = run.getPreviousBuild()){
+			List<ReviewInfoAction> actions = run.getActions(ReviewInfoAction.class);
+			for(ReviewInfoAction reviewInfo: actions)
+				put(reviewInfo, run);
+		}
+
+		save(job);
+	}
+
+	/**
+	 * Adds an entry to the index if it is at least as new as the existing entry for the same external ID.
+	 *
+	 * @return true if the index changed
+	 */
+	private boolean put(final ReviewInfoAction reviewInfo, final Run<?,?> run) {
+
+		String externalID = reviewInfo.getExternalID();
+		if(externalID == null || externalID.trim().isEmpty() || reviewInfo.getReviewRequest() == null)
+			return false;
+
+		String key = normalizeExternalID(externalID);
+		IndexEntry existing = entries.get(key);
+		if(existing != null && existing.getBuildNumber() > run.getNumber())
+			return false;
+
+		entries.put(key, new IndexEntry(externalID, reviewInfo.getReviewRequest().getReviewBoardID(), run.getNumber(), run.getTime().getTime()));
+		return true;
+	}
+
+	/**
+	 * Loads the index from disk.
+	 *
+	 * @return true if the index was loaded, false if it doesn't exist or couldn't be read
+	 */
+	@SuppressWarnings("unchecked")
+	private boolean load(final Job<?,?> job) {
+
+		XmlFile file = getFile(job);
+		if(!file.exists())
+			return false;
+
+		try {
+			Object o = file.read();
+			if(o instanceof Map){
+				entries = new HashMap<String, IndexEntry>((Map<String, IndexEntry>)o);
+				return true;
+			}
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Unable to read Reviewboard index " + file + ", it will be rebuilt from build history.", e);
+		} catch (RuntimeException e) {
+			LOGGER.log(Level.WARNING, "Unable to read Reviewboard index " + file + ", it will be rebuilt from build history.", e);
+		}
+
+		return false;
+	}
+
+	private void save(final Job<?,?> job) {
+		XmlFile file = getFile(job);
+		try {
+			file.write(entries);
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Unable to save Reviewboard index " + file, e);
+		}
+	}
+
+	/**
+	 * Discards the loaded index of deleted jobs, and of renamed jobs so it is loaded again
+	 * from the job's new root directory.
+	 */
+	@Extension
+	public static class Listener extends ItemListener {
+
+		@Override
+		public void onDeleted(final Item item) {
+			if(item instanceof Job)
+				evict((Job<?,?>)item);
+		}
+
+		@Override
+		public void onRenamed(final Item item, final String oldName, final String newName) {
+			if(item instanceof Job)
+				evict((Job<?,?>)item);
+		}
+	}
+}
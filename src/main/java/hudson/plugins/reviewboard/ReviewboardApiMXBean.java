@@ -0,0 +1,105 @@
+/*
+ *
+ * Copyright (c) 2026, the Reviewboard plugin contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), the rights
+ * to use, copy, modify, merge, publish, distribute, and to permit persons to
+ * whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package hudson.plugins.reviewboard;
+
+import java.util.List;
+
+/**
+ * JMX view of the metrics of the calls made to Reviewboard, registered as
+ * {@value ReviewboardApiMonitor#OBJECT_NAME}.  See {@link com.twelvegm.hudson.plugin.reviewboard.ApiMetrics}.
+ */
+public interface ReviewboardApiMXBean {
+
+	/**
+	 * Metrics of a single endpoint.  Latencies are in milliseconds.
+	 */
+	public static final class EndpointStatistics {
+
+		private final String endpoint;
+		private final long requests;
+		private final long noResponse;
+		private final long rejected;
+		private final long clientErrors;
+		private final long serverErrors;
+		private final long failStats;
+		private final double latencyMean;
+		private final double latencyP50;
+		private final double latencyP90;
+		private final double latencyP99;
+		private final double latencyMax;
+		private final long bytesSent;
+		private final long bytesReceived;
+
+		public EndpointStatistics(String endpoint, long requests, long noResponse, long rejected, long clientErrors, long serverErrors, long failStats,
+				double latencyMean, double latencyP50, double latencyP90, double latencyP99, double latencyMax, long bytesSent, long bytesReceived) {
+			this.endpoint = endpoint;
+			this.requests = requests;
+			this.noResponse = noResponse;
+			this.rejected = rejected;
+			this.clientErrors = clientErrors;
+			this.serverErrors = serverErrors;
+			this.failStats = failStats;
+			this.latencyMean = latencyMean;
+			this.latencyP50 = latencyP50;
+			this.latencyP90 = latencyP90;
+			this.latencyP99 = latencyP99;
+			this.latencyMax = latencyMax;
+			this.bytesSent = bytesSent;
+			this.bytesReceived = bytesReceived;
+		}
+
+		public String getEndpoint() { return endpoint; }
+		public long getRequests() { return requests; }
+		public long getNoResponse() { return noResponse; }
+		public long getRejected() { return rejected; }
+		public long getClientErrors() { return clientErrors; }
+		public long getServerErrors() { return serverErrors; }
+		public long getFailStats() { return failStats; }
+		public double getLatencyMean() { return latencyMean; }
+		public double getLatencyP50() { return latencyP50; }
+		public double getLatencyP90() { return latencyP90; }
+		public double getLatencyP99() { return latencyP99; }
+		public double getLatencyMax() { return latencyMax; }
+		public long getBytesSent() { return bytesSent; }
+		public long getBytesReceived() { return bytesReceived; }
+	}
+
+	/**
+	 * @return metrics of every endpoint called, sorted by endpoint
+	 */
+	List<EndpointStatistics> getEndpoints();
+
+	/**
+	 * @return requests sent to every endpoint
+	 */
+	long getTotalRequests();
+
+	/**
+	 * @return requests to every endpoint that got no response, or a 5xx response
+	 */
+	long getTotalErrors();
+
+	/**
+	 * Clears the metrics of every endpoint.
+	 */
+	void reset();
+}
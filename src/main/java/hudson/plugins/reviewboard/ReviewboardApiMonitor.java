@@ -0,0 +1,121 @@
+/*
+ *
+ * Copyright (c) 2026, the Reviewboard plugin contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), the rights
+ * to use, copy, modify, merge, publish, distribute, and to permit persons to
+ * whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package hudson.plugins.reviewboard;
+
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.twelvegm.hudson.plugin.reviewboard.ApiMetrics;
+import com.twelvegm.hudson.plugin.reviewboard.LatencyHistogram;
+
+/**
+ * Exposes the metrics of the calls made to Reviewboard over JMX, reading them from the
+ * descriptor every time, so they stay current when the plugin is reconfigured.
+ */
+public class ReviewboardApiMonitor implements ReviewboardApiMXBean {
+
+	private static final Logger LOGGER = Logger.getLogger(ReviewboardApiMonitor.class.getName());
+
+	static final String OBJECT_NAME = "hudson.plugins.reviewboard:type=ReviewboardApi";
+
+	/**
+	 * Registers the monitor with the platform MBean server, replacing any left registered by
+	 * a previous instance of the plugin.
+	 */
+	@Initializer(after = InitMilestone.PLUGINS_STARTED)
+	public static void register() {
+		try{
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if(server.isRegistered(name))
+				server.unregisterMBean(name);
+			server.registerMBean(new ReviewboardApiMonitor(), name);
+		}catch(Exception e){
+			LOGGER.log(Level.WARNING, "Unable to register " + OBJECT_NAME + " with JMX", e);
+		}
+	}
+
+	public List<EndpointStatistics> getEndpoints() {
+
+		ApiMetrics metrics = ReviewboardMetricsLink.getMetrics();
+		if(metrics == null)
+			return Collections.emptyList();
+
+		List<EndpointStatistics> endpoints = new ArrayList<EndpointStatistics>();
+		for(ApiMetrics.Endpoint e: metrics.getEndpoints()){
+			LatencyHistogram latency = e.getLatency();
+			Long failStats = e.getStats().get("fail");
+			endpoints.add(new EndpointStatistics(
+					e.getName(),
+					e.getRequests(),
+					e.getNoResponse(),
+					e.getRejected(),
+					e.getStatusClassCount(4),
+					e.getStatusClassCount(5),
+					(failStats != null) ? failStats : 0L,
+					latency.getMean() / 1000.0,
+					latency.getPercentile(50) / 1000.0,
+					latency.getPercentile(90) / 1000.0,
+					latency.getPercentile(99) / 1000.0,
+					latency.getMax() / 1000.0,
+					e.getBytesSent(),
+					e.getBytesReceived()));
+		}
+		return endpoints;
+	}
+
+	public long getTotalRequests() {
+		long requests = 0L;
+		ApiMetrics metrics = ReviewboardMetricsLink.getMetrics();
+		if(metrics != null){
+			for(ApiMetrics.Endpoint e: metrics.getEndpoints())
+				requests += e.getRequests();
+		}
+		return requests;
+	}
+
+	public long getTotalErrors() {
+		long errors = 0L;
+		ApiMetrics metrics = ReviewboardMetricsLink.getMetrics();
+		if(metrics != null){
+			for(ApiMetrics.Endpoint e: metrics.getEndpoints())
+				errors += e.getNoResponse() + e.getStatusClassCount(5);
+		}
+		return errors;
+	}
+
+	public void reset() {
+		ApiMetrics metrics = ReviewboardMetricsLink.getMetrics();
+		if(metrics != null)
+			metrics.reset();
+	}
+}
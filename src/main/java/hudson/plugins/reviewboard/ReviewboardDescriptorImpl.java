@@ -2,6 +2,7 @@ package hudson.plugins.reviewboard;
 
 import hudson.Extension;
 import hudson.model.AbstractProject;
+import hudson.model.AutoCompletionCandidates;
 import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.Publisher;
 import hudson.util.FormValidation;
@@ -12,7 +13,6 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.UnknownHostException;
-import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -28,6 +28,8 @@ import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
 
 import com.google.common.collect.ImmutableSet;
+import com.twelvegm.hudson.plugin.reviewboard.ApiMetrics;
+import com.twelvegm.hudson.plugin.reviewboard.ConnectionSettings;
 import com.twelvegm.hudson.plugin.reviewboard.ReviewboardHttpAPI;
 
 /**
@@ -45,39 +47,70 @@ public final class ReviewboardDescriptorImpl extends BuildStepDescriptor<Publish
     private String password;
     private String cmdPath; 
     
-	private transient Set<String> reviewboardUsers = null;
-	private transient Set<String> reviewboardGroups = null;
+    // Submit changes through the Reviewboard API instead of post-review, falling back to post-review
+    // for changes that can't be submit natively.  Requires the repository the changes belong to.
+    private boolean nativeSubmission = false;
+    private String repository;
+    
+    // HTTP connection pool shared by every build talking to Reviewboard
+    private int maxTotalConnections = ConnectionSettings.DEFAULT_MAX_TOTAL_CONNECTIONS;
+    private int maxConnectionsPerHost = ConnectionSettings.DEFAULT_MAX_CONNECTIONS_PER_HOST;
+    private int idleConnectionTimeout = ConnectionSettings.DEFAULT_IDLE_CONNECTION_TIMEOUT / 1000; // seconds
+    private boolean preemptiveAuthentication = true;
+    
+    // Number of Reviewboard responses cached and revalidated before reuse; 0 disables the cache
+    private int responseCacheSize = ConnectionSettings.DEFAULT_RESPONSE_CACHE_SIZE;
+    
+    // Number of times a failed call to Reviewboard is retried, and the number of consecutive failures
+    // after which calls fail immediately for a number of seconds
+    private int maxRetries = ConnectionSettings.DEFAULT_MAX_RETRIES;
+    private int circuitBreakerThreshold = ConnectionSettings.DEFAULT_CIRCUIT_BREAKER_THRESHOLD;
+    private int circuitBreakerInterval = ConnectionSettings.DEFAULT_CIRCUIT_BREAKER_INTERVAL / 1000; // seconds
+    
+    // Seconds the result of a health check is reused before Reviewboard is probed again,
+    // and seconds to wait for Reviewboard to connect and respond when probing it
+    private int healthCheckTtl = 60;
+    private int healthCheckTimeout = 10;
+    
+    // Seconds post-review may run for in total, and without writing any output, before
+    // it is killed.  0 disables the timeout.
+    private int postReviewTimeout = 600;
+    private int postReviewIdleTimeout = 120;
+    
+    // Number of users or groups requested per page when loading them from Reviewboard,
+    // and how many pages may be requested at the same time
+    private int directoryPageSize = 200;
+    private int directoryFetchThreads = 1;
+    
+    // Number of threads delivering changes queued by builds with asynchronous delivery enabled
+    private int outboxThreads = 2;
+    
+    // Whether only administrators may read the Prometheus metrics, rather than anyone who can read Jenkins
+    private boolean metricsRequireAdmin = true;
+    
+	// Whether the plugin is configured and Reviewboard is available, checked in the background
+	private final transient ReviewboardHealthCheck healthCheck = new ReviewboardHealthCheck(this);
+	
+	// Users and groups in Reviewboard, loaded in the background
+	private final transient ReviewboardDirectory directory = new ReviewboardDirectory(this);
 	
 	private transient ReviewboardHttpAPI rbApi = null;
+	
+	// Metrics of the calls made to Reviewboard, kept when the API is replaced by a reconfiguration
+	private final transient ApiMetrics apiMetrics = new ApiMetrics();
+	
+	// Most names suggested at once when autocompleting reviewers and groups
+	private static final int MAX_AUTO_COMPLETE_CANDIDATES = 20;
 
     public ReviewboardDescriptorImpl(){
     	super(ReviewboardPublisher.class);
     	load();
     	
-    	this.populateReviewboardLists();
+    	// Loading users and groups may take a while, or hang if Reviewboard is unavailable,
+    	// so don't hold up Jenkins while it happens.
+    	this.directory.refreshAsync();
     }
 
-    /**
-     * Loads all users and groups from Reviewboard for use with dropdown population
-     * and validation checks.  Sets are immutable.
-     */
-    private void populateReviewboardLists(){
-    
-    	if(this.isPluginConfigured()){
-    		
-    		try {
-				reviewboardGroups = Collections.unmodifiableSet(this.getReviewboardAPI().getGroups(""));
-				reviewboardUsers = Collections.unmodifiableSet(this.getReviewboardAPI().getReviewers(""));
-			} catch (URIException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
-			} catch (NullPointerException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
-			}
-    	}
-    }
-    
     /**
      * Validates the regular expression supplied is a valid pattern for the external ID
      * as set on the Build's configuration page.
@@ -145,6 +178,22 @@ public final class ReviewboardDescriptorImpl extends BuildStepDescriptor<Publish
     	}
     }
     
+    /**
+     * Validates that the number of changes submit to Reviewboard at the same time is at least 1.
+     * 
+     * @param maxConcurrentSubmissions maximum number of concurrent submissions
+     * @return FormValidation.ok if the value is valid, FormValidation.error if not
+     * @throws IOException
+     * @throws ServletException
+     */
+    public FormValidation doCheckMaxConcurrentSubmissions(@QueryParameter Integer maxConcurrentSubmissions) throws IOException, ServletException {
+    	
+    	if(maxConcurrentSubmissions == null || maxConcurrentSubmissions >= 1)
+    		return FormValidation.ok();
+    	else
+    		return FormValidation.error("Must be at least 1");
+    }
+    
     /**
      * Validates that the Reviewboard URL supplied is available.
      * 
@@ -176,7 +225,9 @@ public final class ReviewboardDescriptorImpl extends BuildStepDescriptor<Publish
 	}
     
     /**
-     * Validates that the reviewers entered match existing Reviewboard users.
+     * Validates that the reviewers entered match existing Reviewboard users.  Users are
+     * looked up in the users loaded from Reviewboard; only names not found there are
+     * queried from Reviewboard, in case they were added since the last load.
      * 
      * @param defaultReviewers Comma-delimited list of reviewers to check
      * @return FormValidation.ok if field is empty or users all exist, otherwise FormValidation.error
@@ -187,9 +238,15 @@ public final class ReviewboardDescriptorImpl extends BuildStepDescriptor<Publish
     	
     	if(defaultReviewers != null && defaultReviewers.trim().length() > 0){
     		
+    		NameIndex index = this.directory.getUserIndex();
     		String[] userArray = defaultReviewers.split(",");
     		for(String user: userArray){
     			user = user.trim();
+    			boolean found = index.contains(user);
+    			PublisherMetrics.get().recordDirectoryLookup("users", found);
+    			if(found)
+    				continue;
+    			
         		Set<String> users = this.getReviewboardAPI().getReviewers(user);
         		if(users == null || users.size() == 0)
         			return FormValidation.error("Reviewer \"" + user + "\" was not found in Reviewboard.  Usernames are case-sensitive.");
@@ -205,7 +262,9 @@ public final class ReviewboardDescriptorImpl extends BuildStepDescriptor<Publish
     }
     
     /**
-     * Validates that the review groups entered match existing Reviewboard groups.
+     * Validates that the review groups entered match existing Reviewboard groups.  Groups are
+     * looked up in the groups loaded from Reviewboard; only names not found there are
+     * queried from Reviewboard, in case they were added since the last load.
      * 
      * @param defaultReviewGroups Comma-delimited list of groups to check
      * @return FormValidation.ok if field is empty or groups all exist, otherwise FormValidation.error
@@ -216,9 +275,15 @@ public final class ReviewboardDescriptorImpl extends BuildStepDescriptor<Publish
 		
     	if(defaultReviewGroups != null && defaultReviewGroups.trim().length() > 0){
     		
+    		NameIndex index = this.directory.getGroupIndex();
     		String[] groupArray = defaultReviewGroups.split(",");
     		for(String group: groupArray){
     			group = group.trim();
+    			boolean found = index.contains(group);
+    			PublisherMetrics.get().recordDirectoryLookup("groups", found);
+    			if(found)
+    				continue;
+    			
         		Set<String> groups = this.getReviewboardAPI().getGroups(group);
         		if(groups == null || groups.size() == 0)
         			return FormValidation.error("Group \"" + group + "\" was not found in Reviewboard.");
@@ -233,6 +298,36 @@ public final class ReviewboardDescriptorImpl extends BuildStepDescriptor<Publish
     	return FormValidation.ok();  
     }
     
+    /**
+     * Suggests Reviewboard users for the last reviewer being typed into the default reviewers field.
+     * 
+     * @param value current value of the field
+     * @return users starting with the last comma-delimited name in the field
+     */
+    public AutoCompletionCandidates doAutoCompleteDefaultReviewers(@QueryParameter String value) {
+    	return autoComplete(this.directory.getUserIndex(), value);
+    }
+    
+    /**
+     * Suggests Reviewboard groups for the last group being typed into the default review groups field.
+     * 
+     * @param value current value of the field
+     * @return groups starting with the last comma-delimited name in the field
+     */
+    public AutoCompletionCandidates doAutoCompleteDefaultReviewGroups(@QueryParameter String value) {
+    	return autoComplete(this.directory.getGroupIndex(), value);
+    }
+    
+    private static AutoCompletionCandidates autoComplete(NameIndex index, String value) {
+    	
+    	String prefix = (value == null) ? "" : value.substring(value.lastIndexOf(',') + 1).trim();
+    	
+    	AutoCompletionCandidates candidates = new AutoCompletionCandidates();
+    	for(String name: index.startingWith(prefix, MAX_AUTO_COMPLETE_CANDIDATES))
+    		candidates.add(name);
+    	return candidates;
+    }
+    
     public FormValidation doCheckForceUpdateOverride(@QueryParameter boolean forceUpdateOverride, @QueryParameter boolean skipUnflaggedChanges){
     	
     	if(forceUpdateOverride && !skipUnflaggedChanges)
@@ -278,9 +373,32 @@ public final class ReviewboardDescriptorImpl extends BuildStepDescriptor<Publish
         username = o.getString("username");
         password = o.getString("password");
         cmdPath = o.getString("cmdPath");
+        nativeSubmission = o.optBoolean("nativeSubmission", false);
+        repository = o.optString("repository", null);
+        maxTotalConnections = o.optInt("maxTotalConnections", ConnectionSettings.DEFAULT_MAX_TOTAL_CONNECTIONS);
+        maxConnectionsPerHost = o.optInt("maxConnectionsPerHost", ConnectionSettings.DEFAULT_MAX_CONNECTIONS_PER_HOST);
+        idleConnectionTimeout = o.optInt("idleConnectionTimeout", ConnectionSettings.DEFAULT_IDLE_CONNECTION_TIMEOUT / 1000);
+        preemptiveAuthentication = o.optBoolean("preemptiveAuthentication", true);
+        responseCacheSize = o.optInt("responseCacheSize", ConnectionSettings.DEFAULT_RESPONSE_CACHE_SIZE);
+        maxRetries = o.optInt("maxRetries", ConnectionSettings.DEFAULT_MAX_RETRIES);
+        circuitBreakerThreshold = o.optInt("circuitBreakerThreshold", ConnectionSettings.DEFAULT_CIRCUIT_BREAKER_THRESHOLD);
+        circuitBreakerInterval = o.optInt("circuitBreakerInterval", ConnectionSettings.DEFAULT_CIRCUIT_BREAKER_INTERVAL / 1000);
+        healthCheckTtl = o.optInt("healthCheckTtl", 60);
+        healthCheckTimeout = o.optInt("healthCheckTimeout", 10);
+        postReviewTimeout = o.optInt("postReviewTimeout", 600);
+        postReviewIdleTimeout = o.optInt("postReviewIdleTimeout", 120);
+        directoryPageSize = o.optInt("directoryPageSize", 200);
+        directoryFetchThreads = o.optInt("directoryFetchThreads", 1);
+        outboxThreads = o.optInt("outboxThreads", 2);
+        metricsRequireAdmin = o.optBoolean("metricsRequireAdmin", true);
         
         try {
-			rbApi = new ReviewboardHttpAPI(username, password, url);
+        	ReviewboardHttpAPI api = new ReviewboardHttpAPI(username, password, url, this.getConnectionSettings(), this.apiMetrics);
+        	synchronized(this){
+        		if(rbApi != null)
+        			rbApi.shutdown();
+        		rbApi = api;
+        	}
 		} catch (URIException e) {
 			throw new FormException(e, e.getMessage());
 		} catch (NullPointerException e) {
@@ -290,6 +408,10 @@ public final class ReviewboardDescriptorImpl extends BuildStepDescriptor<Publish
 		// Save to global config file
         save();
         
+        // Check and reload users and groups from the newly configured Reviewboard
+        healthCheck.invalidate();
+        directory.refreshAsync();
+        
         return super.configure(req,o);
     }
     
@@ -329,24 +451,172 @@ public final class ReviewboardDescriptorImpl extends BuildStepDescriptor<Publish
     	return cmdPath;
     }
     
+    /**
+     * Returns true if changes are submit through the Reviewboard API rather than post-review
+     * 
+     * @return true if native submission is enabled
+     */
+    public boolean getNativeSubmission() {
+    	return nativeSubmission;
+    }
+    
+    /**
+     * Returns the name, path or ID of the Reviewboard repository changes are submit to
+     * 
+     * @return reviewboard repository
+     */
+    public String getRepository() {
+    	return repository;
+    }
+    
+    /**
+     * Native submission is only possible once the repository has been configured.
+     * 
+     * @return true if changes should be submit through the Reviewboard API
+     */
+    protected boolean isNativeSubmissionEnabled() {
+    	return nativeSubmission && repository != null && !repository.trim().isEmpty();
+    }
+    
+    public int getMaxTotalConnections() {
+    	return maxTotalConnections;
+    }
+    
+    public int getMaxConnectionsPerHost() {
+    	return maxConnectionsPerHost;
+    }
+    
+    public int getIdleConnectionTimeout() {
+    	return idleConnectionTimeout;
+    }
+    
+    public boolean getPreemptiveAuthentication() {
+    	return preemptiveAuthentication;
+    }
+    
+    public int getResponseCacheSize() {
+    	return responseCacheSize;
+    }
+    
+    public int getMaxRetries() {
+    	return maxRetries;
+    }
+    
+    public int getCircuitBreakerThreshold() {
+    	return circuitBreakerThreshold;
+    }
+    
+    public int getCircuitBreakerInterval() {
+    	return circuitBreakerInterval;
+    }
+    
+    public int getHealthCheckTtl() {
+    	return (healthCheckTtl < 0) ? 0 : healthCheckTtl;
+    }
+    
+    public int getHealthCheckTimeout() {
+    	return (healthCheckTimeout < 1) ? 10 : healthCheckTimeout;
+    }
+    
+    public int getPostReviewTimeout() {
+    	return (postReviewTimeout < 0) ? 0 : postReviewTimeout;
+    }
+    
+    public int getPostReviewIdleTimeout() {
+    	return (postReviewIdleTimeout < 0) ? 0 : postReviewIdleTimeout;
+    }
+    
+    public int getDirectoryPageSize() {
+    	return (directoryPageSize < 1) ? 200 : directoryPageSize;
+    }
+    
+    public int getDirectoryFetchThreads() {
+    	return (directoryFetchThreads < 1) ? 1 : directoryFetchThreads;
+    }
+    
+    public int getOutboxThreads() {
+    	return (outboxThreads < 1) ? 2 : outboxThreads;
+    }
+    
+    public boolean getMetricsRequireAdmin() {
+    	return metricsRequireAdmin;
+    }
+    
+    /**
+     * Builds the connection pool settings for the Reviewboard API from the global configuration.
+     * 
+     * @return connection pool settings
+     */
+    protected ConnectionSettings getConnectionSettings(){
+    	ConnectionSettings settings = new ConnectionSettings();
+    	settings.setMaxTotalConnections(maxTotalConnections);
+    	settings.setMaxConnectionsPerHost(maxConnectionsPerHost);
+    	settings.setIdleConnectionTimeout(idleConnectionTimeout * 1000);
+    	settings.setPreemptiveAuthentication(preemptiveAuthentication);
+    	settings.setResponseCacheSize(responseCacheSize);
+    	settings.setMaxRetries(maxRetries);
+    	settings.setCircuitBreakerThreshold(circuitBreakerThreshold);
+    	settings.setCircuitBreakerInterval(circuitBreakerInterval * 1000);
+    	return settings;
+    }
+    
+    /**
+     * Returns the Reviewboard groups for use with dropdown population and validation checks.
+     * Empty until they have been loaded from Reviewboard.
+     * 
+     * @return immutable set of Reviewboard groups
+     */
     public Set<String> getReviewboardGroups(){
-    	return this.reviewboardGroups;
+    	return this.directory.getGroups();
     }
     
+    /**
+     * Returns the Reviewboard users for use with dropdown population and validation checks.
+     * Empty until they have been loaded from Reviewboard.
+     * 
+     * @return immutable set of Reviewboard users
+     */
     public Set<String> getReviewboardUsers(){
-    	return this.reviewboardUsers;
+    	return this.directory.getUsers();
+    }
+    
+    /**
+     * Returns true once users and groups have been loaded from Reviewboard.
+     * 
+     * @return true if the users and groups are available
+     */
+    public boolean isReviewboardDirectoryReady(){
+    	return this.directory.getState() == ReviewboardDirectory.State.READY;
+    }
+    
+    protected ReviewboardDirectory getDirectory(){
+    	return this.directory;
+    }
+    
+    protected ReviewboardHealthCheck getHealthCheck(){
+    	return this.healthCheck;
     }
     
     /**
-     * Returns a configured Reviewboard API
+     * Returns the metrics of every call made to Reviewboard since Jenkins started.
+     * 
+     * @return metrics of the calls to Reviewboard
+     */
+    public ApiMetrics getApiMetrics(){
+    	return this.apiMetrics;
+    }
+    
+    /**
+     * Returns a configured Reviewboard API.  The API pools its connections, so the same
+     * instance is shared by every build.
      * 
      * @return Configured and ready-to-use Reviewboard API, or null if an error occurred creating it
      * @throws URIException
      * @throws NullPointerException
      */
-    protected ReviewboardHttpAPI getReviewboardAPI() throws URIException, NullPointerException{
+    protected synchronized ReviewboardHttpAPI getReviewboardAPI() throws URIException, NullPointerException{
     	if(rbApi == null)
-    		rbApi = new ReviewboardHttpAPI(this.username, this.password, this.url);
+    		rbApi = new ReviewboardHttpAPI(this.username, this.password, this.url, this.getConnectionSettings(), this.apiMetrics);
     	
     	return rbApi;
     }
@@ -364,6 +634,8 @@ public final class ReviewboardDescriptorImpl extends BuildStepDescriptor<Publish
         if (url==null)  return false;
 		URI uri = new URI(url);
 		HttpURLConnection conn = (HttpURLConnection)uri.toURL().openConnection();
+		conn.setConnectTimeout(this.getHealthCheckTimeout() * 1000);
+		conn.setReadTimeout(this.getHealthCheckTimeout() * 1000);
 		
 		try{
 			return (conn.getResponseCode() >= 200 && conn.getResponseCode() < 300);
@@ -402,11 +674,23 @@ public final class ReviewboardDescriptorImpl extends BuildStepDescriptor<Publish
     /**
      * Validates that the plugin is properly configured and reviewboard is available.
      * This is called before the plugin is executed after a build to ensure that
-     * it can be executed properly.
+     * it can be executed properly.  The result of the last check is reused until its
+     * time to live expires, so this rarely has to wait on Reviewboard.
      * 
      * @return true if the plugin is properly configured and reviewboard is available, false otherwise
+     * @see ReviewboardHealthCheck
      */
     protected boolean isPluginConfigured(){
+    	return healthCheck.isHealthy();
+    }
+    
+    /**
+     * Probes Reviewboard and validates the post-review executable, without using the
+     * result of a previous check.
+     * 
+     * @return true if the plugin is properly configured and reviewboard is available, false otherwise
+     */
+    protected boolean checkPluginConfiguration(){
     	return (isSavedURLValid() && isSavedCommandPathValid());
     }
 }
@@ -0,0 +1,215 @@
+/*
+ *
+ * Copyright (c) 2026, the Reviewboard plugin contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), the rights
+ * to use, copy, modify, merge, publish, distribute, and to permit persons to
+ * whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package hudson.plugins.reviewboard;
+
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.Hudson;
+import hudson.model.TaskListener;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.twelvegm.hudson.plugin.reviewboard.ReviewboardHttpAPI;
+
+/**
+ * In-memory copy of the users and groups in Reviewboard, used to validate and
+ * autocomplete the reviewer and group fields of the build configuration.  The copy is loaded on a
+ * background thread so that a slow or unreachable Reviewboard never holds up Jenkins,
+ * and is refreshed periodically by {@link Refresher}.  Until the first load completes
+ * the directory is empty; after that, a failed refresh leaves the last copy in place.
+ */
+public final class ReviewboardDirectory {
+
+	private static final Logger LOGGER = Logger.getLogger(ReviewboardDirectory.class.getName());
+
+	// How often the directory is reloaded from Reviewboard.
+	private static final long REFRESH_INTERVAL = 15L * 60L * 1000L; // 15 minutes
+
+	/**
+	 * Readiness of the directory.
+	 */
+	enum State {
+		// Nothing has been loaded yet, usually because the plugin isn't configured
+		NOT_LOADED,
+
+		// The first load is in progress
+		LOADING,
+
+		// Users and groups have been loaded
+		READY,
+
+		// The last load failed; users and groups are those of the last successful load, if any
+		FAILED
+	}
+
+	private final ReviewboardDescriptorImpl descriptor;
+
+	private volatile Set<String> users = Collections.emptySet();
+	private volatile Set<String> groups = Collections.emptySet();
+	private volatile NameIndex userIndex = NameIndex.EMPTY;
+	private volatile NameIndex groupIndex = NameIndex.EMPTY;
+	private volatile State state = State.NOT_LOADED;
+	private volatile long lastLoaded = 0L;
+
+	// Guards against queueing another load while one is already pending or running
+	private final AtomicBoolean loadPending = new AtomicBoolean(false);
+
+	private final ExecutorService loader = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "Reviewboard user and group loader");
+			t.setDaemon(true);
+			return t;
+		}
+	});
+
+	ReviewboardDirectory(final ReviewboardDescriptorImpl descriptor) {
+		this.descriptor = descriptor;
+	}
+
+	/**
+	 * @return users loaded from Reviewboard, or an empty set if none have been loaded yet. Immutable.
+	 */
+	Set<String> getUsers() {
+		return users;
+	}
+
+	/**
+	 * @return groups loaded from Reviewboard, or an empty set if none have been loaded yet. Immutable.
+	 */
+	Set<String> getGroups() {
+		return groups;
+	}
+
+	/**
+	 * @return index over the users loaded from Reviewboard
+	 */
+	NameIndex getUserIndex() {
+		return userIndex;
+	}
+
+	/**
+	 * @return index over the groups loaded from Reviewboard
+	 */
+	NameIndex getGroupIndex() {
+		return groupIndex;
+	}
+
+	/**
+	 * @return readiness of the directory
+	 */
+	State getState() {
+		return state;
+	}
+
+	/**
+	 * @return time, in milliseconds, of the last successful load, or 0 if there hasn't been one
+	 */
+	long getLastLoaded() {
+		return lastLoaded;
+	}
+
+	/**
+	 * Queues a reload of the directory on the background loader thread and returns
+	 * immediately.  Does nothing if a reload is already queued or running.
+	 */
+	void refreshAsync() {
+		if(!loadPending.compareAndSet(false, true))
+			return;
+
+		if(state == State.NOT_LOADED)
+			state = State.LOADING;
+
+		loader.execute(new Runnable() {
+			public void run() {
+				try{
+					refresh();
+				}finally{
+					loadPending.set(false);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Reloads the directory from Reviewboard on the calling thread.
+	 */
+	private void refresh() {
+
+		if(!descriptor.isPluginConfigured()){
+			if(state == State.LOADING)
+				state = State.NOT_LOADED;
+			return;
+		}
+
+		try{
+			ReviewboardHttpAPI api = descriptor.getReviewboardAPI();
+			int pageSize = descriptor.getDirectoryPageSize();
+			int threads = descriptor.getDirectoryFetchThreads();
+			Set<String> loadedGroups = Collections.unmodifiableSet(api.getAllGroups(pageSize, threads));
+			Set<String> loadedUsers = Collections.unmodifiableSet(api.getAllReviewers(pageSize, threads));
+
+			NameIndex loadedGroupIndex = new NameIndex(loadedGroups);
+			NameIndex loadedUserIndex = new NameIndex(loadedUsers);
+
+			groups = loadedGroups;
+			users = loadedUsers;
+			groupIndex = loadedGroupIndex;
+			userIndex = loadedUserIndex;
+			lastLoaded = System.currentTimeMillis();
+			state = State.READY;
+		}catch(Exception e){
+			LOGGER.log(Level.WARNING, "Unable to load users and groups from Reviewboard", e);
+			state = State.FAILED;
+		}
+	}
+
+	/**
+	 * Periodically reloads the users and groups from Reviewboard.
+	 */
+	@Extension
+	public static class Refresher extends AsyncPeriodicWork {
+
+		public Refresher() {
+			super("Reviewboard user and group refresh");
+		}
+
+		@Override
+		public long getRecurrencePeriod() {
+			return REFRESH_INTERVAL;
+		}
+
+		@Override
+		protected void execute(TaskListener listener) throws IOException, InterruptedException {
+			ReviewboardDescriptorImpl descriptor = Hudson.getInstance().getDescriptorByType(ReviewboardDescriptorImpl.class);
+			if(descriptor != null)
+				descriptor.getDirectory().refreshAsync();
+		}
+	}
+}
@@ -0,0 +1,170 @@
+/*
+ *
+ * Copyright (c) 2026, the Reviewboard plugin contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), the rights
+ * to use, copy, modify, merge, publish, distribute, and to permit persons to
+ * whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package hudson.plugins.reviewboard;
+
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.Hudson;
+import hudson.model.TaskListener;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Remembers whether the plugin is properly configured and Reviewboard is available, so
+ * builds don't have to probe Reviewboard and validate the post-review executable every
+ * time they run.  The result is kept for a configurable time to live.  Once it expires,
+ * the cached result is still returned while a new check runs in the background, and
+ * {@link Refresher} keeps the result fresh between builds.  Only the very first check
+ * runs on the caller's thread.
+ */
+public final class ReviewboardHealthCheck {
+
+	// How often the background refresher looks for an expired result.
+	private static final long REFRESH_INTERVAL = 60L * 1000L; // 1 minute
+
+	private final ReviewboardDescriptorImpl descriptor;
+
+	private volatile boolean healthy = false;
+	private volatile long checkedAt = 0L;
+
+	// Incremented by every invalidation, so a check started before it can't store its result after it
+	private long generation = 0L;
+
+	// Guards against queueing another check while one is already pending or running
+	private final AtomicBoolean checkPending = new AtomicBoolean(false);
+
+	private final ExecutorService checker = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "Reviewboard health check");
+			t.setDaemon(true);
+			return t;
+		}
+	});
+
+	ReviewboardHealthCheck(final ReviewboardDescriptorImpl descriptor) {
+		this.descriptor = descriptor;
+	}
+
+	/**
+	 * Returns the result of the last health check, checking on the calling thread only if
+	 * there has never been a check and in the background if the last result has expired.
+	 *
+	 * @return true if the plugin is properly configured and Reviewboard is available, false otherwise
+	 */
+	boolean isHealthy() {
+		if(checkedAt == 0L)
+			return check();
+
+		if(isExpired())
+			checkAsync();
+
+		return healthy;
+	}
+
+	/**
+	 * Forgets the result of the last health check, typically because the configuration changed.
+	 */
+	synchronized void invalidate() {
+		generation++;
+		checkedAt = 0L;
+	}
+
+	/**
+	 * @return time, in milliseconds, of the last check, or 0 if there hasn't been one
+	 */
+	long getCheckedAt() {
+		return checkedAt;
+	}
+
+	private boolean isExpired() {
+		return System.currentTimeMillis() - checkedAt >= descriptor.getHealthCheckTtl() * 1000L;
+	}
+
+	/**
+	 * Checks the plugin's health on the calling thread and caches the result, unless the
+	 * result was invalidated while the check ran, since it may then be for the old configuration.
+	 *
+	 * @return true if the plugin is properly configured and Reviewboard is available, false otherwise
+	 */
+	boolean check() {
+		long started;
+		synchronized(this){
+			started = generation;
+		}
+
+		boolean result = descriptor.checkPluginConfiguration();
+
+		synchronized(this){
+			if(started == generation){
+				healthy = result;
+				checkedAt = System.currentTimeMillis();
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Queues a check on the background thread and returns immediately.  Does nothing if
+	 * a check is already queued or running.
+	 */
+	void checkAsync() {
+		if(!checkPending.compareAndSet(false, true))
+			return;
+
+		checker.execute(new Runnable() {
+			public void run() {
+				try{
+					check();
+				}finally{
+					checkPending.set(false);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Periodically re-checks the plugin's health once the last result has expired.
+	 */
+	@Extension
+	public static class Refresher extends AsyncPeriodicWork {
+
+		public Refresher() {
+			super("Reviewboard health check");
+		}
+
+		@Override
+		public long getRecurrencePeriod() {
+			return REFRESH_INTERVAL;
+		}
+
+		@Override
+		protected void execute(TaskListener listener) throws IOException, InterruptedException {
+			ReviewboardDescriptorImpl descriptor = Hudson.getInstance().getDescriptorByType(ReviewboardDescriptorImpl.class);
+			if(descriptor != null && descriptor.getHealthCheck().isExpired())
+				descriptor.getHealthCheck().check();
+		}
+	}
+}
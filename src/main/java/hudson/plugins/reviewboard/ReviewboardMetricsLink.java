@@ -0,0 +1,105 @@
+/*
+ *
+ * Copyright (c) 2026, the Reviewboard plugin contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), the rights
+ * to use, copy, modify, merge, publish, distribute, and to permit persons to
+ * whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package hudson.plugins.reviewboard;
+
+import hudson.Extension;
+import hudson.model.Hudson;
+import hudson.model.ManagementLink;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+import com.twelvegm.hudson.plugin.reviewboard.ApiMetrics;
+
+/**
+ * Page, under Manage Jenkins, showing the metrics of the calls made to Reviewboard: per
+ * endpoint, the number of requests, their latency percentiles, HTTP statuses and "stat"
+ * outcomes, and the bytes sent and received.
+ */
+@Extension
+public class ReviewboardMetricsLink extends ManagementLink {
+
+	@Override
+	public String getIconFileName() {
+		return "monitor.gif";
+	}
+
+	@Override
+	public String getUrlName() {
+		return "reviewboard-metrics";
+	}
+
+	public String getDisplayName() {
+		return "Reviewboard Metrics";
+	}
+
+	@Override
+	public String getDescription() {
+		return "Latency, errors and traffic of the calls made to Reviewboard, per endpoint.";
+	}
+
+	/**
+	 * @return metrics of every endpoint called since Jenkins started, or was reset
+	 */
+	public List<ApiMetrics.Endpoint> getEndpoints() {
+		ApiMetrics metrics = getMetrics();
+		return (metrics != null) ? metrics.getEndpoints() : Collections.<ApiMetrics.Endpoint>emptyList();
+	}
+
+	/**
+	 * Formats a latency for display.
+	 *
+	 * @param micros latency in microseconds
+	 * @return latency in milliseconds, to a tenth of a millisecond
+	 */
+	public String formatMillis(final long micros) {
+		return String.format("%.1f", micros / 1000.0);
+	}
+
+	/**
+	 * Clears the metrics of every endpoint.
+	 */
+	public void doReset(final StaplerRequest req, final StaplerResponse rsp) throws IOException {
+		Hudson.getInstance().checkPermission(Hudson.ADMINISTER);
+		if(!"POST".equals(req.getMethod())){
+			rsp.sendError(405);
+			return;
+		}
+
+		ApiMetrics metrics = getMetrics();
+		if(metrics != null)
+			metrics.reset();
+		rsp.sendRedirect(".");
+	}
+
+	static ApiMetrics getMetrics() {
+		Hudson hudson = Hudson.getInstance();
+		if(hudson == null)
+			return null;
+		ReviewboardDescriptorImpl descriptor = hudson.getDescriptorByType(ReviewboardDescriptorImpl.class);
+		return (descriptor != null) ? descriptor.getApiMetrics() : null;
+	}
+}
@@ -0,0 +1,361 @@
+/*
+ *
+ * Copyright (c) 2026, the Reviewboard plugin contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), the rights
+ * to use, copy, modify, merge, publish, distribute, and to permit persons to
+ * whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package hudson.plugins.reviewboard;
+
+import hudson.Launcher;
+import hudson.XmlFile;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.BuildListener;
+import hudson.model.Computer;
+import hudson.model.Hudson;
+import hudson.model.Node;
+import hudson.model.StreamBuildListener;
+import hudson.security.ACL;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.acegisecurity.Authentication;
+import org.acegisecurity.context.SecurityContextHolder;
+
+/**
+ * Delivers changes to Reviewboard after the build that picked them up has completed,
+ * so a slow Reviewboard doesn't hold up builds or their executors.  Changes are queued
+ * while the build runs, and their delivery waits for the build to finish.
+ *
+ * Every queued changeset is written to its own file under JENKINS_HOME/reviewboard-outbox
+ * before it is queued, and the file is only deleted once the changeset has been delivered,
+ * so changesets queued before a restart are delivered once Jenkins is back up.  Changesets
+ * of the same job are always delivered in the order they were queued, since a later build
+ * may update review requests created by an earlier one: each job has its own queue, whose
+ * head is delivered, or retried in place, before anything behind it.  Changesets of
+ * different jobs are delivered in parallel.  Progress is logged to reviewboard.log in the build's directory.
+ */
+public final class ReviewboardOutbox {
+
+	private static final Logger LOGGER = Logger.getLogger(ReviewboardOutbox.class.getName());
+
+	// Name of the directory, stored in JENKINS_HOME, holding queued changesets.
+	private static final String OUTBOX_DIR_NAME = "reviewboard-outbox";
+
+	// Name of the file, stored in the build's directory, deliveries are logged to.
+	static final String LOG_FILE_NAME = "reviewboard.log";
+
+	// How long to wait before trying again when Reviewboard is unavailable, and how long
+	// after being queued a changeset is given up on.
+	private static final long RETRY_DELAY = 60L * 1000L; // 1 minute
+	private static final long MAX_AGE = 24L * 60L * 60L * 1000L; // 1 day
+
+	// How often to check whether the build that queued a changeset has finished.
+	private static final long BUILD_POLL_DELAY = 5L * 1000L; // 5 seconds
+
+	private static ReviewboardOutbox instance;
+
+	private final File dir;
+
+	// Each job's changesets are delivered by the same single-threaded worker.
+	private final ScheduledExecutorService[] workers;
+
+	// Changesets waiting to be delivered, in order, by job.  A job has a queue only while it has
+	// changesets waiting, and then exactly one delivery of the head of its queue scheduled.
+	private final Map<String, LinkedList<Item>> queues = new HashMap<String, LinkedList<Item>>();
+
+	private final AtomicLong sequence = new AtomicLong();
+
+	/**
+	 * A changeset waiting to be delivered.
+	 */
+	static final class Item {
+
+		private final String id;
+		private final String jobName;
+		private final int buildNumber;
+		private final long queuedAt;
+		private final List<ChangeRecord> changes;
+
+		private Item(final String id, final String jobName, final int buildNumber, final List<ChangeRecord> changes) {
+			this.id = id;
+			this.jobName = jobName;
+			this.buildNumber = buildNumber;
+			this.queuedAt = System.currentTimeMillis();
+			this.changes = new ArrayList<ChangeRecord>(changes);
+		}
+	}
+
+	private ReviewboardOutbox(final File dir, final int threads) {
+		this.dir = dir;
+		this.workers = new ScheduledExecutorService[threads];
+		for(int i = 0; i < threads; i++){
+			final int worker = i + 1;
+			this.workers[i] = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "Reviewboard outbox worker #" + worker);
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+	}
+
+	/**
+	 * Returns the outbox, creating it the first time it is requested.  The number of
+	 * workers is read from the global configuration at that time.
+	 *
+	 * @return the outbox
+	 */
+	public static synchronized ReviewboardOutbox get() {
+		if(instance == null){
+			ReviewboardDescriptorImpl descriptor = Hudson.getInstance().getDescriptorByType(ReviewboardDescriptorImpl.class);
+			int threads = (descriptor != null) ? descriptor.getOutboxThreads() : 1;
+			instance = new ReviewboardOutbox(new File(Hudson.getInstance().getRootDir(), OUTBOX_DIR_NAME), threads);
+		}
+		return instance;
+	}
+
+	/**
+	 * Counts the changesets waiting to be delivered, without starting the outbox if it hasn't been.
+	 *
+	 * @return number of changesets on disk, waiting to be delivered or being delivered
+	 */
+	public static int getQueueDepth() {
+		String[] names = new File(Hudson.getInstance().getRootDir(), OUTBOX_DIR_NAME).list(new FilenameFilter() {
+			public boolean accept(File d, String name) {
+				return name.endsWith(".xml");
+			}
+		});
+		return (names != null) ? names.length : 0;
+	}
+
+	/**
+	 * Queues changes picked up by a build for delivery.  The changes are on disk by the time this returns.
+	 *
+	 * @param build build that picked up the changes
+	 * @param changes changes to deliver
+	 * @throws IOException if the changes couldn't be written to disk
+	 */
+	public void enqueue(final AbstractBuild<?,?> build, final List<ChangeRecord> changes) throws IOException {
+
+		// Zero-padded so that sorting file names sorts changesets in the order they were queued
+		String id = String.format("%013d-%06d", System.currentTimeMillis(), sequence.incrementAndGet() % 1000000);
+
+		Item item = new Item(id, build.getParent().getFullName(), build.getNumber(), changes);
+		fileFor(item).write(item);
+		offer(item);
+	}
+
+	/**
+	 * Queues every changeset left on disk, typically by a restart of Jenkins before it was delivered.
+	 */
+	@Initializer(after = InitMilestone.JOB_LOADED)
+	public static void resume() {
+		get().resumeQueued();
+	}
+
+	private void resumeQueued() {
+
+		String[] names = dir.list(new FilenameFilter() {
+			public boolean accept(File d, String name) {
+				return name.endsWith(".xml");
+			}
+		});
+		if(names == null)
+			return;
+
+		Arrays.sort(names);
+		for(String name: names){
+			XmlFile file = new XmlFile(Hudson.XSTREAM, new File(dir, name));
+			try{
+				Item item = (Item)file.read();
+				offer(item);
+			}catch(Exception e){
+				LOGGER.log(Level.WARNING, "Discarding unreadable Reviewboard changeset " + file, e);
+				file.delete();
+			}
+		}
+
+		if(names.length > 0)
+			LOGGER.info("Resumed delivery of " + names.length + " changesets to Reviewboard");
+	}
+
+	/**
+	 * Adds a changeset to the end of its job's queue, scheduling its delivery if the queue was empty.
+	 */
+	private void offer(final Item item) {
+		synchronized(queues){
+			LinkedList<Item> queue = queues.get(item.jobName);
+			if(queue == null){
+				queue = new LinkedList<Item>();
+				queues.put(item.jobName, queue);
+			}
+			queue.add(item);
+			if(queue.size() == 1)
+				schedule(item.jobName, 0L);
+		}
+	}
+
+	/**
+	 * Schedules the delivery of the head of a job's queue.
+	 */
+	private void schedule(final String jobName, final long delay) {
+		int worker = (jobName.hashCode() & Integer.MAX_VALUE) % workers.length;
+		workers[worker].schedule(new Runnable() {
+			public void run() {
+				deliverHead(jobName);
+			}
+		}, delay, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Delivers the changeset at the head of a job's queue, as the system, since workers have no
+	 * user to look jobs up as.  The changeset stays at the head until it has been delivered or
+	 * given up on, so retries never let a later changeset of the job overtake it.
+	 */
+	private void deliverHead(final String jobName) {
+
+		Item item;
+		synchronized(queues){
+			item = queues.get(jobName).getFirst();
+		}
+
+		long delay;
+		Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+		SecurityContextHolder.getContext().setAuthentication(ACL.SYSTEM);
+		try{
+			delay = deliver(item);
+		}finally{
+			SecurityContextHolder.getContext().setAuthentication(authentication);
+		}
+
+		synchronized(queues){
+			LinkedList<Item> queue = queues.get(jobName);
+			if(delay < 0){
+				fileFor(item).delete();
+				queue.removeFirst();
+				if(queue.isEmpty()){
+					queues.remove(jobName);
+					return;
+				}
+				delay = 0L;
+			}
+			schedule(jobName, delay);
+		}
+	}
+
+	private XmlFile fileFor(final Item item) {
+		return new XmlFile(Hudson.XSTREAM, new File(dir, item.id + ".xml"));
+	}
+
+	/**
+	 * Delivers a changeset to Reviewboard, attaching the resulting review information to its build.
+	 *
+	 * @return time, in milliseconds, to wait before trying again, or -1 if the changeset is done with
+	 */
+	private long deliver(final Item item) {
+
+		long delay = -1L;
+		BuildListener listener = null;
+		try{
+			AbstractProject<?,?> job = Hudson.getInstance().getItemByFullName(item.jobName, AbstractProject.class);
+			AbstractBuild<?,?> build = (job != null) ? job.getBuildByNumber(item.buildNumber) : null;
+			ReviewboardPublisher publisher = (job != null) ? job.getPublishersList().get(ReviewboardPublisher.class) : null;
+			if(build == null || publisher == null){
+				LOGGER.warning("Discarding changeset for " + item.jobName + " #" + item.buildNumber + ", the build or its Reviewboard publisher no longer exists");
+				return delay;
+			}
+
+			// Changes are delivered after the build, not while it is still running
+			if(build.isBuilding())
+				return BUILD_POLL_DELAY;
+
+			listener = new StreamBuildListener(new FileOutputStream(new File(build.getRootDir(), LOG_FILE_NAME), true));
+
+			// Wait for Reviewboard to come back rather than failing every change in the changeset
+			if(!publisher.getDescriptor().isPluginConfigured()){
+				if(System.currentTimeMillis() - item.queuedAt < MAX_AGE){
+					listener.getLogger().println("Reviewboard is unavailable or the plugin is not configured properly, will try again in " + (RETRY_DELAY / 1000) + " seconds.");
+					delay = RETRY_DELAY;
+				}else{
+					listener.getLogger().println("Reviewboard has been unavailable since the changes were queued on " + new Date(item.queuedAt) + ", giving up.");
+				}
+				return delay;
+			}
+
+			listener.getLogger().println("---- Beginning Reviewboard delivery of changes queued on " + new Date(item.queuedAt) + " ----");
+			boolean status = publisher.submitChanges(item.changes, build, createLauncher(build, listener), listener);
+			listener.getLogger().println("---- Ending Reviewboard delivery: " + ((status)? "SUCCESSFUL" : "FAILURE") + " ----");
+
+			// Persist the review information added to the build.  The changes have been delivered by
+			// now, so failing to save them mustn't get them delivered again.
+			try{
+				build.save();
+			}catch(IOException e){
+				LOGGER.log(Level.WARNING, "Unable to save the review information of " + item.jobName + " #" + item.buildNumber, e);
+			}
+		}catch(Exception e){
+			// Nothing has been submit yet, so the whole changeset can be tried again
+			if(System.currentTimeMillis() - item.queuedAt < MAX_AGE){
+				LOGGER.log(Level.WARNING, "Unable to deliver changeset for " + item.jobName + " #" + item.buildNumber + " to Reviewboard, will try again in " + (RETRY_DELAY / 1000) + " seconds", e);
+				delay = RETRY_DELAY;
+			}else{
+				LOGGER.log(Level.WARNING, "Unable to deliver changeset for " + item.jobName + " #" + item.buildNumber + " to Reviewboard, giving up", e);
+			}
+			if(listener != null)
+				e.printStackTrace(listener.getLogger());
+		}finally{
+			if(listener != null)
+				listener.getLogger().close();
+		}
+
+		return delay;
+	}
+
+	/**
+	 * Creates a launcher on the node the build ran on, if it's still online, so post-review
+	 * runs where it would have during the build.  Falls back to the master otherwise.
+	 */
+	private static Launcher createLauncher(final AbstractBuild<?,?> build, final BuildListener listener) {
+		Node node = build.getBuiltOn();
+		Computer computer = (node != null) ? node.toComputer() : null;
+		if(computer != null && computer.getChannel() != null)
+			return node.createLauncher(listener);
+		return Hudson.getInstance().createLauncher(listener);
+	}
+}
@@ -22,13 +22,14 @@
 package hudson.plugins.reviewboard;
 
 import hudson.EnvVars;
+import hudson.FilePath;
 import hudson.Launcher;
-import hudson.Proc;
 import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Action;
 import hudson.model.BuildListener;
 import hudson.model.Run;
-import hudson.plugins.perforce.HudsonPipedOutputStream;
-import hudson.plugins.perforce.PerforceChangeLogEntry;
+import hudson.model.StreamBuildListener;
 import hudson.plugins.perforce.PerforceSCM;
 import hudson.plugins.perforce.PerforceSCM.PerforceSCMDescriptor;
 import hudson.scm.AbstractScmTagAction;
@@ -39,28 +40,37 @@ import hudson.tasks.BuildStepMonitor;
 import hudson.tasks.Notifier;
 import hudson.util.ArgumentListBuilder;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
 import java.io.PrintStream;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.regex.Matcher;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 import org.kohsuke.stapler.DataBoundConstructor;
 
+import com.twelvegm.hudson.plugin.reviewboard.DraftUpdate;
+import com.twelvegm.hudson.plugin.reviewboard.ReviewboardHttpAPI;
+
 /**
  * Creates a Publisher that will notify inspect the build for change sets, and if included,
  * notifies a Reviewboard (http://www.reviewboard.org) installation to either creates a new
@@ -78,19 +88,17 @@ import org.kohsuke.stapler.DataBoundConstructor;
  */
 public class ReviewboardPublisher extends Notifier {
 
-	// Pattern of response from reviewboard's post-review command used to parse the review ID.
-	// Example response pattern must match:  Review request #36 posted.
-	private static String reviewBoardIDRegEx = "[\\w\\s\\.]+#([0-9]+)[\\w\\s\\.]+";
-	private static Pattern reviewBoardIDRegExPattern = Pattern.compile(reviewBoardIDRegEx);
-	
-	// Pattern of error response from failed attempt to submit a new, or update an existing, review request
-	private static String reviewBoardHTTPErrorRegEx = "[a-zA-Z\\s]+([\\d]+):[a-zA-Z\\s]+([\\d]+)";
-	private static Pattern reviewBoardHTTPErrorPattern = Pattern.compile(reviewBoardHTTPErrorRegEx);
+	// Longest list of files passed to post-review on its command line, in characters.  Longer lists,
+	// which would make the command line too long to start post-review, are replaced by a diff file.
+	private static final int MAX_FILE_ARGUMENTS_LENGTH = 32000;
 	
 	// Pattern of a key in the change description that maps to an External ID
 	private String keyRegEx = "";
 	private Pattern keyRegExPattern = null;
 	
+	// Scanner of change descriptions for the key and override flags, built from keyRegExPattern on first use
+	private transient volatile DescriptionScanner scanner;
+	
 	// Default params used when creating or publishing reviews
 	private String defaultReviewGroups = "";
 	private String defaultReviewers = "";
@@ -116,6 +124,22 @@ public class ReviewboardPublisher extends Notifier {
 	// If creating or updating review requests in Reviewboard fail, should we also fail the build?
 	private boolean failBuildOnReviewboardError = false;
 	
+	// Maximum number of changes with different external IDs submit to Reviewboard at the same time.
+	// Changes sharing an external ID are always submit one after the other. 0 or 1 = one change at a time.
+	private int maxConcurrentSubmissions = 1;
+	
+	// Deliver changes to Reviewboard through the outbox after the build completes, instead of during the build.
+	// The build's result is never affected by the delivery.
+	private boolean asyncDelivery = false;
+	
+	// Submit every change of a build sharing an external ID as a single update of its review request,
+	// instead of one update, and one email to reviewers, per change.
+	private boolean coalesceChanges = false;
+	
+	// Number of minutes updates of an existing review request are collected before it is published,
+	// so builds updating it in quick succession publish it once.  0 = publish every update.
+	private int publishDebounceMinutes = 0;
+	
 	/**
 	 * Defines override actions that the plugin can inspect the change description for to
 	 * allow the author of the change to override the default behavior of {@link #defaultActionOverrideSkip}.
@@ -161,7 +185,7 @@ public class ReviewboardPublisher extends Notifier {
     @DataBoundConstructor
     // Commented out debugPostReview param currently because debug mode hangs Hudson due to leaking file handles
     //public ReviewboardPublisher(String keyRegEx, Integer daysBeforeStaleReview, String defaultReviewGroups, String defaultReviewers, boolean authorAsReviewer, boolean publishReviews, boolean skipUnflaggedChanges, boolean forceUpdateOverride, boolean failBuildOnReviewboardError, boolean debugPostReview) {
-    public ReviewboardPublisher(String keyRegEx, Integer daysBeforeStaleReview, String defaultReviewGroups, String defaultReviewers, boolean authorAsReviewer, boolean publishReviews, boolean skipUnflaggedChanges, boolean forceUpdateOverride, boolean failBuildOnReviewboardError) {
+    public ReviewboardPublisher(String keyRegEx, Integer daysBeforeStaleReview, String defaultReviewGroups, String defaultReviewers, boolean authorAsReviewer, boolean publishReviews, boolean skipUnflaggedChanges, boolean forceUpdateOverride, boolean failBuildOnReviewboardError, Integer maxConcurrentSubmissions, boolean asyncDelivery, boolean coalesceChanges, Integer publishDebounceMinutes) {
     	
     	this.defaultReviewGroups = defaultReviewGroups;
     	this.daysBeforeStaleReview = daysBeforeStaleReview;
@@ -172,6 +196,10 @@ public class ReviewboardPublisher extends Notifier {
     	this.forceUpdateOverride = forceUpdateOverride;
     	this.failBuildOnReviewboardError = failBuildOnReviewboardError;
     	//this.debugPostReview = debugPostReview;
+    	this.maxConcurrentSubmissions = (maxConcurrentSubmissions == null) ? 1 : maxConcurrentSubmissions;
+    	this.asyncDelivery = asyncDelivery;
+    	this.coalesceChanges = coalesceChanges;
+    	this.publishDebounceMinutes = (publishDebounceMinutes == null) ? 0 : publishDebounceMinutes;
     	
     	if(daysBeforeStaleReview == null)
     		this.daysBeforeStaleReview = -1;
@@ -232,6 +260,22 @@ public class ReviewboardPublisher extends Notifier {
 		return failBuildOnReviewboardError;
 	}
     
+    public int getMaxConcurrentSubmissions() {
+    	return (maxConcurrentSubmissions < 1) ? 1 : maxConcurrentSubmissions;
+    }
+    
+    public boolean getAsyncDelivery() {
+    	return asyncDelivery;
+    }
+    
+    public boolean getCoalesceChanges() {
+    	return coalesceChanges;
+    }
+    
+    public int getPublishDebounceMinutes() {
+    	return (publishDebounceMinutes < 0) ? 0 : publishDebounceMinutes;
+    }
+    
     // Commented out debugPostReview param currently because debug mode hangs Hudson due to leaking file handles
     /*
     public boolean getDebugPostReview() {
@@ -244,8 +288,18 @@ public class ReviewboardPublisher extends Notifier {
         return (ReviewboardDescriptorImpl)super.getDescriptor();
     }
 
+    /**
+     * Shows the trend of the time builds spent sending changes to Reviewboard on the job page.
+     */
+    @Override
+    public Action getProjectAction(AbstractProject<?,?> project) {
+    	return new ReviewboardTimingProjectAction(project);
+    }
+    
+    @Override
     public BuildStepMonitor getRequiredMonitorService() {
-    	return BuildStepMonitor.BUILD;
+    	// The outbox keeps deliveries for the same job in order, so builds don't need to wait on each other
+    	return (this.asyncDelivery) ? BuildStepMonitor.NONE : BuildStepMonitor.BUILD;
     }
     
     /**
@@ -264,8 +318,11 @@ public class ReviewboardPublisher extends Notifier {
     	boolean status = false;
     	
     	try{
+    	// Queued changes wait in the outbox until Reviewboard can be reached, so they are queued even while it's down
+    	if(this.asyncDelivery)
+    		status = queueChangeset(build, listener);
     	// If the plugin has been properly configured, we can run the task...
-    	if(!this.getDescriptor().isPluginConfigured())
+    	else if(!this.getDescriptor().isPluginConfigured())
     		listener.getLogger().println("Plugin is not configured properly, skipping action");
     	else
     		status = processChangeset(build, launcher, listener);
@@ -283,108 +340,366 @@ public class ReviewboardPublisher extends Notifier {
     	return status;
     }
     
-    public boolean processChangeset(AbstractBuild build, Launcher launcher, BuildListener listener) {    	
+    public boolean processChangeset(final AbstractBuild build, final Launcher launcher, final BuildListener listener) {    	
+    	return this.submitChanges(this.collectChanges(build, listener), build, launcher, listener);
+    }
+    
+    /**
+     * Queues the changes of a build in the {@link ReviewboardOutbox}, to be delivered to
+     * Reviewboard once the build has completed.
+     * 
+     * @param build current build
+     * @param listener listener to log to
+     * @return true if the changes were queued, false otherwise
+     */
+    private boolean queueChangeset(final AbstractBuild build, final BuildListener listener) {
+    	
+    	List<ChangeRecord> changes = this.collectChanges(build, listener);
+    	if(changes.isEmpty())
+    		return true;
+    	
+    	try{
+    		ReviewboardOutbox.get().enqueue(build, changes);
+    		listener.getLogger().println("Queued " + changes.size() + " changes for delivery to Reviewboard.  Delivery is logged to " + ReviewboardOutbox.LOG_FILE_NAME + " in the build's directory.");
+    		return true;
+    	}catch(IOException e){
+    		e.printStackTrace(listener.getLogger());
+    		return false;
+    	}
+    }
+    
+    /**
+     * Copies the changes of a build that have an external ID out of its change set.
+     * 
+     * @param build build whose change set is searched
+     * @param listener listener to log to
+     * @return changes with an external ID, in the order of the change set
+     */
+    List<ChangeRecord> collectChanges(final AbstractBuild build, final BuildListener listener) {
+    	
+		List<ChangeRecord> changes = new ArrayList<ChangeRecord>();
 
-		String externalID = "";
-		Long changeListID = 0L;
-		Long existingReviewBoardID = null;
-		String author = "";
-		String changeDescr = "";
-		Collection<String> files = null;
-		
 		// Obtain the list of changes associated with the current build
 		ChangeLogSet<? extends Entry> changeSet = (ChangeLogSet<? extends Entry>)build.getChangeSet();
 		
 		// No changes to send to Reviewboard
 		if(changeSet == null)
-			return true;
+			return changes;
 		
-		// Iterate through the list of changes and send each to Reviewboard.  In the case of Perforce,
-		// each changelist is a separate entry in the change set.
+		// Search the change messages for external IDs.  In the case of Perforce, each changelist is a
+		// separate entry in the change set.
+		long start = System.nanoTime();
 		Iterator<? extends Entry> iEntries = changeSet.iterator();
 		while(iEntries.hasNext()){
     		Entry entry = iEntries.next();
 	        
-    		// Search the change message for an external ID
-			externalID = this.getExternalKeyFromChangeDescr(entry.getMsg(), listener.getLogger());
+			String externalID = this.getExternalKeyFromChangeDescr(entry.getMsg(), listener.getLogger());
 			if(externalID == null)
 				continue; // Changelist doesn't match the pattern configured, so there's nothing to do
-
-			listener.getLogger().println("Publishing changes to Reviewboard.");
-
-			author = entry.getAuthor().getId();
-			files = entry.getAffectedPaths();
-			changeDescr = entry.getMsg();
-
-			// If the change description includes the override flag to force skipping the creation/update of a Review Request...
-			ActionOverrideFlag override = this.parseDescriptionForOverride(changeDescr, externalID, build);
-			if(override == ActionOverrideFlag.RB_SKIP){
-				if(!this.skipUnflaggedChanges)
-					listener.getLogger().println("Skipping Reviewboard Review Request create/update at the request of the change author.\nChange Description: " + changeDescr);
-				else
-					listener.getLogger().println("Skipping Reviewboard Review Request create/update. No action override was specified in change description.");
-				
-				continue;
+			
+			changes.add(ChangeRecord.fromEntry(entry, externalID));
+		}
+		
+		if(!changes.isEmpty())
+			ReviewboardTimingAction.forBuild(build).record(ReviewboardTimingAction.Phase.KEY_EXTRACTION, start);
+		
+		return changes;
+    }
+    
+    /**
+     * Sends changes to Reviewboard.  Changes sharing an external ID are grouped together, in
+     * order, since they have to be submit one after the other to update the same review request.
+     * If {@link #coalesceChanges} is enabled, they are coalesced first.
+     * 
+     * @param collected changes to submit
+     * @param build build the changes belong to
+     * @param launcher launcher to execute external processes
+     * @param listener listener to log the submissions to
+     * @return true if every change was submit, false if any of them failed or the submissions were interrupted
+     */
+    boolean submitChanges(final List<ChangeRecord> collected, final AbstractBuild build, final Launcher launcher, final BuildListener listener) {
+    	
+		final List<ChangeRecord> changes = (this.coalesceChanges) ? this.coalesce(collected, build, listener) : collected;
+		
+		Map<String, List<Integer>> groups = new LinkedHashMap<String, List<Integer>>();
+		for(int i = 0; i < changes.size(); i++){
+			String key = ReviewIndex.normalizeExternalID(changes.get(i).getExternalID());
+			if(!groups.containsKey(key))
+				groups.put(key, new ArrayList<Integer>());
+			groups.get(key).add(i);
+		}
+		
+		// Send each change to Reviewboard, one at a time...
+		int concurrency = Math.min(this.getMaxConcurrentSubmissions(), groups.size());
+		// A failed change doesn't stop the changes after it from being submit
+		boolean status = true;
+		if(concurrency <= 1){
+			for(ChangeRecord change: changes)
+				status &= this.processEntry(change, build, launcher, listener);
+			
+			return status;
+		}
+		
+		// ...or several groups at a time.  Each entry logs to its own buffer, which is copied to the
+		// build log in the order of the change set once the entry's group has been submit.
+		listener.getLogger().println("Submitting " + changes.size() + " changes for " + groups.size() + " external IDs to Reviewboard, " + concurrency + " at a time.");
+		
+		final ByteArrayOutputStream[] logs = new ByteArrayOutputStream[changes.size()];
+		final boolean[] submitted = new boolean[changes.size()];
+		List<Future<?>> groupFutures = new ArrayList<Future<?>>();
+		Map<Integer, Future<?>> entryFutures = new HashMap<Integer, Future<?>>();
+		
+		ExecutorService executor = Executors.newFixedThreadPool(concurrency, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "Reviewboard submission #" + count.incrementAndGet() + " for " + build.getFullDisplayName());
+				t.setDaemon(true);
+				return t;
 			}
-
-			// If the change description does not include the override flag to force the creation of a new Review Request,
-			// search previous builds looking for a build that has previously been associated with a matching external ID and return it's reviewboard ID.
-			// If a match is found, we'll simply update that review with the new changes instead of creating a new one.    				
-			if(override == ActionOverrideFlag.RB_NEW){
-				if(!this.skipUnflaggedChanges)
-					listener.getLogger().println("Forcing the creation of a new Reviewboard Review Request at the request of the change author.\nChange Description: " + changeDescr);
-				else
-					listener.getLogger().println("Creating a new Reviewboard Review Request at the request of the change author.\nChange Description: " + changeDescr);
-			}else{
-				existingReviewBoardID = searchForPreviouslyCreatedReviewByExternalID(build, externalID);
-				
-				if(existingReviewBoardID != null){
-					if(override != ActionOverrideFlag.RB_UPDATE && this.forceUpdateOverride && this.skipUnflaggedChanges){
-						listener.getLogger().println("Changes were detected against an existing review, but ignored because description didn't explicitly include RB_UPDATE: " + existingReviewBoardID + "\nChange Description: " + changeDescr);
-						continue;
+		});
+		
+		try{
+			for(final List<Integer> group: groups.values()){
+				Future<?> future = executor.submit(new Runnable() {
+					public void run() {
+						for(int i: group){
+							logs[i] = new ByteArrayOutputStream();
+							submitted[i] = ReviewboardPublisher.this.processEntry(changes.get(i), build, launcher, new StreamBuildListener(new PrintStream(logs[i], true)));
+						}
 					}
-					listener.getLogger().println("Updating an existing Reviewboard Review Request with ID: " + existingReviewBoardID + "\nChange Description: " + changeDescr);
-				}else{
-					if(override == ActionOverrideFlag.RB_UPDATE)
-						listener.getLogger().println("Change author requested an update to existing Review Request, but no previous build contained an External ID matching \"" + externalID + "\".  A new one will be created instead.\nChange Description: " + changeDescr);
-					else
-						listener.getLogger().println("Creating a new Reviewboard Review Request.\nChange Description: " + changeDescr);
-				}
+				});
+				groupFutures.add(future);
+				for(int i: group)
+					entryFutures.put(i, future);
 			}
 			
-			// If the SCM is Perforce, grab the changelistID.
-			// Right now, only Perforce is supported.
-			try{
-				if(entry instanceof PerforceChangeLogEntry){
-					PerforceChangeLogEntry pEntry = (PerforceChangeLogEntry)entry;
-					changeListID = new Long(pEntry.getChange().getChangeNumber());
+			for(int i = 0; i < changes.size(); i++){
+				try{
+					entryFutures.get(i).get();
+				}catch(ExecutionException e){
+					e.getCause().printStackTrace(listener.getLogger());
 				}
-			}catch(Exception e){
-				e.printStackTrace();
+				if(logs[i] != null)
+					listener.getLogger().print(logs[i].toString());
+				status &= submitted[i];
 			}
+		}catch(InterruptedException e){
+			for(Future<?> future: groupFutures)
+				future.cancel(true);
+			Thread.currentThread().interrupt();
+			e.printStackTrace(listener.getLogger());
+			return false;
+		}finally{
+			executor.shutdown();
+		}
+		
+        return status;
+    }
+    
+    /**
+     * Coalesces the changes sharing an external ID, so each review request gets a single update,
+     * with a single diff revision and a single email to reviewers, instead of one per change.
+     * 
+     * Override flags are honored change by change: skipped changes are left out of the coalesced
+     * changes (and kept on their own so their skip is logged), and a change flagged RB_NEW starts
+     * a new review request, coalesced with the changes after it.
+     * 
+     * @param changes changes to coalesce, in the order of the change set
+     * @param build build the changes belong to
+     * @param listener listener to log to
+     * @return coalesced changes, in the order their first change appeared in the change set
+     */
+    private List<ChangeRecord> coalesce(final List<ChangeRecord> changes, final AbstractBuild build, final BuildListener listener) {
+    	
+    	List<List<ChangeRecord>> runs = new ArrayList<List<ChangeRecord>>();
+    	Map<String, List<ChangeRecord>> openRuns = new HashMap<String, List<ChangeRecord>>();
+    	for(ChangeRecord change: changes){
+    		String key = ReviewIndex.normalizeExternalID(change.getExternalID());
+    		ActionOverrideFlag override = this.parseDescriptionForOverride(change.getDescription(), change.getExternalID(), build);
     		
-			try {
-				// We either have a new or an updated change to commit to reviewboard...
-				ReviewInfoAction reviewInfo = submitChangeToReviewBoard(changeListID, externalID, existingReviewBoardID, author, changeDescr, files, build, launcher, listener);
-				
-				// If we were able to save it to reviewboard, save the info so we can look it back up on subsequent builds...
-				if(reviewInfo != null){
-					build.addAction(reviewInfo);
-					if(existingReviewBoardID != null)
-						listener.getLogger().println("Review " + existingReviewBoardID + " updated with changes from changelist: " + reviewInfo.getReviewRequest().getChangeListID());
-					else
-						listener.getLogger().println("Review " + reviewInfo.getReviewRequest().getReviewBoardID() + " created from changelist: " + reviewInfo.getReviewRequest().getChangeListID());
+    		List<ChangeRecord> run = openRuns.get(key);
+    		if(override == ActionOverrideFlag.RB_SKIP){
+    			runs.add(Collections.singletonList(change));
+    			continue;
+    		}else if(run == null || override == ActionOverrideFlag.RB_NEW){
+    			run = new ArrayList<ChangeRecord>();
+    			runs.add(run);
+    			openRuns.put(key, run);
+    		}
+    		run.add(change);
+    	}
+    	
+    	List<ChangeRecord> coalesced = new ArrayList<ChangeRecord>(runs.size());
+    	for(List<ChangeRecord> run: runs){
+    		ChangeRecord change = ChangeRecord.coalesce(run);
+    		if(change.isCoalesced())
+    			listener.getLogger().println("Coalescing changelists " + change.getChangeListIDs() + " for \"" + change.getExternalID() + "\" into a single review request update.");
+    		coalesced.add(change);
+    	}
+    	
+    	return coalesced;
+    }
+    
+    /**
+     * Sends a single change to Reviewboard, creating a new review request or updating the existing
+     * review request mapped to the change's external ID.  A ReviewInfoAction is added to the build
+     * for every change that is submit.
+     * 
+     * Only one change per external ID is submit at a time, across every build of every job, so
+     * concurrent builds update the same review request instead of each creating their own.
+     * 
+     * The time spent in each phase of the submission is added to the build's {@link ReviewboardTimingAction}.
+     * 
+     * @param change change to submit
+     * @param build current build
+     * @param launcher launcher to execute external processes
+     * @param listener listener to log the submission to
+     * @return true if the change was submit or skipped, false if it failed
+     */
+    private boolean processEntry(ChangeRecord change, AbstractBuild build, Launcher launcher, BuildListener listener) {
+    	
+		listener.getLogger().println("Publishing changes to Reviewboard.");
+		
+		String externalID = change.getExternalID();
+		ReviewboardTimingAction.ChangeTiming timing = new ReviewboardTimingAction.ChangeTiming(change);
+		try{
+			long waitingSince = System.currentTimeMillis();
+			long start = System.nanoTime();
+			Lock lock = ExternalIDLocks.lockFor(externalID);
+			try{
+				lock.lockInterruptibly();
+			}catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+				listener.getLogger().println("Interrupted while waiting for another build to finish submitting changes for \"" + externalID + "\".");
+				return false;
+			}finally{
+				timing.record(ReviewboardTimingAction.Phase.LOCK_WAIT, start);
+			}
+			
+			try{
+				this.submitEntry(change, waitingSince, timing, build, launcher, listener);
+			}finally{
+				lock.unlock();
+			}
+			// Changes that were submit or skipped have an outcome by now
+			return timing.getOutcome() != null;
+		}catch(RuntimeException e){
+			e.printStackTrace(listener.getLogger());
+			return false;
+		}finally{
+			timing.finish();
+			ReviewboardTimingAction.forBuild(build).add(timing);
+			PublisherMetrics.get().recordReview(build.getParent().getFullName(), timing.getOutcome());
+		}
+    }
+    
+    /**
+     * Submits a single change to Reviewboard while holding the lock for its external ID.
+     * 
+     * @param change change to submit
+     * @param waitingSince time, in milliseconds, we started waiting for the lock for the external ID
+     * @param timing timing of the submission
+     * @param build current build
+     * @param launcher launcher to execute external processes
+     * @param listener listener to log the submission to
+     */
+    private void submitEntry(ChangeRecord change, long waitingSince, ReviewboardTimingAction.ChangeTiming timing, AbstractBuild build, Launcher launcher, BuildListener listener) {
+
+		String externalID = change.getExternalID();
+		String author = change.getAuthor();
+		Collection<String> files = change.getFiles();
+		String changeDescr = change.getDescription();
+		Long changeListID = change.getChangeListID();
+		Long existingReviewBoardID = null;
+
+		// If the change description includes the override flag to force skipping the creation/update of a Review Request...
+		long start = System.nanoTime();
+		ActionOverrideFlag override = this.parseDescriptionForOverride(changeDescr, externalID, build);
+		timing.record(ReviewboardTimingAction.Phase.KEY_EXTRACTION, start);
+		if(override == ActionOverrideFlag.RB_SKIP){
+			if(!this.skipUnflaggedChanges)
+				listener.getLogger().println("Skipping Reviewboard Review Request create/update at the request of the change author.\nChange Description: " + changeDescr);
+			else
+				listener.getLogger().println("Skipping Reviewboard Review Request create/update. No action override was specified in change description.");
+			
+			timing.setOutcome("skipped", null);
+			return;
+		}
+
+		// If the change description does not include the override flag to force the creation of a new Review Request,
+		// search previous builds looking for a build that has previously been associated with a matching external ID and return it's reviewboard ID.
+		// If a match is found, we'll simply update that review with the new changes instead of creating a new one.    				
+		if(override == ActionOverrideFlag.RB_NEW){
+			if(!this.skipUnflaggedChanges)
+				listener.getLogger().println("Forcing the creation of a new Reviewboard Review Request at the request of the change author.\nChange Description: " + changeDescr);
+			else
+				listener.getLogger().println("Creating a new Reviewboard Review Request at the request of the change author.\nChange Description: " + changeDescr);
+		}else{
+			start = System.nanoTime();
+			existingReviewBoardID = searchForPreviouslyCreatedReviewByExternalID(build, externalID);
+			timing.record(ReviewboardTimingAction.Phase.HISTORY_LOOKUP, start);
+			
+			// Another build may have created a review for this external ID while we waited for the lock
+			if(existingReviewBoardID == null){
+				existingReviewBoardID = ExternalIDLocks.createdSince(externalID, waitingSince);
+				if(existingReviewBoardID != null)
+					listener.getLogger().println("Review request " + existingReviewBoardID + " was just created for \"" + externalID + "\" by a concurrent build, and will be reused.");
+			}
+			
+			if(existingReviewBoardID != null){
+				if(override != ActionOverrideFlag.RB_UPDATE && this.forceUpdateOverride && this.skipUnflaggedChanges){
+					listener.getLogger().println("Changes were detected against an existing review, but ignored because description didn't explicitly include RB_UPDATE: " + existingReviewBoardID + "\nChange Description: " + changeDescr);
+					timing.setOutcome("skipped", existingReviewBoardID);
+					return;
 				}
+				listener.getLogger().println("Updating an existing Reviewboard Review Request with ID: " + existingReviewBoardID + "\nChange Description: " + changeDescr);
+			}else{
+				if(override == ActionOverrideFlag.RB_UPDATE)
+					listener.getLogger().println("Change author requested an update to existing Review Request, but no previous build contained an External ID matching \"" + externalID + "\".  A new one will be created instead.\nChange Description: " + changeDescr);
 				else
-					throw new RuntimeException("Unable to create or update review request.  May be due to other exceptions during save to Reviewboard.");
-			} catch (IOException e) {
-				// If we got here, something bad happened.
-				listener.getLogger().println(e.getMessage());
-				e.printStackTrace(listener.getLogger());
+					listener.getLogger().println("Creating a new Reviewboard Review Request.\nChange Description: " + changeDescr);
 			}
 		}
-
-        return true;
+		
+		// A review request whose publishing is deferred already holds the diffs of earlier updates
+		// in its window in its draft.  The new diff replaces them, so it has to cover them too.
+		if(existingReviewBoardID != null){
+			ChangeRecord pending = PendingPublishes.get().withPendingChanges(existingReviewBoardID, change);
+			if(pending != change){
+				listener.getLogger().println("Review request #" + existingReviewBoardID + " has unpublished updates from changelists " + pending.getChangeListIDs().subList(0, pending.getChangeListIDs().size() - change.getChangeListIDs().size()) + ", which will be diffed along with this change.");
+				change = pending;
+			}
+		}
+		
+		try {
+			// We either have a new or an updated change to commit to reviewboard...
+			ReviewInfoAction reviewInfo;
+			if(change.isCoalesced())
+				reviewInfo = submitCoalescedChangeToReviewBoard(change, existingReviewBoardID, timing, build, launcher, listener);
+			else
+				reviewInfo = submitChangeToReviewBoard(changeListID, externalID, existingReviewBoardID, author, changeDescr, files, timing, build, launcher, listener);
+			
+			// If we were able to save it to reviewboard, save the info so we can look it back up on subsequent builds...
+			if(reviewInfo != null){
+				build.addAction(reviewInfo);
+				ReviewIndex.forJob(build.getParent()).record(reviewInfo, build);
+				PendingPublishes.get().addChanges(reviewInfo.getReviewRequest().getReviewBoardID(), change);
+				if(existingReviewBoardID != null && existingReviewBoardID.equals(reviewInfo.getReviewRequest().getReviewBoardID())){
+					timing.setOutcome("updated", existingReviewBoardID);
+					listener.getLogger().println("Review " + existingReviewBoardID + " updated with changes from changelist: " + reviewInfo.getReviewRequest().getChangeListID());
+				}else{
+					timing.setOutcome("created", reviewInfo.getReviewRequest().getReviewBoardID());
+					ExternalIDLocks.created(externalID, reviewInfo.getReviewRequest().getReviewBoardID());
+					listener.getLogger().println("Review " + reviewInfo.getReviewRequest().getReviewBoardID() + " created from changelist: " + reviewInfo.getReviewRequest().getChangeListID());
+				}
+			}
+			else
+				throw new RuntimeException("Unable to create or update review request.  May be due to other exceptions during save to Reviewboard.");
+		} catch (IOException e) {
+			// If we got here, something bad happened.
+			listener.getLogger().println(e.getMessage());
+			e.printStackTrace(listener.getLogger());
+		}
     }
     
     /**
@@ -397,38 +712,30 @@ public class ReviewboardPublisher extends Notifier {
      */
     private ActionOverrideFlag parseDescriptionForOverride(String descr, String externalID, Run build){
     	
-    	boolean explicitOverride = false;
     	ActionOverrideFlag override = (this.skipUnflaggedChanges) ? ActionOverrideFlag.RB_SKIP : ActionOverrideFlag.RB_NONE;
     	
     	if(descr == null || descr.isEmpty())
     		return override;
     	
-    	Long existingReviewBoardID = searchForPreviouslyCreatedReviewByExternalID(build, externalID);
+    	// Flags found earlier in the enum take priority
+    	int flag = this.getScanner().scan(descr).getFirstKeyword();
+    	if(flag != -1)
+    		return ActionOverrideFlag.values()[flag];
 
-    	descr = descr.toUpperCase();
-    	
-    	ActionOverrideFlag flags[] = ActionOverrideFlag.values();
-    	for(ActionOverrideFlag flag : flags){
-    		if(descr.contains(flag.toString())){
-    			override = flag;
-    			explicitOverride = true;
-    			break;
-    		}
-    	}
-
-    	if(!explicitOverride && existingReviewBoardID != null && override == ActionOverrideFlag.RB_SKIP && !this.getForceUpdateOverride())
+    	if(override == ActionOverrideFlag.RB_SKIP && !this.getForceUpdateOverride() && searchForPreviouslyCreatedReviewByExternalID(build, externalID) != null)
     		override = ActionOverrideFlag.RB_UPDATE;
 
     	return override;
     }
     
     /**
-     * Recursively searches through previous builds looking for a prior change that has an
-     * external ID that matches the supplied externalID parameter.  If one is found, then
-     * that review has already been created in Reviewboard and it needs to be updated.
-     * If no matching ID is found, a new review will be created.
+     * Looks up a prior change that has an external ID that matches the supplied externalID
+     * parameter in the job's {@link ReviewIndex}.  If one is found, then that review has
+     * already been created in Reviewboard and it needs to be updated.  If no matching ID is
+     * found, or the last time the review was touched is beyond the "stale" parameter, a new
+     * review will be created.
      * 
-     * @param run execution to inspect for an external ID
+     * @param run execution whose job is searched for an external ID
      * @param externalID external ID to match against a prior build's external ID
      * @return Reviewboard ID where supplied external ID matches a previously submit change's external ID, or null if not found
      */
@@ -437,29 +744,18 @@ public class ReviewboardPublisher extends Notifier {
     	if(run == null || externalID == null)
     		return null;
     	
-    	Long priorExternalID = null;
-    	
-    	// A build may have multiple ReviewInfoActions if multiple changelists were submit and picked up by the build
-    	List<ReviewInfoAction> actions = run.getActions(ReviewInfoAction.class);
-    	for(ReviewInfoAction reviewInfo: actions){
-	    	if(reviewInfo.equalsExternalID(externalID)){
-	    		// Check to see if the last time we touched this review request was beyond the "stale" parameter
-	    		// If it's not stale, we'll update the existing review request.  If it is stale, we'll create a new one.
-	    		Long runDate = run.getTime().getTime();
-	    		Long staleDate = runDate + (this.getDaysBeforeStaleReview() * 86400000);
-	    		Long now = new Date().getTime();
-	    		if(this.getDaysBeforeStaleReview() == -1 || now < staleDate)
-	    			priorExternalID = reviewInfo.getReviewRequest().getReviewBoardID();
-	    		
-	    		break;
-	    	}
-    	}
+    	ReviewIndex.IndexEntry entry = ReviewIndex.forJob(run.getParent()).lookup(run.getParent(), externalID);
+    	if(entry == null)
+    		return null;
     	
-    	// If this build didn't match the external ID, go back further to the next build and check, and so on...
-    	if(priorExternalID == null)
-    		return searchForPreviouslyCreatedReviewByExternalID(run.getPreviousBuild(), externalID);
-    	else
-    		return priorExternalID;
+		// Check to see if the last time we touched this review request was beyond the "stale" parameter
+		// If it's not stale, we'll update the existing review request.  If it is stale, we'll create a new one.
+    	long staleDate = entry.getTimestamp() + (this.getDaysBeforeStaleReview() * 86400000L);
+    	long now = new Date().getTime();
+    	if(this.getDaysBeforeStaleReview() == -1 || now < staleDate)
+    		return entry.getReviewBoardID();
+    	
+    	return null;
     }
     
     /**
@@ -470,13 +766,83 @@ public class ReviewboardPublisher extends Notifier {
      * @param reviewBoardID reviewboard ID of an existing review request, if one exists (may be null)
      * @param author author of the current changelist
      * @param files files included in the change (only required if reviewBoardID is not null)
+     * @param timing timing of the submission
+     * @param build current build
+     * @param launcher launcher to execute external processes
+     * @param listener listener to handle build events
+     * @return ReviewInfoAction if one was created.
+     * @throws IOException
+     */
+    private ReviewInfoAction submitChangeToReviewBoard(Long changeListID, String externalID, Long reviewBoardID, String author, String changeDescr, Collection<String> files, ReviewboardTimingAction.ChangeTiming timing, AbstractBuild build, Launcher launcher, BuildListener listener) throws IOException{
+    	
+    	ReviewInfoAction reviewInfo = this.postChangeToReviewBoard(changeListID, externalID, reviewBoardID, author, changeDescr, files, Collections.singletonList(changeListID), timing, build, launcher, listener);
+    	
+    	// The review request is new if none existed, or if a new one replaced it
+    	if(reviewInfo != null)
+    		this.updateSubmittedReview(reviewInfo, !reviewInfo.getReviewRequest().getReviewBoardID().equals(reviewBoardID), timing, listener);
+    	
+    	return reviewInfo;
+    }
+    
+    /**
+     * Creates a new (or updates an existing) review request in Reviewboard from several coalesced
+     * changes.  The diff of several changes is built by post-review from the files they affect.
+     * 
+     * A new review request is created from the first change and left unpublished, then its draft
+     * diff is replaced by one covering every change, so the review request is published once,
+     * with a single diff revision.
+     * 
+     * @param change coalesced changes
+     * @param reviewBoardID reviewboard ID of an existing review request, if one exists (may be null)
+     * @param timing timing of the submission
+     * @param build current build
+     * @param launcher launcher to execute external processes
+     * @param listener listener to handle build events
+     * @return ReviewInfoAction if one was created.
+     * @throws IOException
+     */
+    private ReviewInfoAction submitCoalescedChangeToReviewBoard(ChangeRecord change, Long reviewBoardID, ReviewboardTimingAction.ChangeTiming timing, AbstractBuild build, Launcher launcher, BuildListener listener) throws IOException{
+    	
+    	boolean newReview = (reviewBoardID == null);
+    	ReviewInfoAction created = null;
+    	if(newReview){
+    		created = this.postChangeToReviewBoard(change.getChangeListIDs().get(0), change.getExternalID(), null, change.getAuthor(), change.getDescription(), change.getFiles(), change.getChangeListIDs().subList(0, 1), timing, build, launcher, listener);
+    		if(created == null)
+    			return null;
+    		reviewBoardID = created.getReviewRequest().getReviewBoardID();
+    	}
+    	
+    	ReviewInfoAction reviewInfo = this.postChangeToReviewBoard(change.getChangeListID(), change.getExternalID(), reviewBoardID, change.getAuthor(), change.getDescription(), change.getFiles(), change.getChangeListIDs(), timing, build, launcher, listener);
+    	if(reviewInfo == null && created != null){
+    		listener.getLogger().println("Unable to add the other coalesced changelists to review request #" + reviewBoardID + ", it only holds changelist " + created.getReviewRequest().getChangeListID() + ".");
+    		reviewInfo = created;
+    	}
+    	
+    	if(reviewInfo != null)
+    		this.updateSubmittedReview(reviewInfo, newReview, timing, listener);
+    	
+    	return reviewInfo;
+    }
+    
+    /**
+     * Sends a change to Reviewboard, natively or through post-review, without updating
+     * the draft of the resulting review request.
+     * 
+     * @param changeListID ID of current changelist to send to reviewboard
+     * @param externalID arbitrary ID of an external source to map to reviewboard
+     * @param reviewBoardID reviewboard ID of an existing review request, if one exists (may be null)
+     * @param author author of the current changelist
+     * @param files files included in the change (only required if reviewBoardID is not null)
+     * @param changeListIDs IDs of every change the files come from.  Several coalesced changes can't be
+     *        diffed natively from the changelist or used to create a replacement review request.
+     * @param timing timing of the submission
      * @param build current build
      * @param launcher launcher to execute external processes
      * @param listener listener to handle build events
      * @return ReviewInfoAction if one was created.
      * @throws IOException
      */
-    private ReviewInfoAction submitChangeToReviewBoard(Long changeListID, String externalID, Long reviewBoardID, String author, String changeDescr, Collection<String> files, AbstractBuild build, Launcher launcher, BuildListener listener) throws IOException{
+    private ReviewInfoAction postChangeToReviewBoard(Long changeListID, String externalID, Long reviewBoardID, String author, String changeDescr, Collection<String> files, List<Long> changeListIDs, ReviewboardTimingAction.ChangeTiming timing, AbstractBuild build, Launcher launcher, BuildListener listener) throws IOException{
     	
 		if(externalID == null || externalID.isEmpty())
 			throw new IllegalArgumentException ("External ID annot be null or empty.");
@@ -495,116 +861,194 @@ public class ReviewboardPublisher extends Notifier {
     	
     	ReviewInfoAction reviewInfo = null;
     	boolean newReview = (reviewBoardID == null);
+    	boolean singleChange = (changeListIDs.size() <= 1);
+    	
+    	// Submit natively through the Reviewboard API if enabled, falling back to post-review if that isn't possible
+    	if(singleChange && this.getDescriptor().isNativeSubmissionEnabled()){
+    		ReviewboardHttpAPI.Submission submission = this.submitChangeNatively(changeListID, reviewBoardID, author, timing, build, launcher, listener);
+    		if(submission != null && submission.isDiffUploaded()){
+    			listener.getLogger().println("Successfully submit changelist " + changeListID + " through the Reviewboard API");
+    			reviewInfo = new ReviewInfoAction(externalID, changeListID, submission.getReviewBoardID(), author, changeDescr);
+    		}else if(submission != null && submission.isCreated()){
+    			// The new review request holds the changelist now, so post-review has to update it instead of creating another
+    			reviewBoardID = submission.getReviewBoardID();
+    			listener.getLogger().println("Unable to upload the diff to new review request #" + reviewBoardID + ", falling back to post-review to update it.");
+    		}else
+    			listener.getLogger().println("Unable to submit the change natively, falling back to post-review.");
+    	}
     	
-    	// Used to read and write to the external process
     	Long reviewIDInError = 0L;
-    	BufferedReader reader = null;
-    	BufferedWriter writer = null;
-    	try{
-    		
-    		// Allows us to read the response from the external process
-    		// hudsonOut->p4in->reader
-    		HudsonPipedOutputStream hudsonOut = new HudsonPipedOutputStream();
-    		PipedInputStream p4in = new PipedInputStream(hudsonOut);
-    		reader = new BufferedReader(new InputStreamReader(p4in));
-    		
-    		// hudsonIn<-p4Out<-writer
-    		PipedInputStream hudsonIn = new PipedInputStream();
-    		PipedOutputStream p4out = new PipedOutputStream(hudsonIn);
-    		writer = new BufferedWriter(new OutputStreamWriter(p4out));
-
-    		// Builds the reviewboard post-review command that will be executed.  It will generate either a new or update review request command line.
-			ArgumentListBuilder cmd = this.buildCommandLine(changeListID, author, reviewBoardID, files, build);
+    	if(reviewInfo == null){
+    		FilePath diffFile = null;
+    		try{
+    			// Too many files to pass on the command line are replaced by a diff file, or if the diff can't be
+    			// built, by the changelist, leaving post-review to diff it.
+    			Collection<String> targets = files;
+    			if(reviewBoardID != null && !fitsOnCommandLine(files)){
+    				listener.getLogger().println("The " + files.size() + " files of the change are too many to pass to post-review, sending it a diff file instead.");
+    				long start = System.nanoTime();
+    				diffFile = this.writeDiffFile(changeListIDs, build, launcher, listener);
+    				timing.record(ReviewboardTimingAction.Phase.DIFF, start);
+    				if(diffFile == null){
+    					listener.getLogger().println("Unable to build the diff file, post-review will diff changelist " + changeListID + " instead.");
+    					targets = Collections.singletonList(changeListID.toString());
+    				}
+    			}
+    			
+    			// Builds the reviewboard post-review command that will be executed.  It will generate either a new or update review request command line.
+				ArgumentListBuilder cmd = this.buildCommandLine(changeListID, author, reviewBoardID, targets, (diffFile != null) ? diffFile.getRemote() : null, build);
 			
-			// Execute the external process
-			// TODO: Add in some timer to kill this process if it hangs indefinitely.  This can happen (and did recently)
-			//       when the password to Reviewboard changed for the post-review user.  post-review blocks at stdin waiting
-			//       for a correct username and password.
-    		Proc process = launcher.launch().cmds(cmd).envs(EnvVars.masterEnvVars).stdout(hudsonOut).stdin(hudsonIn).start();
-
-    		// Parse the output from post-review for the ID number of the new or updated review request
-			String response;
-			try{
-				while((response = reader.readLine()) != null){
-	
-					listener.getLogger().println(">> " + response);
-	
-					if( (reviewBoardID = matchStringToPattern(Long.class, response, reviewBoardIDRegExPattern, 1)) != null) { break; }
-					if( (reviewIDInError = matchStringToPattern(Long.class, response, reviewBoardHTTPErrorPattern, 1)) != null) { break; }
-	
+				// Execute the external process under a watchdog, which kills it if it hangs.  This can happen when
+				// the password to Reviewboard changes for the post-review user: post-review blocks at stdin waiting
+				// for a correct username and password.
+				PostReviewRunner runner = new PostReviewRunner(launcher, listener,
+						this.getDescriptor().getPostReviewTimeout() * 1000L,
+						this.getDescriptor().getPostReviewIdleTimeout() * 1000L);
+				// The output from post-review is parsed as it is read for the ID number of the new or updated review request
+				PostReviewOutputParser parser = new PostReviewOutputParser();
+				long start = System.nanoTime();
+				PostReviewRunner.Result result = runner.run(cmd, EnvVars.masterEnvVars, parser);
+				timing.record(ReviewboardTimingAction.Phase.POST_REVIEW, start);
+				reviewBoardID = (parser.getPostedReviewID() >= 0) ? Long.valueOf(parser.getPostedReviewID()) : null;
+				reviewIDInError = (parser.getFailedReviewID() >= 0) ? Long.valueOf(parser.getFailedReviewID()) : null;
+				
+				for(PostReviewOutputParser.Event event: parser.getEvents()){
+					if(event.getType() == PostReviewOutputParser.EventType.WARNING)
+						listener.getLogger().println("post-review warned: " + event.getLine());
 				}
-			}catch(IOException e){
-				// we'll throw an IOE when the sub-process ends and there's nothing more to read.
-			}
-			
-    		// Wait for the process to complete and get the status code
-    		int exitCode = process.join();
-
-    		// Close the output stream
-    		hudsonOut.closeOnProcess(process);
     		
-    		// 0 == successful execution
-    		if(exitCode == 0){
-    			listener.getLogger().println("Successfully executed post-review command");
+    			// 0 == successful execution
+    			if(result.isSuccessful()){
+    				listener.getLogger().println("Successfully executed post-review command");
 
-   				if(reviewBoardID != null){
-   					reviewInfo = new ReviewInfoAction(externalID, changeListID, reviewBoardID, author, changeDescr);
-   				}
+	   				if(reviewBoardID != null){
+	   					reviewInfo = new ReviewInfoAction(externalID, changeListID, reviewBoardID, author, changeDescr);
+	   				}
     			
-				if(reviewInfo == null)
-					throw new RuntimeException("Unable to create review info artifact.  The review request should still have been submit, but subsequent updates to this changelist will result in new review requests instead of updating this one.");
-    		}else{
-    			listener.getLogger().println("Failed executing post-review command.");
+					if(reviewInfo == null)
+						throw new RuntimeException("Unable to create review info artifact.  The review request should still have been submit, but subsequent updates to this changelist will result in new review requests instead of updating this one.");
+    			}else if(result.isTimedOut()){
+    				// Whatever post-review was waiting on won't be fixed by trying again with a new review request
+    				listener.getLogger().println("post-review was killed because it " + result.getTimeoutReason() + ".");
+    				reviewIDInError = null;
+    			}else{
+    				listener.getLogger().println("Failed executing post-review command.");
 
-    			// If we had a review request ID to update, but this failed, it may have been
-    			// deleted or otherwise unavailable, so try to create a new review request
-    			// with the information for the changelist.  (The re-attempt is done outside of 
-    			// this to let handles all close properly.
-				if(reviewBoardID != null && reviewIDInError != null && reviewIDInError.equals(reviewBoardID)){
-					listener.getLogger().println("Attempting to save a new review request.");
-				}
-    		}
+    				// If we had a review request ID to update, but this failed, it may have been
+    				// deleted or otherwise unavailable, so try to create a new review request
+    				// with the information for the changelist.
+					if(reviewBoardID != null && reviewIDInError != null && reviewIDInError.equals(reviewBoardID)){
+						listener.getLogger().println("Attempting to save a new review request.");
+					}
+    			}
 
-		} catch (IOException e) {
-			e.printStackTrace(listener.getLogger());
-		} catch (InterruptedException e) {
-			e.printStackTrace(listener.getLogger());
-		} finally {
-			if(reader != null)
-				reader.close();
-			if(writer != null)
-				writer.close();
-		}
+			} catch (IOException e) {
+				e.printStackTrace(listener.getLogger());
+			} catch (InterruptedException e) {
+				e.printStackTrace(listener.getLogger());
+			} finally {
+				if(diffFile != null){
+					try{
+						diffFile.delete();
+					}catch(Exception e){
+						e.printStackTrace(listener.getLogger());
+					}
+				}
+			}
+    	}
 
-		// We have created or updated a review request, so we need to do a few extra things to it.
-		if(reviewInfo != null){
-			
-			// If this is a new request, set the default values on the request (reviewers, groups, bugs, etc)
-			if(newReview){
-				this.getDescriptor().getReviewboardAPI().setReviewers(reviewInfo.getReviewRequest(), this.getAllReviewers(reviewInfo));
-				this.getDescriptor().getReviewboardAPI().setBugs(reviewInfo.getReviewRequest(), reviewInfo.getExternalID());
-				this.getDescriptor().getReviewboardAPI().setGroups(reviewInfo.getReviewRequest(), this.defaultReviewGroups);
-			// If this is an existing request, add the change list description to the diff of the review request
-			}else
-				this.getDescriptor().getReviewboardAPI().setChangeDescription(reviewInfo.getReviewRequest(), this.buildReviewboardChangeDescription(reviewInfo));
-			
-			// Publish the review if enabled.. this will send emails if Reviewboard is configured so
-			if(this.publishReviews)
-				this.getDescriptor().getReviewboardAPI().publishReview(reviewInfo.getReviewRequest());
-			
-			listener.getLogger().println("Successfully " + ((newReview)?"created":"updated") + " review request #" + reviewInfo.getReviewRequest().getReviewBoardID());
-		} else if(reviewIDInError != null && reviewIDInError > 0){
+		if(reviewInfo == null && singleChange && reviewIDInError != null && reviewIDInError > 0){
 			// If we had an error attempting to update an existing review, attempt to submit a new one
 			// TODO: Make this an option
 			listener.getLogger().println("Attempting to recover from failed submission to Reviewboard by creating a new Review Request...");
-			reviewInfo = this.submitChangeToReviewBoard(changeListID, externalID, null, author, changeDescr, files, build, launcher, listener);
-		} else {
+			reviewInfo = this.postChangeToReviewBoard(changeListID, externalID, null, author, changeDescr, files, changeListIDs, timing, build, launcher, listener);
+		} else if(reviewInfo == null) {
 			listener.getLogger().println("Unable to " + ((newReview)?"create":"update") + " a review request.");
 		}
 		
 		return reviewInfo;
     }
     
+    /**
+     * Does a few extra things to a review request once a change has been sent to it: sets
+     * its default values if it's new, or describes the change if it's not, and publishes it
+     * if enabled.  Publishing an existing review request is deferred to {@link PendingPublishes}
+     * if {@link #publishDebounceMinutes} is set.
+     * 
+     * @param reviewInfo review request the change was sent to
+     * @param newReview true if the review request was created for the change
+     * @param timing timing of the submission
+     * @param listener listener to handle build events
+     * @throws IOException
+     */
+    private void updateSubmittedReview(ReviewInfoAction reviewInfo, boolean newReview, ReviewboardTimingAction.ChangeTiming timing, BuildListener listener) throws IOException{
+		
+		DraftUpdate update = new DraftUpdate();
+		
+		boolean deferred = false;
+		
+		// If this is a new request, set the default values on the request (reviewers, groups, bugs, etc)
+		if(newReview){
+			update.setReviewers(this.getAllReviewers(reviewInfo))
+				.setBugs(reviewInfo.getExternalID())
+				.setGroups(this.defaultReviewGroups);
+		// If this is an existing request, add the change list description to the diff of the review request.
+		// If publishing is deferred, the draft describes every update made since it was last published.
+		}else if(this.publishReviews && this.getPublishDebounceMinutes() > 0){
+			PendingPublishes.Entry pending = PendingPublishes.get().defer(reviewInfo, this.buildReviewboardChangeDescription(reviewInfo), this.getPublishDebounceMinutes() * 60000L);
+			update.setChangeDescription(pending.getChangeDescription());
+			deferred = true;
+			listener.getLogger().println("Publishing review request #" + reviewInfo.getReviewRequest().getReviewBoardID() + " is deferred until " + new Date(pending.getDueAt()) + " to collect further updates.");
+		}else
+			update.setChangeDescription(this.buildReviewboardChangeDescription(reviewInfo));
+		
+		// Publish the review if enabled.. this will send emails if Reviewboard is configured so.
+		// All of the above goes to Reviewboard as a single draft update.
+		update.setPublish(this.publishReviews && !deferred);
+		long start = System.nanoTime();
+		boolean updated = this.getDescriptor().getReviewboardAPI().updateDraft(reviewInfo.getReviewRequest(), update);
+		timing.record(update.isPublish() ? ReviewboardTimingAction.Phase.PUBLISH : ReviewboardTimingAction.Phase.API_UPDATE_DRAFT, start);
+		if(!updated)
+			listener.getLogger().println("Unable to update the draft of review request #" + reviewInfo.getReviewRequest().getReviewBoardID());
+		
+		listener.getLogger().println("Successfully " + ((newReview)?"created":"updated") + " review request #" + reviewInfo.getReviewRequest().getReviewBoardID());
+    }
+    
+    /**
+     * Creates a new (or updates an existing) review request through the Reviewboard API,
+     * without starting post-review.  The diff is built from the changelist in Perforce.
+     * 
+     * @param changeListID ID of current changelist to send to reviewboard
+     * @param reviewBoardID reviewboard ID of an existing review request, if one exists (may be null)
+     * @param author author of the current changelist
+     * @param timing timing of the submission
+     * @param build current build
+     * @param launcher launcher to execute external processes
+     * @param listener listener to handle build events
+     * @return outcome of the submission, or null if nothing was submit and it has to be submit with post-review instead
+     */
+    private ReviewboardHttpAPI.Submission submitChangeNatively(Long changeListID, Long reviewBoardID, String author, ReviewboardTimingAction.ChangeTiming timing, AbstractBuild build, Launcher launcher, BuildListener listener){
+    	
+    	try {
+    		long start = System.nanoTime();
+    		byte[] diff = new PerforceDescribeDiff(build, launcher, listener).build(changeListID);
+    		timing.record(ReviewboardTimingAction.Phase.DIFF, start);
+    		if(diff == null)
+    			return null;
+    		
+    		start = System.nanoTime();
+    		ReviewboardHttpAPI.Submission submission = this.getDescriptor().getReviewboardAPI().submitReview(this.getDescriptor().getRepository(), changeListID, author, reviewBoardID, diff);
+    		timing.record(ReviewboardTimingAction.Phase.API_SUBMIT, start);
+    		return submission;
+    	} catch (IOException e) {
+    		e.printStackTrace(listener.getLogger());
+    	} catch (InterruptedException e) {
+    		e.printStackTrace(listener.getLogger());
+    	}
+    	
+    	return null;
+    }
+    
     /**
      * Builds the change description that will show up on updated review requests.
      * The result contains the new change ID and the description supplied in the change.
@@ -631,70 +1075,6 @@ public class ReviewboardPublisher extends Notifier {
     	return reviewers;
     }
     
-    /**
-     * Attempts to match a pattern against a string and return the pattern group 
-     * supplied.  This is useful for extracting a piece of information from a
-     * predictable string, such as retrieving the external ID from a change description,
-     * the Review ID from a new review request submission, etc.  This means that the
-     * developer must know the string (str) being passed in, the pattern to match the
-     * string against, the format of the value being extracted (String, Long, Integer, etc),
-     * and which pattern group to return (zero being the entire string and >1 being regular 
-     * expression groups defined in the pattern).
-     * 
-     * @param <T> Type of the returnType
-     * @param returnType Type to return
-     * @param str String to match the pattern against
-     * @param pattern Pattern to match to the string
-     * @param patternGroupNumber Regular expression group to extract
-     * @return Value of the group extracted, typed according to the generic type parameter supplied, or null if no match is made or an error occurs
-     */
-    private <T> T matchStringToPattern(Class<T> returnType, String str,
-			Pattern pattern, int patternGroupNumber) {
-		
-    	Constructor<T> constructor;
-    	T patternGroup = null;
-
-    	try {
-			if(!str.trim().isEmpty()){
-			
-				constructor = returnType.getDeclaredConstructor(String.class);
-
-				// Match the current line of the output against the pattern
-				Matcher match = pattern.matcher(str);
-				match.lookingAt();
-				if(match.groupCount() > patternGroupNumber-1){
-					patternGroup = constructor.newInstance(match.group(patternGroupNumber));
-				}
-			}
-		}catch(IllegalStateException ise) {
-		}catch(PatternSyntaxException pse){
-			pse.printStackTrace();
-		}catch(NumberFormatException nfe){
-			// TODO: exception handling
-			nfe.printStackTrace();
-		} catch (IllegalArgumentException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		} catch (InstantiationException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		} catch (IllegalAccessException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		} catch (InvocationTargetException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		} catch (SecurityException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		} catch (NoSuchMethodException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		}
-		
-		return patternGroup;
-	}
-
 	/**
      * Builds the required commands to execute post-review given the parameters supplied.  The result will
      * either be a list of commands to create a new review, a list of commands to update an existing review
@@ -704,15 +1084,16 @@ public class ReviewboardPublisher extends Notifier {
      * @param author author of the change in SCM
      * @param reviewBoardID existing reviewboard ID (may be null if new review request, but cannot be null if files is not null)
      * @param files files to update a review request with (cannot be null if reviewBoardID is null)
+     * @param diffFileName path of a diff file, on the node post-review runs on, to update a review request with instead of files (may be null)
      * @return argument list that can be passed to Laucher
      */
-    private ArgumentListBuilder buildCommandLine(Long changeListID, String author, Long reviewBoardID, Collection<String> files, AbstractBuild build){
+    private ArgumentListBuilder buildCommandLine(Long changeListID, String author, Long reviewBoardID, Collection<String> files, String diffFileName, AbstractBuild build){
     	
     	ArgumentListBuilder args = null;
     	
     	// Creates command arguments to update an existing review
-    	if(reviewBoardID != null && author != null && files != null && !files.isEmpty())
-    		args = buildCommandLineForExistingReview(author, reviewBoardID, files, build);
+    	if(reviewBoardID != null && author != null && ((files != null && !files.isEmpty()) || diffFileName != null))
+    		args = buildCommandLineForExistingReview(author, reviewBoardID, files, diffFileName, build);
     	// Creates command arguments to create a new review request
     	else if(changeListID != null && author != null)
     		args = buildCommandLineForNewReview(changeListID, author, build);
@@ -765,9 +1146,10 @@ public class ReviewboardPublisher extends Notifier {
      * @param author author of the change
      * @param reviewBoardID ID of existing review request to update
      * @param files files from the changelist to update the review request with
+     * @param diffFileName path of a diff file to update the review request with instead of files (may be null)
      * @return arguments to create a new review request
      */
-    private ArgumentListBuilder buildCommandLineForExistingReview(String author, Long reviewBoardID, Collection<String> files, AbstractBuild build){
+    private ArgumentListBuilder buildCommandLineForExistingReview(String author, Long reviewBoardID, Collection<String> files, String diffFileName, AbstractBuild build){
     	
     	ArgumentListBuilder args = new ArgumentListBuilder();
     	
@@ -789,13 +1171,65 @@ public class ReviewboardPublisher extends Notifier {
 		if(scm instanceof PerforceSCM)
 			args.add("--p4-client=" + ((PerforceSCM)scm).getP4Client());
 
-		for(String file: files){
-			args.add(file);
-		}
+		if(diffFileName != null)
+			args.add("--diff-filename=" + diffFileName);
+		else
+			for(String file: files){
+				args.add(file);
+			}
 		
     	return args;
     }
     
+    /**
+     * @param files files to pass to post-review
+     * @return true if the files can be passed to post-review on its command line
+     */
+    private static boolean fitsOnCommandLine(Collection<String> files){
+    	
+    	long length = 0;
+    	for(String file: files){
+    		// Leave room for the quotes and the separating space
+    		length += file.length() + 3;
+    		if(length > MAX_FILE_ARGUMENTS_LENGTH)
+    			return false;
+    	}
+    	
+    	return true;
+    }
+    
+    /**
+     * Writes the diff of changelists to a temporary file on the node post-review runs on, in the
+     * build's workspace if it is on that node.  The caller must delete the file.
+     * 
+     * @param changeListIDs IDs of the changelists to diff
+     * @param build current build
+     * @param launcher launcher post-review is run with
+     * @param listener listener to handle build events
+     * @return diff file, or null if the diff couldn't be built or written
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    private FilePath writeDiffFile(List<Long> changeListIDs, AbstractBuild build, Launcher launcher, BuildListener listener) throws IOException, InterruptedException{
+    	
+    	FilePath workspace = build.getWorkspace();
+    	FilePath dir;
+    	if(workspace != null && workspace.getChannel() == launcher.getChannel())
+    		dir = workspace;
+    	else if(launcher instanceof Launcher.LocalLauncher)
+    		dir = new FilePath(new File(System.getProperty("java.io.tmpdir")));
+    	else
+    		return null;
+    	
+    	byte[] diff = new PerforceDescribeDiff(build, launcher, listener).build(changeListIDs);
+    	if(diff == null)
+    		return null;
+    	
+    	FilePath diffFile = dir.createTempFile("reviewboard", ".diff");
+    	diffFile.copyFrom(new ByteArrayInputStream(diff));
+    	return diffFile;
+    }
+    
     /**
      * Inspects the supplied string for a matching pattern, that is configured from the Jenkins Build Configuration
      * page, and returns it if it is found.  This external ID is often that from an bug tracking system such as 
@@ -813,22 +1247,31 @@ public class ReviewboardPublisher extends Notifier {
     	if(descr == null || descr.isEmpty())
     		return "";
     	
-    	String externalKey = null;
+    	// Descriptions may be huge, so only their length is logged
+    	String externalKey = this.getScanner().findKey(descr);
+    	if(externalKey != null)
+    		logger.println("External key found in changelist description: " + externalKey);
+    	else
+    		logger.println("No pattern matched in changelist description of " + descr.length() + " characters.\nPattern: " + keyRegExPattern.pattern());
+    	
+    	return externalKey;
+    }
+    
+    private DescriptionScanner getScanner(){
     	
-    	logger.println("Matching Pattern to ChangeListDescr: " + keyRegExPattern.pattern() + " -> " + descr);
-
-    	try{
-    		Matcher matcher = keyRegExPattern.matcher(descr.trim());
-    		matcher.lookingAt();
-    		if(matcher.groupCount() > 0){
-    			externalKey = matcher.group(1);
-    			logger.println("External key found in changelist description: " + externalKey);
-    		}
-    	}catch(IllegalStateException ise){
-    		logger.println("No pattern matched in changelist description. \nPattern: " + keyRegExPattern.pattern() + "\nDescription: " + descr);
+    	DescriptionScanner current = scanner;
+    	if(current == null){
+    		ActionOverrideFlag[] flags = ActionOverrideFlag.values();
+    		String[] keywords = new String[flags.length];
+    		for(int i = 0; i < flags.length; i++)
+    			keywords[i] = flags[i].toString();
+    		
+    		// Scanners are immutable, so building two at once is harmless
+    		current = new DescriptionScanner(keyRegExPattern, keywords);
+    		scanner = current;
     	}
     	
-    	return externalKey;
+    	return current;
     }
 }
 
@@ -0,0 +1,230 @@
+/*
+ *
+ * Copyright (c) 2026, the Reviewboard plugin contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), the rights
+ * to use, copy, modify, merge, publish, distribute, and to permit persons to
+ * whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package hudson.plugins.reviewboard;
+
+import hudson.model.AbstractBuild;
+import hudson.model.Action;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Breakdown of the time a build spent sending its changes to Reviewboard: the time spent
+ * finding external keys in the change set, and for every change, the time spent in each
+ * phase of its submission.  Shown on the build page, and summed per build in the trend
+ * graph of {@link ReviewboardTimingProjectAction}.
+ *
+ * Changes submitted in parallel each record their own timing, so the time of a build is
+ * not the sum of the time of its changes.
+ */
+public class ReviewboardTimingAction implements Action {
+
+	/**
+	 * Phases of sending changes to Reviewboard that are timed.
+	 */
+	public enum Phase {
+		KEY_EXTRACTION("Key extraction"),
+		LOCK_WAIT("Waiting on other builds"),
+		HISTORY_LOOKUP("History lookup"),
+		DIFF("Diff"),
+		POST_REVIEW("post-review"),
+		API_SUBMIT("API: submit review"),
+		API_UPDATE_DRAFT("API: update draft"),
+		PUBLISH("Publish");
+
+		private final String displayName;
+
+		private Phase(final String displayName) {
+			this.displayName = displayName;
+		}
+
+		public String getDisplayName() {
+			return displayName;
+		}
+	}
+
+	/**
+	 * Time spent submitting a single change, or several coalesced changes.
+	 */
+	public static final class ChangeTiming {
+
+		private final String externalID;
+		private final List<Long> changeListIDs;
+		private final EnumMap<Phase, Long> durations = new EnumMap<Phase, Long>(Phase.class);
+		private final transient long startedAt = System.nanoTime();
+		private long total;
+		private Long reviewBoardID;
+		private String outcome;
+
+		ChangeTiming(final ChangeRecord change) {
+			this.externalID = change.getExternalID();
+			this.changeListIDs = new ArrayList<Long>(change.getChangeListIDs());
+		}
+
+		/**
+		 * Adds the time elapsed since a start time to a phase.
+		 *
+		 * @param phase phase that ran
+		 * @param start value of {@link System#nanoTime()} when the phase started
+		 */
+		void record(final Phase phase, final long start) {
+			long millis = (System.nanoTime() - start) / 1000000L;
+			Long previous = durations.get(phase);
+			durations.put(phase, (previous != null) ? previous + millis : millis);
+		}
+
+		/**
+		 * Records what became of the change.
+		 *
+		 * @param outcome what became of the change, such as "created"
+		 * @param reviewBoardID review request the change was submitted to, or null if it wasn't
+		 */
+		void setOutcome(final String outcome, final Long reviewBoardID) {
+			this.outcome = outcome;
+			this.reviewBoardID = reviewBoardID;
+		}
+
+		/**
+		 * Completes the timing of the change.  A change without an outcome by then failed.
+		 */
+		void finish() {
+			this.total = (System.nanoTime() - startedAt) / 1000000L;
+			if(this.outcome == null)
+				this.outcome = "failed";
+		}
+
+		public String getExternalID() {
+			return externalID;
+		}
+
+		public List<Long> getChangeListIDs() {
+			return Collections.unmodifiableList(changeListIDs);
+		}
+
+		public Long getReviewBoardID() {
+			return reviewBoardID;
+		}
+
+		public String getOutcome() {
+			return outcome;
+		}
+
+		/**
+		 * @return time, in milliseconds, spent in a phase, or 0 if it didn't run
+		 */
+		public long getDuration(final Phase phase) {
+			Long millis = durations.get(phase);
+			return (millis != null) ? millis : 0L;
+		}
+
+		/**
+		 * @return time, in milliseconds, from starting to submit the change to finishing
+		 */
+		public long getTotal() {
+			return total;
+		}
+	}
+
+	private final EnumMap<Phase, Long> buildDurations = new EnumMap<Phase, Long>(Phase.class);
+	private final List<ChangeTiming> changes = new ArrayList<ChangeTiming>();
+
+	/**
+	 * Returns the timing action of a build, adding one if it has none yet.
+	 *
+	 * @param build build sending changes to Reviewboard
+	 * @return timing action of the build
+	 */
+	static synchronized ReviewboardTimingAction forBuild(final AbstractBuild<?,?> build) {
+		ReviewboardTimingAction action = build.getAction(ReviewboardTimingAction.class);
+		if(action == null){
+			action = new ReviewboardTimingAction();
+			build.addAction(action);
+		}
+		return action;
+	}
+
+	/**
+	 * Adds the time elapsed since a start time to a phase of the build, rather than of a change.
+	 */
+	synchronized void record(final Phase phase, final long start) {
+		long millis = (System.nanoTime() - start) / 1000000L;
+		Long previous = buildDurations.get(phase);
+		buildDurations.put(phase, (previous != null) ? previous + millis : millis);
+	}
+
+	/**
+	 * Adds the timing of a change once it has been submitted.
+	 */
+	synchronized void add(final ChangeTiming change) {
+		changes.add(change);
+	}
+
+	/**
+	 * @return timing of every change, in the order they finished
+	 */
+	public synchronized List<ChangeTiming> getChanges() {
+		return new ArrayList<ChangeTiming>(changes);
+	}
+
+	/**
+	 * @return every phase, in the order they run
+	 */
+	public Phase[] getPhases() {
+		return Phase.values();
+	}
+
+	/**
+	 * @return time, in milliseconds, spent in a phase by the build and all of its changes
+	 */
+	public synchronized long getDuration(final Phase phase) {
+		Long millis = buildDurations.get(phase);
+		long total = (millis != null) ? millis : 0L;
+		for(ChangeTiming change: changes)
+			total += change.getDuration(phase);
+		return total;
+	}
+
+	/**
+	 * @return time, in milliseconds, spent in every phase, by phase
+	 */
+	public Map<Phase, Long> getDurations() {
+		Map<Phase, Long> durations = new EnumMap<Phase, Long>(Phase.class);
+		for(Phase phase: Phase.values())
+			durations.put(phase, getDuration(phase));
+		return durations;
+	}
+
+	public String getIconFileName() {
+		return "clock.gif";
+	}
+
+	public String getDisplayName() {
+		return "Reviewboard Timing";
+	}
+
+	public String getUrlName() {
+		return "reviewboard-timing";
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ *
+ * Copyright (c) 2026, the Reviewboard plugin contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), the rights
+ * to use, copy, modify, merge, publish, distribute, and to permit persons to
+ * whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package hudson.plugins.reviewboard;
+
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Action;
+import hudson.util.ChartUtil;
+import hudson.util.ChartUtil.NumberOnlyBuildLabel;
+import hudson.util.DataSetBuilder;
+import hudson.util.ShiftedCategoryAxis;
+
+import java.awt.Color;
+import java.io.IOException;
+
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.axis.CategoryAxis;
+import org.jfree.chart.axis.CategoryLabelPositions;
+import org.jfree.chart.plot.CategoryPlot;
+import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.data.category.CategoryDataset;
+import org.jfree.ui.RectangleInsets;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+/**
+ * Trend, on the job page, of the time each build spent sending its changes to Reviewboard,
+ * stacked by phase.  See {@link ReviewboardTimingAction}.
+ */
+public class ReviewboardTimingProjectAction implements Action {
+
+	// Most builds shown in the trend
+	private static final int MAX_BUILDS = 50;
+
+	private final AbstractProject<?,?> project;
+
+	public ReviewboardTimingProjectAction(final AbstractProject<?,?> project) {
+		this.project = project;
+	}
+
+	public AbstractProject<?,?> getProject() {
+		return project;
+	}
+
+	/**
+	 * @return true if a recent build has timings to show
+	 */
+	public boolean isTrendAvailable() {
+		int builds = 0;
+		for(AbstractBuild<?,?> build = project.getLastBuild(); build != null && builds < MAX_BUILDS; build = build.getPreviousBuild(), builds++){
+			if(build.getAction(ReviewboardTimingAction.class) != null)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Renders the trend graph.
+	 */
+	public void doGraph(final StaplerRequest req, final StaplerResponse rsp) throws IOException {
+
+		if(ChartUtil.awtProblemCause != null){
+			rsp.sendRedirect2(req.getContextPath() + "/images/headless.png");
+			return;
+		}
+
+		AbstractBuild<?,?> lastBuild = project.getLastBuild();
+		if(lastBuild != null && req.checkIfModified(lastBuild.getTimestamp(), rsp))
+			return;
+
+		ChartUtil.generateGraph(req, rsp, createChart(buildDataSet()), 500, 200);
+	}
+
+	private CategoryDataset buildDataSet() {
+
+		DataSetBuilder<String, NumberOnlyBuildLabel> data = new DataSetBuilder<String, NumberOnlyBuildLabel>();
+		int builds = 0;
+		for(AbstractBuild<?,?> build = project.getLastBuild(); build != null && builds < MAX_BUILDS; build = build.getPreviousBuild(), builds++){
+			ReviewboardTimingAction timing = build.getAction(ReviewboardTimingAction.class);
+			if(timing == null)
+				continue;
+
+			NumberOnlyBuildLabel label = new NumberOnlyBuildLabel(build);
+			for(ReviewboardTimingAction.Phase phase: ReviewboardTimingAction.Phase.values())
+				data.add(timing.getDuration(phase) / 1000.0, phase.getDisplayName(), label);
+		}
+		return data.build();
+	}
+
+	private static JFreeChart createChart(final CategoryDataset dataset) {
+
+		JFreeChart chart = ChartFactory.createStackedAreaChart(
+				null,        // chart title
+				null,        // category axis label
+				"seconds",   // value axis label
+				dataset,
+				PlotOrientation.VERTICAL,
+				true,        // legend
+				true,        // tooltips
+				false);      // urls
+
+		chart.setBackgroundPaint(Color.white);
+
+		CategoryPlot plot = chart.getCategoryPlot();
+		plot.setBackgroundPaint(Color.WHITE);
+		plot.setOutlinePaint(null);
+		plot.setForegroundAlpha(0.8f);
+		plot.setRangeGridlinesVisible(true);
+		plot.setRangeGridlinePaint(Color.black);
+
+		CategoryAxis domainAxis = new ShiftedCategoryAxis(null);
+		plot.setDomainAxis(domainAxis);
+		domainAxis.setCategoryLabelPositions(CategoryLabelPositions.UP_90);
+		domainAxis.setLowerMargin(0.0);
+		domainAxis.setUpperMargin(0.0);
+		domainAxis.setCategoryMargin(0.0);
+
+		plot.setInsets(new RectangleInsets(0, 0, 0, 5.0));
+
+		return chart;
+	}
+
+	public String getIconFileName() {
+		return null;
+	}
+
+	public String getDisplayName() {
+		return "Reviewboard Timing Trend";
+	}
+
+	public String getUrlName() {
+		return "reviewboard-timing";
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ *
+ * Copyright (c) 2026, the Reviewboard plugin contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), the rights
+ * to use, copy, modify, merge, publish, distribute, and to permit persons to
+ * whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.twelvegm.hudson.plugin.reviewboard;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+/**
+ * Tests the state transitions of {@link CircuitBreaker}.
+ */
+public class CircuitBreakerTest {
+
+	private static final long LONG_INTERVAL = 60L * 60L * 1000L;
+
+	@Test
+	public void staysClosedBelowTheThreshold() throws Exception {
+		CircuitBreaker breaker = new CircuitBreaker(3, LONG_INTERVAL);
+		breaker.recordFailure();
+		breaker.recordFailure();
+		breaker.acquire();
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+	}
+
+	@Test
+	public void successResetsConsecutiveFailures() throws Exception {
+		CircuitBreaker breaker = new CircuitBreaker(3, LONG_INTERVAL);
+		breaker.recordFailure();
+		breaker.recordFailure();
+		breaker.recordSuccess();
+		breaker.recordFailure();
+		breaker.recordFailure();
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+	}
+
+	@Test(expected = CircuitBreaker.OpenException.class)
+	public void opensAtTheThresholdAndRefusesCalls() throws Exception {
+		CircuitBreaker breaker = new CircuitBreaker(3, LONG_INTERVAL);
+		breaker.recordFailure();
+		breaker.recordFailure();
+		breaker.recordFailure();
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+		breaker.acquire();
+	}
+
+	@Test
+	public void letsOneProbeThroughOnceTheIntervalHasPassed() throws Exception {
+		CircuitBreaker breaker = new CircuitBreaker(1, 0L);
+		breaker.recordFailure();
+		breaker.acquire();
+		assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+		try{
+			breaker.acquire();
+			fail("A second call was let through while the probe was in flight");
+		}catch(CircuitBreaker.OpenException e){
+			// expected
+		}
+	}
+
+	@Test
+	public void closesWhenTheProbeSucceeds() throws Exception {
+		CircuitBreaker breaker = new CircuitBreaker(1, 0L);
+		breaker.recordFailure();
+		breaker.acquire();
+		breaker.recordSuccess();
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+		breaker.acquire();
+	}
+
+	@Test
+	public void reopensWhenTheProbeFails() throws Exception {
+		CircuitBreaker breaker = new CircuitBreaker(5, 0L);
+		for(int i = 0; i < 5; i++)
+			breaker.recordFailure();
+		breaker.acquire();
+		breaker.recordFailure();
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+	}
+}
@@ -0,0 +1,60 @@
+/*
+ *
+ * Copyright (c) 2026, the Reviewboard plugin contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), the rights
+ * to use, copy, modify, merge, publish, distribute, and to permit persons to
+ * whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.twelvegm.hudson.plugin.reviewboard;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests the counts of {@link LatencyHistogram}.
+ */
+public class LatencyHistogramTest {
+
+	@Test
+	public void countsAtBoundsAreExact() {
+		LatencyHistogram histogram = new LatencyHistogram(5000L, 10000L);
+		histogram.record(4700L);
+		histogram.record(5000L);
+		histogram.record(5001L);
+		histogram.record(20000L);
+		assertEquals(2L, histogram.getCountAtOrBelow(5000L));
+		assertEquals(3L, histogram.getCountAtOrBelow(10000L));
+		assertEquals(4L, histogram.getCount());
+	}
+
+	@Test
+	public void countsElsewhereAreRoundedDownToABucket() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(4700L);
+		assertEquals(0L, histogram.getCountAtOrBelow(5000L));
+		assertEquals(1L, histogram.getCountAtOrBelow(5119L));
+	}
+
+	@Test
+	public void resetClearsCountsAtBounds() {
+		LatencyHistogram histogram = new LatencyHistogram(5000L);
+		histogram.record(100L);
+		histogram.reset();
+		assertEquals(0L, histogram.getCountAtOrBelow(5000L));
+		assertEquals(0L, histogram.getCount());
+	}
+}
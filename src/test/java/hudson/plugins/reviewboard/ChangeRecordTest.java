@@ -0,0 +1,110 @@
+/*
+ *
+ * Copyright (c) 2026, the Reviewboard plugin contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), the rights
+ * to use, copy, modify, merge, publish, distribute, and to permit persons to
+ * whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package hudson.plugins.reviewboard;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link ChangeRecord}.
+ */
+public class ChangeRecordTest {
+
+	private static ChangeRecord change(final long changeListID, final String author, final String description, final String... files) {
+		return new ChangeRecord("PROJ-1", changeListID, author, description, Arrays.asList(files));
+	}
+
+	@Test
+	public void coalescingOneChangeReturnsIt() {
+		ChangeRecord change = change(10L, "alice", "Fix", "//depot/a.c");
+		assertSame(change, ChangeRecord.coalesce(Arrays.asList(change)));
+		assertFalse(change.isCoalesced());
+		assertEquals(Arrays.asList(10L), change.getChangeListIDs());
+	}
+
+	@Test
+	public void coalescingKeepsTheFirstAuthorAndTheLastID() {
+		ChangeRecord coalesced = ChangeRecord.coalesce(Arrays.asList(
+				change(10L, "alice", "First", "//depot/a.c"),
+				change(11L, "bob", "Second", "//depot/b.c")));
+
+		assertTrue(coalesced.isCoalesced());
+		assertEquals("PROJ-1", coalesced.getExternalID());
+		assertEquals("alice", coalesced.getAuthor());
+		assertEquals(Long.valueOf(11L), coalesced.getChangeListID());
+		assertEquals(Arrays.asList(10L, 11L), coalesced.getChangeListIDs());
+	}
+
+	@Test
+	public void coalescingMergesFilesWithoutDuplicates() {
+		ChangeRecord coalesced = ChangeRecord.coalesce(Arrays.asList(
+				change(10L, "alice", "First", "//depot/a.c", "//depot/b.c"),
+				change(11L, "alice", "Second", "//depot/b.c", "//depot/c.c")));
+
+		assertEquals(Arrays.asList("//depot/a.c", "//depot/b.c", "//depot/c.c"), coalesced.getFiles());
+	}
+
+	@Test
+	public void coalescingHeadsEachDescriptionWithItsChange() {
+		ChangeRecord coalesced = ChangeRecord.coalesce(Arrays.asList(
+				change(10L, "alice", "First", "//depot/a.c"),
+				change(11L, "alice", "Second", "//depot/a.c")));
+
+		assertEquals("Changelist 10: First\n\nChangelist 11: Second", coalesced.getDescription());
+	}
+
+	@Test
+	public void withoutEarlierChangesTheRecordIsUnchanged() {
+		ChangeRecord change = change(12L, "alice", "Third", "//depot/a.c");
+		assertSame(change, change.withEarlierChanges(Arrays.<Long>asList(), Arrays.<String>asList()));
+		assertSame(change, change.withEarlierChanges(Arrays.asList(12L), Arrays.asList("//depot/a.c")));
+	}
+
+	@Test
+	public void earlierChangesComeFirstAndTheRecordKeepsItsOwnDetails() {
+		ChangeRecord change = change(12L, "bob", "Third", "//depot/c.c", "//depot/a.c");
+		ChangeRecord merged = change.withEarlierChanges(Arrays.asList(10L, 11L), Arrays.asList("//depot/a.c", "//depot/b.c"));
+
+		assertTrue(merged.isCoalesced());
+		assertEquals(Arrays.asList(10L, 11L, 12L), merged.getChangeListIDs());
+		assertEquals(Arrays.asList("//depot/a.c", "//depot/b.c", "//depot/c.c"), merged.getFiles());
+		assertEquals(Long.valueOf(12L), merged.getChangeListID());
+		assertEquals("bob", merged.getAuthor());
+		assertEquals("Third", merged.getDescription());
+	}
+
+	@Test
+	public void earlierChangesAlreadyInTheRecordAreNotRepeated() {
+		ChangeRecord coalesced = ChangeRecord.coalesce(Arrays.asList(
+				change(11L, "alice", "Second", "//depot/b.c"),
+				change(12L, "alice", "Third", "//depot/c.c")));
+		ChangeRecord merged = coalesced.withEarlierChanges(Arrays.asList(10L, 11L), Arrays.asList("//depot/a.c", "//depot/b.c"));
+
+		assertEquals(Arrays.asList(10L, 11L, 12L), merged.getChangeListIDs());
+	}
+}
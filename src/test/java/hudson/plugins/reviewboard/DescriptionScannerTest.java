@@ -0,0 +1,94 @@
+/*
+ *
+ * Copyright (c) 2026, the Reviewboard plugin contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), the rights
+ * to use, copy, modify, merge, publish, distribute, and to permit persons to
+ * whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package hudson.plugins.reviewboard;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link DescriptionScanner}.
+ */
+public class DescriptionScannerTest {
+
+	// Same order as the publisher's override flags: earlier keywords take priority
+	private static final String[] FLAGS = { "RB_SKIP", "RB_NEW", "RB_UPDATE", "RB_NONE" };
+
+	private final DescriptionScanner scanner = new DescriptionScanner(Pattern.compile("([A-Z]+-\\d+)"), FLAGS);
+
+	@Test
+	public void findsNoKeywordInAPlainDescription() {
+		assertEquals(-1, scanner.scan("PROJ-12 Fix the report").getFirstKeyword());
+	}
+
+	@Test
+	public void findsKeywordsIgnoringCase() {
+		assertEquals(1, scanner.scan("PROJ-12 Rewrite the report rb_new").getFirstKeyword());
+		assertEquals(2, scanner.scan("PROJ-12 Rb_Update with the fix").getFirstKeyword());
+	}
+
+	@Test
+	public void earlierKeywordsTakePriorityWhereverTheyAppear() {
+		assertEquals(0, scanner.scan("PROJ-12 RB_NEW and then RB_SKIP").getFirstKeyword());
+		assertEquals(1, scanner.scan("PROJ-12 RB_UPDATE, no, RB_NEW").getFirstKeyword());
+	}
+
+	@Test
+	public void findsKeywordsAfterAPartialMatch() {
+		// "RB_N" starts RB_NEW and RB_NONE; the automaton must recover from the failed prefix
+		assertEquals(3, scanner.scan("RB_NRB_NONE").getFirstKeyword());
+		assertEquals(2, scanner.scan("RB_RB_UPDATE").getFirstKeyword());
+	}
+
+	@Test
+	public void ignoresCharactersOutsideAscii() {
+		assertEquals(1, scanner.scan("PROJ-12 \u00e9t\u00e9 RB_\u00e9NEW RB_NEW").getFirstKeyword());
+		assertEquals(-1, scanner.scan("RB_\u00e9NEW").getFirstKeyword());
+	}
+
+	@Test
+	public void findsTheKeyAtTheStartIgnoringWhiteSpace() {
+		assertEquals("PROJ-12", scanner.findKey("  \n\tPROJ-12 Fix the report"));
+		assertEquals("PROJ-12", scanner.scan("PROJ-12 Fix the report RB_NEW").getKey());
+	}
+
+	@Test
+	public void findsNoKeyAnywhereButTheStart() {
+		assertNull(scanner.findKey("Fix the report for PROJ-12"));
+		assertNull(scanner.scan("Fix the report for PROJ-12").getKey());
+	}
+
+	@Test
+	public void handlesMissingDescriptionsAndKeyPatterns() {
+		assertEquals(-1, scanner.scan(null).getFirstKeyword());
+		assertNull(scanner.scan(null).getKey());
+		assertNull(new DescriptionScanner(null, FLAGS).findKey("PROJ-12 Fix"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsKeywordsOutsideAscii() {
+		new DescriptionScanner(null, "RB_\u00c9T\u00c9");
+	}
+}
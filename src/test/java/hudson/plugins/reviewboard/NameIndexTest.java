@@ -0,0 +1,82 @@
+/*
+ *
+ * Copyright (c) 2026, the Reviewboard plugin contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), the rights
+ * to use, copy, modify, merge, publish, distribute, and to permit persons to
+ * whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package hudson.plugins.reviewboard;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link NameIndex}.
+ */
+public class NameIndexTest {
+
+	private final NameIndex index = new NameIndex(Arrays.asList("bob", "Alice", "alan", "ALBERT", "carol", "al"));
+
+	@Test
+	public void containsIsCaseSensitive() {
+		assertTrue(index.contains("Alice"));
+		assertFalse(index.contains("alice"));
+		assertFalse(index.contains("dave"));
+		assertFalse(index.contains(null));
+	}
+
+	@Test
+	public void startingWithIgnoresCaseAndSortsAlphabetically() {
+		assertEquals(Arrays.asList("al", "alan", "ALBERT", "Alice"), index.startingWith("AL", 10));
+	}
+
+	@Test
+	public void startingWithStopsAtTheLimit() {
+		assertEquals(Arrays.asList("al", "alan"), index.startingWith("al", 2));
+	}
+
+	@Test
+	public void startingWithAnExactNameIncludesIt() {
+		assertEquals(Arrays.asList("carol"), index.startingWith("carol", 10));
+	}
+
+	@Test
+	public void startingWithFindsEveryNameDifferingOnlyByCase() {
+		NameIndex sameKeys = new NameIndex(Arrays.asList("dave", "Dave", "DAVE", "david"));
+		assertEquals(Arrays.asList("DAVE", "Dave", "dave"), sameKeys.startingWith("dave", 10));
+		assertEquals(Arrays.asList("DAVE", "Dave", "dave", "david"), sameKeys.startingWith("dav", 10));
+	}
+
+	@Test
+	public void startingWithNullOrEmptyMatchesEverything() {
+		assertEquals(6, index.startingWith(null, 10).size());
+		assertEquals(6, index.startingWith("", 10).size());
+	}
+
+	@Test
+	public void startingWithNoMatches() {
+		assertTrue(index.startingWith("zed", 10).isEmpty());
+		assertTrue(NameIndex.EMPTY.startingWith("a", 10).isEmpty());
+		assertEquals(0, new NameIndex(Collections.<String>emptyList()).size());
+	}
+}
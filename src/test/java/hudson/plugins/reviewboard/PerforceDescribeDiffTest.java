@@ -0,0 +1,190 @@
+/*
+ *
+ * Copyright (c) 2026, the Reviewboard plugin contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), the rights
+ * to use, copy, modify, merge, publish, distribute, and to permit persons to
+ * whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package hudson.plugins.reviewboard;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests the conversion of <code>p4 describe -du</code> output by {@link PerforceDescribeDiff}.
+ */
+public class PerforceDescribeDiffTest {
+
+	private static final String HEADER =
+		"Change 1234 by alice@ws on 2011/05/04 10:00:00\n" +
+		"\n" +
+		"\tPROJ-1 Fix the report\n" +
+		"\n" +
+		"Affected files ...\n" +
+		"\n";
+
+	@Test
+	public void convertsEditedFiles() {
+		String describe = HEADER +
+			"... //depot/project/a.c#3 edit\n" +
+			"... //depot/project/b.c#7 integrate\n" +
+			"\n" +
+			"Differences ...\n" +
+			"\n" +
+			"==== //depot/project/a.c#3 (text) ====\n" +
+			"\n" +
+			"@@ -1,2 +1,2 @@\n" +
+			" int a;\n" +
+			"-int b;\n" +
+			"+long b;\n" +
+			"\n" +
+			"==== //depot/project/b.c#7 (text) ====\n" +
+			"\n" +
+			"@@ -4 +4 @@\n" +
+			"-x\n" +
+			"+y\n";
+
+		Set<String> paths = new HashSet<String>();
+		String diff = PerforceDescribeDiff.convert(describe, paths);
+
+		assertEquals(
+			"--- //depot/project/a.c\t//depot/project/a.c#2\n" +
+			"+++ //depot/project/a.c\t//depot/project/a.c#3\n" +
+			"@@ -1,2 +1,2 @@\n" +
+			" int a;\n" +
+			"-int b;\n" +
+			"+long b;\n" +
+			"--- //depot/project/b.c\t//depot/project/b.c#6\n" +
+			"+++ //depot/project/b.c\t//depot/project/b.c#7\n" +
+			"@@ -4 +4 @@\n" +
+			"-x\n" +
+			"+y\n", diff);
+		assertEquals(2, paths.size());
+		assertTrue(paths.contains("//depot/project/a.c"));
+		assertTrue(paths.contains("//depot/project/b.c"));
+	}
+
+	@Test
+	public void removedLinesLookingLikeFileHeadersAreKeptAsLines() {
+		String describe = HEADER +
+			"... //depot/project/schema.sql#2 edit\n" +
+			"\n" +
+			"Differences ...\n" +
+			"\n" +
+			"==== //depot/project/schema.sql#2 (text) ====\n" +
+			"\n" +
+			"@@ -1,3 +1,2 @@\n" +
+			"--- drop the old table\n" +
+			"--- other\tcomment\n" +
+			"+++ not a header either\n" +
+			" SELECT 1;\n";
+
+		Set<String> paths = new HashSet<String>();
+		String diff = PerforceDescribeDiff.convert(describe, paths);
+
+		assertTrue(diff.contains("\n--- drop the old table\n--- other\tcomment\n+++ not a header either\n"));
+		assertEquals(1, paths.size());
+		assertTrue(paths.contains("//depot/project/schema.sql"));
+	}
+
+	@Test
+	public void filesWithoutDifferencesAreLeftOut() {
+		String describe = HEADER +
+			"... //depot/project/a.c#3 edit\n" +
+			"... //depot/project/run.sh#2 edit\n" +
+			"\n" +
+			"Differences ...\n" +
+			"\n" +
+			"==== //depot/project/run.sh#2 (text+x) ====\n" +
+			"\n" +
+			"==== //depot/project/a.c#3 (text) ====\n" +
+			"\n" +
+			"@@ -1 +1 @@\n" +
+			"-a\n" +
+			"+b\n";
+
+		Set<String> paths = new HashSet<String>();
+		String diff = PerforceDescribeDiff.convert(describe, paths);
+
+		assertTrue(diff.startsWith("--- //depot/project/a.c\t"));
+		assertEquals(1, paths.size());
+		assertTrue(paths.contains("//depot/project/a.c"));
+	}
+
+	@Test
+	public void changelistsWithOnlyTypeChangesHaveNoDiff() {
+		String describe = HEADER +
+			"... //depot/project/run.sh#2 edit\n" +
+			"\n" +
+			"Differences ...\n" +
+			"\n" +
+			"==== //depot/project/run.sh#2 (text+x) ====\n";
+
+		Set<String> paths = new HashSet<String>();
+		assertNull(PerforceDescribeDiff.convert(describe, paths));
+		assertTrue(paths.isEmpty());
+	}
+
+	@Test
+	public void addedFilesCantBeDiffed() {
+		String describe = HEADER +
+			"... //depot/project/new.c#1 add\n" +
+			"\n" +
+			"Differences ...\n";
+
+		assertNull(PerforceDescribeDiff.convert(describe));
+	}
+
+	@Test
+	public void binaryFilesCantBeDiffed() {
+		String describe = HEADER +
+			"... //depot/project/logo.png#4 edit\n" +
+			"\n" +
+			"Differences ...\n" +
+			"\n" +
+			"==== //depot/project/logo.png#4 (binary) ====\n";
+
+		assertNull(PerforceDescribeDiff.convert(describe));
+	}
+
+	@Test
+	public void windowsLineEndingsAreAccepted() {
+		String describe = (HEADER +
+			"... //depot/project/a.c#3 edit\n" +
+			"\n" +
+			"Differences ...\n" +
+			"\n" +
+			"==== //depot/project/a.c#3 (text) ====\n" +
+			"\n" +
+			"@@ -1 +1 @@\n" +
+			"-a\n" +
+			"+b\n").replace("\n", "\r\n");
+
+		assertEquals(
+			"--- //depot/project/a.c\t//depot/project/a.c#2\n" +
+			"+++ //depot/project/a.c\t//depot/project/a.c#3\n" +
+			"@@ -1 +1 @@\n" +
+			"-a\n" +
+			"+b\n", PerforceDescribeDiff.convert(describe));
+	}
+}
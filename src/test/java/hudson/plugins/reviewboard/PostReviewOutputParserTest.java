@@ -0,0 +1,119 @@
+/*
+ *
+ * Copyright (c) 2026, the Reviewboard plugin contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), the rights
+ * to use, copy, modify, merge, publish, distribute, and to permit persons to
+ * whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package hudson.plugins.reviewboard;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link PostReviewOutputParser}.
+ */
+public class PostReviewOutputParserTest {
+
+	private static PostReviewOutputParser parse(final String... lines) {
+		PostReviewOutputParser parser = new PostReviewOutputParser();
+		for(String line: lines)
+			parser.parseLine(line);
+		return parser;
+	}
+
+	@Test
+	public void findsThePostedReviewRequest() {
+		PostReviewOutputParser parser = parse(
+				"Looking for 'rb.example.com /' cookie in /home/jenkins/.post-review-cookies.txt",
+				"Review request #36 posted.",
+				"",
+				"http://rb.example.com/r/36/");
+
+		assertEquals(36L, parser.getPostedReviewID());
+		assertEquals(-1L, parser.getFailedReviewID());
+		assertEquals(1, parser.getEvents().size());
+		assertEquals(PostReviewOutputParser.EventType.POSTED, parser.getEvents().get(0).getType());
+	}
+
+	@Test
+	public void findsTheReviewRequestInError() {
+		PostReviewOutputParser parser = parse("Error getting review request 36: HTTP Error 404");
+
+		assertEquals(-1L, parser.getPostedReviewID());
+		assertEquals(36L, parser.getFailedReviewID());
+		PostReviewOutputParser.Event event = parser.getEvents().get(0);
+		assertEquals(PostReviewOutputParser.EventType.HTTP_ERROR, event.getType());
+		assertEquals(36L, event.getReviewBoardID());
+		assertEquals(404L, event.getHttpStatus());
+	}
+
+	@Test
+	public void theFirstOutcomeDecides() {
+		PostReviewOutputParser parser = parse(
+				"Error getting review request 36: HTTP Error 404",
+				"Review request #37 posted.");
+
+		assertEquals(-1L, parser.getPostedReviewID());
+		assertEquals(36L, parser.getFailedReviewID());
+		assertEquals(2, parser.getEvents().size());
+	}
+
+	@Test
+	public void warningsAreRecordedButDontDecide() {
+		PostReviewOutputParser parser = parse(
+				"Warning: Could not determine the base path",
+				"  WARNING the diff is empty",
+				"Review request #36 posted.");
+
+		assertEquals(36L, parser.getPostedReviewID());
+		assertEquals(3, parser.getEvents().size());
+		assertEquals(PostReviewOutputParser.EventType.WARNING, parser.getEvents().get(0).getType());
+		assertEquals("Warning: Could not determine the base path", parser.getEvents().get(0).getLine());
+		assertEquals(-1L, parser.getEvents().get(0).getReviewBoardID());
+		assertEquals(PostReviewOutputParser.EventType.WARNING, parser.getEvents().get(1).getType());
+	}
+
+	@Test
+	public void idsTooLargeForALongAreIgnored() {
+		PostReviewOutputParser parser = parse("Review request #99999999999999999999 posted.");
+
+		assertEquals(-1L, parser.getPostedReviewID());
+		assertTrue(parser.getEvents().isEmpty());
+	}
+
+	@Test
+	public void theLargestLongIsAccepted() {
+		assertEquals(Long.MAX_VALUE, parse("Review request #" + Long.MAX_VALUE + " posted.").getPostedReviewID());
+	}
+
+	@Test
+	public void unrelatedAndEmptyLinesAreIgnored() {
+		PostReviewOutputParser parser = parse(null, "", "Uploading diff...", "warnings were disabled");
+
+		assertEquals(-1L, parser.getPostedReviewID());
+		assertEquals(-1L, parser.getFailedReviewID());
+		assertTrue(parser.getEvents().isEmpty());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void eventsCantBeModified() {
+		parse("Review request #36 posted.").getEvents().clear();
+	}
+}